@@ -30,7 +30,9 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/produits/**").hasAnyRole("ADMIN", "CLIENT")
                         .requestMatchers(HttpMethod.POST, "/api/produits/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/produits/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.PATCH, "/api/produits/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/produits/**").hasRole("ADMIN")
+                        .requestMatchers("/api/commandes/statistiques/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/api/commandes/**").hasRole("CLIENT")
                         .requestMatchers(HttpMethod.GET, "/api/commandes/all").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/commandes/**").hasAnyRole("ADMIN", "CLIENT")
@@ -44,8 +46,9 @@ public class SecurityConfig {
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:3000"));
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList("X-Curseur-Suivant", "Location", "Preference-Applied", "Idempotent-Replayed", "ETag", "X-Sequence"));
         configuration.setAllowCredentials(true);
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -0,0 +1,114 @@
+package amouhal.nouhayla.commande.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Cache local des produits du service Produit, indexé par id.
+// Nom, description et prix sont servis pendant toute la durée de vie de l'entrée ;
+// la quantité en stock n'est exposée que pendant une fenêtre de fraîcheur plus courte.
+// Les dernières données connues sont gardées sans limite de durée, pour le repli quand le service
+// Produit est indisponible (produit.resilience.repli-dernier-connu).
+@Component
+public class ProduitCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${produit.cache.actif:true}")
+    private boolean actif;
+
+    @Value("${produit.cache.taille-max:10000}")
+    private long tailleMax;
+
+    @Value("${produit.cache.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${produit.cache.fraicheur-stock:5s}")
+    private Duration fraicheurStock;
+
+    private Cache<Long, Entree> cache;
+    private Cache<Long, ProduitDto> derniersConnus;
+    private Counter stockPerime;
+
+    @PostConstruct
+    public void initialiser() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "produits");
+        derniersConnus = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .build();
+        stockPerime = Counter.builder("produit.cache.stock.perime")
+                .description("Produits servis par le cache sans quantité en stock (fenêtre de fraîcheur dépassée)")
+                .register(meterRegistry);
+    }
+
+    // Copie du produit en cache, quantiteStock à null si elle n'est plus assez fraîche ; null si absent
+    public ProduitDto lire(Long id) {
+        if (!actif || id == null) {
+            return null;
+        }
+        Entree entree = cache.getIfPresent(id);
+        if (entree == null) {
+            return null;
+        }
+        boolean stockFrais = System.nanoTime() - entree.chargeLe() < fraicheurStock.toNanos();
+        if (!stockFrais) {
+            stockPerime.increment();
+        }
+        return copier(entree.produit(), stockFrais);
+    }
+
+    public void enregistrer(ProduitDto produit) {
+        if (actif && produit != null && produit.getId() != null) {
+            cache.put(produit.getId(), new Entree(copier(produit, true), System.nanoTime()));
+            derniersConnus.put(produit.getId(), copier(produit, false));
+        }
+    }
+
+    // Dernières données connues des produits demandés, sans stock ; null s'il en manque un
+    public Map<Long, ProduitDto> lireDerniersConnus(Collection<Long> ids) {
+        Map<Long, ProduitDto> produits = new HashMap<>();
+        for (Long id : ids) {
+            ProduitDto produit = actif ? derniersConnus.getIfPresent(id) : null;
+            if (produit == null) {
+                return null;
+            }
+            produits.put(id, copier(produit, false));
+        }
+        return produits;
+    }
+
+    public void invalider(Long id) {
+        if (id != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    private static ProduitDto copier(ProduitDto source, boolean avecStock) {
+        ProduitDto copie = new ProduitDto();
+        copie.setId(source.getId());
+        copie.setNom(source.getNom());
+        copie.setDescription(source.getDescription());
+        copie.setPrix(source.getPrix());
+        copie.setQuantiteStock(avecStock ? source.getQuantiteStock() : null);
+        return copie;
+    }
+
+    private record Entree(ProduitDto produit, long chargeLe) {}
+}
@@ -3,10 +3,26 @@ package amouhal.nouhayla.commande.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
 
 @FeignClient(name = "produit-service", url = "${produit.service.url}")
 public interface ProduitClient {
     
     @GetMapping("/api/produits/{id}")
     ProduitDto getProduit(@PathVariable("id") Long id);
+
+    // Un seul aller-retour pour toutes les lignes d'une commande
+    @GetMapping("/api/produits/batch")
+    ProduitsBatchDto getProduits(@RequestParam("ids") List<Long> ids);
+
+    // Décrément atomique du stock de toutes les lignes (tout ou rien)
+    @PostMapping("/api/produits/reservations")
+    ReservationResultatDto reserverStock(@RequestBody ReservationDto reservation);
+
+    @PostMapping("/api/produits/reservations/liberation")
+    ReservationResultatDto libererStock(@RequestBody ReservationDto reservation);
 }
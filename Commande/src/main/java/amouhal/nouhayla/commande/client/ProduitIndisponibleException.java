@@ -0,0 +1,8 @@
+package amouhal.nouhayla.commande.client;
+
+// Appel au service Produit refusé sans être tenté : disjoncteur ouvert ou trop d'appels simultanés
+public class ProduitIndisponibleException extends RuntimeException {
+    public ProduitIndisponibleException(String message) {
+        super(message);
+    }
+}
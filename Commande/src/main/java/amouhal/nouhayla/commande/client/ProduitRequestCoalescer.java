@@ -0,0 +1,266 @@
+package amouhal.nouhayla.commande.client;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Regroupe les lectures de produits vers le service Produit :
+// - une lecture déjà en vol pour un id est partagée au lieu d'être relancée ;
+// - les ids demandés pendant une courte fenêtre partent dans un seul appel groupé.
+// L'appel groupé porte le JWT du premier demandeur. Le catalogue est identique pour tout
+// utilisateur authentifié ; si ce jeton est refusé (401/403), chaque demandeur rejoue sa
+// lecture avec son propre jeton. Avec partage-entre-utilisateurs=false, rien n'est partagé
+// entre jetons différents.
+@Component
+public class ProduitRequestCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProduitRequestCoalescer.class);
+
+    @Autowired
+    private ProduitClient produitClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${produit.coalescence.actif:true}")
+    private boolean actif;
+
+    @Value("${produit.coalescence.fenetre:2ms}")
+    private Duration fenetre;
+
+    @Value("${produit.coalescence.partage-entre-utilisateurs:true}")
+    private boolean partageEntreUtilisateurs;
+
+    @Value("${produit.coalescence.attente-max:30s}")
+    private Duration attenteMax;
+
+    @Value("${produit.coalescence.appels-max:16}")
+    private int appelsMax;
+
+    // Doit rester inférieur ou égal à produit.batch.taille-max côté Produit
+    @Value("${produit.service.batch-taille:500}")
+    private int tailleBatch;
+
+    private final Map<Cle, CompletableFuture<ProduitDto>> enVol = new ConcurrentHashMap<>();
+    private final Map<String, Lot> lotsOuverts = new HashMap<>();
+
+    private ScheduledExecutorService planificateur;
+    private ExecutorService appels;
+    private Counter requetes;
+    private Counter partagees;
+    private Counter rejouees;
+    private DistributionSummary tailleLots;
+
+    @PostConstruct
+    public void initialiser() {
+        planificateur = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coalescence-produit-fenetre");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger compteur = new AtomicInteger();
+        appels = Executors.newFixedThreadPool(appelsMax, runnable -> {
+            Thread thread = new Thread(runnable, "coalescence-produit-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        requetes = Counter.builder("produit.coalescence.requetes")
+                .description("Lectures de produits demandées")
+                .register(meterRegistry);
+        partagees = Counter.builder("produit.coalescence.partagees")
+                .description("Lectures servies par un appel déjà en vol")
+                .register(meterRegistry);
+        rejouees = Counter.builder("produit.coalescence.rejouees")
+                .description("Lectures rejouées avec le jeton du demandeur après un refus du jeton partagé")
+                .register(meterRegistry);
+        tailleLots = DistributionSummary.builder("produit.coalescence.lots")
+                .description("Nombre d'ids par appel groupé envoyé au service Produit")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        planificateur.shutdownNow();
+        appels.shutdownNow();
+    }
+
+    // Produits trouvés indexés par id ; les ids inconnus sont absents de la map
+    public Map<Long, ProduitDto> getProduits(Collection<Long> ids) {
+        if (!actif) {
+            return appelerDirectement(new ArrayList<>(ids));
+        }
+        SecurityContext contexte = SecurityContextHolder.getContext();
+        String jeton = jeton(contexte);
+
+        Map<Long, CompletableFuture<ProduitDto>> attentes = new LinkedHashMap<>();
+        for (Long id : ids) {
+            requetes.increment();
+            attentes.put(id, rejoindre(new Cle(partageEntreUtilisateurs ? null : jeton, id), contexte));
+        }
+
+        Map<Long, ProduitDto> produits = new HashMap<>();
+        List<Long> aRejouer = new ArrayList<>();
+        for (Map.Entry<Long, CompletableFuture<ProduitDto>> attente : attentes.entrySet()) {
+            try {
+                ProduitDto produit = attente.getValue().get(attenteMax.toMillis(), TimeUnit.MILLISECONDS);
+                if (produit != null) {
+                    produits.put(attente.getKey(), produit);
+                }
+            } catch (ExecutionException e) {
+                if (partageEntreUtilisateurs && (e.getCause() instanceof FeignException.Unauthorized
+                        || e.getCause() instanceof FeignException.Forbidden)) {
+                    aRejouer.add(attente.getKey());
+                } else if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                } else {
+                    throw new IllegalStateException(e.getCause());
+                }
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Délai dépassé pour la lecture du produit " + attente.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Lecture du produit " + attente.getKey() + " interrompue");
+            }
+        }
+        if (!aRejouer.isEmpty()) {
+            rejouees.increment(aRejouer.size());
+            produits.putAll(appelerDirectement(aRejouer));
+        }
+        return produits;
+    }
+
+    private CompletableFuture<ProduitDto> rejoindre(Cle cle, SecurityContext contexte) {
+        CompletableFuture<ProduitDto> existant = enVol.get(cle);
+        if (existant != null) {
+            partagees.increment();
+            return existant;
+        }
+        CompletableFuture<ProduitDto> nouveau = new CompletableFuture<>();
+        existant = enVol.putIfAbsent(cle, nouveau);
+        if (existant != null) {
+            partagees.increment();
+            return existant;
+        }
+        nouveau.whenComplete((produit, erreur) -> enVol.remove(cle, nouveau));
+        ajouterAuLot(cle, nouveau, contexte);
+        return nouveau;
+    }
+
+    private void ajouterAuLot(Cle cle, CompletableFuture<ProduitDto> future, SecurityContext contexte) {
+        String groupe = cle.jeton() == null ? "" : cle.jeton();
+        Lot plein = null;
+        synchronized (lotsOuverts) {
+            Lot lot = lotsOuverts.get(groupe);
+            if (lot == null) {
+                Lot ouvert = new Lot(groupe, contexte);
+                lotsOuverts.put(groupe, ouvert);
+                planificateur.schedule(() -> fermer(ouvert), fenetre.toNanos(), TimeUnit.NANOSECONDS);
+                lot = ouvert;
+            }
+            lot.futures.put(cle.produitId(), future);
+            if (lot.futures.size() >= tailleBatch) {
+                lotsOuverts.remove(groupe);
+                plein = lot;
+            }
+        }
+        if (plein != null) {
+            envoyer(plein);
+        }
+    }
+
+    // Fin de la fenêtre : envoyer le lot s'il n'est pas déjà parti parce qu'il était plein
+    private void fermer(Lot lot) {
+        synchronized (lotsOuverts) {
+            if (lotsOuverts.get(lot.groupe) != lot) {
+                return;
+            }
+            lotsOuverts.remove(lot.groupe);
+        }
+        envoyer(lot);
+    }
+
+    private void envoyer(Lot lot) {
+        tailleLots.record(lot.futures.size());
+        appels.execute(() -> {
+            SecurityContextHolder.setContext(lot.contexte);
+            try {
+                ProduitsBatchDto reponse = produitClient.getProduits(new ArrayList<>(lot.futures.keySet()));
+                Map<Long, ProduitDto> trouves = new HashMap<>();
+                if (reponse != null) {
+                    reponse.getProduits().forEach(produit -> trouves.put(produit.getId(), produit));
+                    if (!reponse.getIntrouvables().isEmpty()) {
+                        logger.warn("Produits introuvables signalés par le service Produit: {}", reponse.getIntrouvables());
+                    }
+                }
+                lot.futures.forEach((id, future) -> future.complete(trouves.get(id)));
+            } catch (Exception e) {
+                logger.error("Erreur lors de la récupération groupée de {} produits: {}", lot.futures.size(), e.getMessage());
+                lot.futures.values().forEach(future -> future.completeExceptionally(e));
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+    }
+
+    // Sans regroupement : appels groupés dans le thread appelant, par tranches de tailleBatch
+    private Map<Long, ProduitDto> appelerDirectement(List<Long> ids) {
+        Map<Long, ProduitDto> produits = new HashMap<>();
+        for (int debut = 0; debut < ids.size(); debut += tailleBatch) {
+            ProduitsBatchDto reponse = produitClient.getProduits(ids.subList(debut, Math.min(debut + tailleBatch, ids.size())));
+            if (reponse != null) {
+                reponse.getProduits().forEach(produit -> produits.put(produit.getId(), produit));
+            }
+        }
+        return produits;
+    }
+
+    private static String jeton(SecurityContext contexte) {
+        Authentication authentication = contexte.getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof Jwt jwt) {
+            return jwt.getTokenValue();
+        }
+        return null;
+    }
+
+    private record Cle(String jeton, Long produitId) {}
+
+    private static final class Lot {
+        private final String groupe;
+        private final SecurityContext contexte;
+        private final Map<Long, CompletableFuture<ProduitDto>> futures = new LinkedHashMap<>();
+
+        private Lot(String groupe, SecurityContext contexte) {
+            this.groupe = groupe;
+            this.contexte = contexte;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package amouhal.nouhayla.commande.client;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Protection des appels au service Produit, appliquée au transport HTTP du client Feign :
+// - cloisonnement : au plus appels-max appels simultanés, les suivants sont refusés après attente-max ;
+// - deux disjoncteurs, lectures (GET) et réservations (POST) : ouverts quand le taux d'échec
+//   (erreurs réseau, délais dépassés, réponses 5xx) dépasse le seuil, puis demi-ouverts après
+//   duree-ouverture pour laisser passer quelques appels de test.
+// Un appel refusé lève ProduitIndisponibleException sans toucher le réseau. Tout s'exécute dans le
+// thread appelant : FeignClientInterceptor y retrouve le JWT. Les libérations de stock (compensation)
+// ne passent pas par le disjoncteur pour ne pas laisser du stock réservé à tort.
+// Les délais de connexion et de lecture sont ceux de spring.cloud.openfeign.client.config.produit-service.
+@Component
+public class ProduitResilience implements Capability {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProduitResilience.class);
+
+    private static final String LIBERATION = "/api/produits/reservations/liberation";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${produit.resilience.appels-max:32}")
+    private int appelsMax;
+
+    @Value("${produit.resilience.attente-max:50ms}")
+    private Duration attenteMax;
+
+    // Pourcentage d'échecs sur les derniers appels au-delà duquel le disjoncteur s'ouvre
+    @Value("${produit.resilience.taux-echec:50}")
+    private float tauxEchec;
+
+    @Value("${produit.resilience.fenetre-appels:20}")
+    private int fenetreAppels;
+
+    @Value("${produit.resilience.appels-min:10}")
+    private int appelsMin;
+
+    @Value("${produit.resilience.duree-ouverture:10s}")
+    private Duration dureeOuverture;
+
+    @Value("${produit.resilience.appels-demi-ouvert:3}")
+    private int appelsDemiOuvert;
+
+    private Bulkhead bulkhead;
+    private CircuitBreaker lectures;
+    private CircuitBreaker reservations;
+
+    @PostConstruct
+    public void initialiser() {
+        BulkheadRegistry cloisons = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(appelsMax)
+                .maxWaitDuration(attenteMax)
+                .build());
+        bulkhead = cloisons.bulkhead("produit-service");
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(fenetreAppels)
+                .minimumNumberOfCalls(appelsMin)
+                .failureRateThreshold(tauxEchec)
+                .waitDurationInOpenState(dureeOuverture)
+                .permittedNumberOfCallsInHalfOpenState(appelsDemiOuvert)
+                .build();
+        CircuitBreakerRegistry disjoncteurs = CircuitBreakerRegistry.of(config);
+        lectures = disjoncteur(disjoncteurs, "produit-lecture");
+        reservations = disjoncteur(disjoncteurs, "produit-reservation");
+
+        TaggedBulkheadMetrics.ofBulkheadRegistry(cloisons).bindTo(meterRegistry);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(disjoncteurs).bindTo(meterRegistry);
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> executer(client, request, options);
+    }
+
+    private Response executer(Client client, Request request, Request.Options options) throws IOException {
+        CircuitBreaker disjoncteur = request.url().contains(LIBERATION)
+                ? null
+                : request.httpMethod() == Request.HttpMethod.GET ? lectures : reservations;
+
+        if (!bulkhead.tryAcquirePermission()) {
+            rejet("produit-service", "cloison-pleine");
+            throw new ProduitIndisponibleException("Trop d'appels simultanés au service Produit");
+        }
+        try {
+            if (disjoncteur != null && !disjoncteur.tryAcquirePermission()) {
+                rejet(disjoncteur.getName(), "circuit-ouvert");
+                throw new ProduitIndisponibleException("Service Produit indisponible (circuit " + disjoncteur.getName() + " ouvert)");
+            }
+            long debut = System.nanoTime();
+            Response response;
+            try {
+                response = client.execute(request, options);
+            } catch (IOException | RuntimeException e) {
+                if (disjoncteur != null) {
+                    disjoncteur.onError(System.nanoTime() - debut, TimeUnit.NANOSECONDS, e);
+                }
+                throw e;
+            }
+            if (disjoncteur != null) {
+                if (response.status() >= 500) {
+                    disjoncteur.onError(System.nanoTime() - debut, TimeUnit.NANOSECONDS,
+                            new IOException("Réponse " + response.status() + " du service Produit"));
+                } else {
+                    disjoncteur.onSuccess(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+                }
+            }
+            return response;
+        } finally {
+            bulkhead.onComplete();
+        }
+    }
+
+    private CircuitBreaker disjoncteur(CircuitBreakerRegistry disjoncteurs, String nom) {
+        CircuitBreaker disjoncteur = disjoncteurs.circuitBreaker(nom);
+        disjoncteur.getEventPublisher().onStateTransition(evenement -> {
+            CircuitBreaker.State etat = evenement.getStateTransition().getToState();
+            logger.warn("Disjoncteur {}: {}", nom, evenement.getStateTransition());
+            Counter.builder("produit.resilience.transitions")
+                    .description("Changements d'état des disjoncteurs du service Produit")
+                    .tag("circuit", nom)
+                    .tag("etat", etat.name())
+                    .register(meterRegistry)
+                    .increment();
+        });
+        return disjoncteur;
+    }
+
+    private void rejet(String nom, String cause) {
+        Counter.builder("produit.resilience.rejets")
+                .description("Appels au service Produit refusés sans être tentés")
+                .tag("circuit", nom)
+                .tag("cause", cause)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,25 @@
+package amouhal.nouhayla.commande.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProduitsBatchDto {
+    private List<ProduitDto> produits = new ArrayList<>();
+    private List<Long> introuvables = new ArrayList<>();
+
+    public List<ProduitDto> getProduits() {
+        return produits;
+    }
+
+    public void setProduits(List<ProduitDto> produits) {
+        this.produits = produits;
+    }
+
+    public List<Long> getIntrouvables() {
+        return introuvables;
+    }
+
+    public void setIntrouvables(List<Long> introuvables) {
+        this.introuvables = introuvables;
+    }
+}
@@ -0,0 +1,60 @@
+package amouhal.nouhayla.commande.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReservationDto {
+    // Choisi avant l'appel : un nouvel essai ne réserve pas deux fois, et la libération ne désigne que cet id
+    private String reservationId;
+    private List<LigneReservationDto> lignes = new ArrayList<>();
+
+    public ReservationDto() {}
+
+    public ReservationDto(List<LigneReservationDto> lignes) {
+        this.lignes = lignes;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public List<LigneReservationDto> getLignes() {
+        return lignes;
+    }
+
+    public void setLignes(List<LigneReservationDto> lignes) {
+        this.lignes = lignes;
+    }
+
+    public static class LigneReservationDto {
+        private Long produitId;
+        private Integer quantite;
+
+        public LigneReservationDto() {}
+
+        public LigneReservationDto(Long produitId, Integer quantite) {
+            this.produitId = produitId;
+            this.quantite = quantite;
+        }
+
+        public Long getProduitId() {
+            return produitId;
+        }
+
+        public void setProduitId(Long produitId) {
+            this.produitId = produitId;
+        }
+
+        public Integer getQuantite() {
+            return quantite;
+        }
+
+        public void setQuantite(Integer quantite) {
+            this.quantite = quantite;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package amouhal.nouhayla.commande.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReservationResultatDto {
+    public static final String RESERVEE = "RESERVEE";
+    public static final String STOCK_INSUFFISANT = "STOCK_INSUFFISANT";
+    public static final String INTROUVABLE = "INTROUVABLE";
+    // Réservation libérée avant d'arriver au service Produit
+    public static final String ANNULEE = "ANNULEE";
+
+    private String reservationId;
+    private boolean reussie;
+    private List<ResultatLigneDto> lignes = new ArrayList<>();
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public boolean isReussie() {
+        return reussie;
+    }
+
+    public void setReussie(boolean reussie) {
+        this.reussie = reussie;
+    }
+
+    public List<ResultatLigneDto> getLignes() {
+        return lignes;
+    }
+
+    public void setLignes(List<ResultatLigneDto> lignes) {
+        this.lignes = lignes;
+    }
+
+    public static class ResultatLigneDto {
+        private Long produitId;
+        private Integer quantite;
+        private String statut;
+
+        public Long getProduitId() {
+            return produitId;
+        }
+
+        public void setProduitId(Long produitId) {
+            this.produitId = produitId;
+        }
+
+        public Integer getQuantite() {
+            return quantite;
+        }
+
+        public void setQuantite(Integer quantite) {
+            this.quantite = quantite;
+        }
+
+        public String getStatut() {
+            return statut;
+        }
+
+        public void setStatut(String statut) {
+            this.statut = statut;
+        }
+    }
+}
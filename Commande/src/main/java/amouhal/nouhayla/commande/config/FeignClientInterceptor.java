@@ -2,6 +2,7 @@ package amouhal.nouhayla.commande.config;
 
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -10,12 +11,21 @@ import org.springframework.stereotype.Component;
 @Component
 public class FeignClientInterceptor implements RequestInterceptor {
 
+    @Autowired
+    private JetonService jetonService;
+
     @Override
     public void apply(RequestTemplate template) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof Jwt) {
             Jwt jwt = (Jwt) authentication.getPrincipal();
             template.header("Authorization", "Bearer " + jwt.getTokenValue());
+        } else {
+            // Appel sans utilisateur (tâche planifiée) : jeton du compte de service, s'il est configuré
+            String jeton = jetonService.jeton();
+            if (jeton != null) {
+                template.header("Authorization", "Bearer " + jeton);
+            }
         }
     }
 }
@@ -0,0 +1,28 @@
+package amouhal.nouhayla.commande.config;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+// Réponses du service Produit demandées en Smile (JSON binaire de Jackson) : plus petites et plus rapides
+// à décoder que le JSON texte. JSON reste accepté en second choix (service Produit sans Smile) ;
+// le décodeur choisit selon le Content-Type de la réponse.
+@Component
+public class FormatProduitInterceptor implements RequestInterceptor {
+
+    static final String SMILE = "application/x-jackson-smile";
+
+    // smile ou json
+    @Value("${produit.client.format:smile}")
+    private String format;
+
+    @Override
+    public void apply(RequestTemplate template) {
+        if ("smile".equalsIgnoreCase(format)) {
+            template.removeHeader(HttpHeaders.ACCEPT);
+            template.header(HttpHeaders.ACCEPT, SMILE + ", application/json;q=0.5");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package amouhal.nouhayla.commande.config;
+
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.service.StatistiquesCommandes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Historique de commandes synthétique pour les tests de charge (profil generateur), sur le catalogue produit
+// par GenerateurCatalogue du service Produit (produits 1..n, même graine) :
+// - popularité des produits selon une loi de Zipf, les plus vendus dispersés dans les ids ;
+// - activité des clients selon une loi de Zipf (quelques gros clients, beaucoup de commandes isolées) ;
+// - paniers de taille géométrique (moyenne panier-moyen, au plus panier-max), quantités surtout unitaires ;
+// - dates réparties sur la période qui précède fin, une petite part de commandes rejetées.
+// Écriture par lots JDBC (ids attribués directement, séquences repositionnées au-delà), une transaction par lot,
+// puis reconstruction des statistiques. Tout découle de la graine ; rien n'est généré s'il existe déjà des commandes.
+@Component
+@Profile("generateur")
+public class GenerateurCommandes implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerateurCommandes.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StatistiquesCommandes statistiquesCommandes;
+
+    // Taille du catalogue généré côté Produit
+    @Value("${commande.generateur.produits:1000000}")
+    private int nombreProduits;
+
+    @Value("${commande.generateur.clients:100000}")
+    private int nombreClients;
+
+    @Value("${commande.generateur.commandes:1000000}")
+    private int nombreCommandes;
+
+    @Value("${commande.generateur.graine:42}")
+    private long graine;
+
+    @Value("${commande.generateur.zipf-exposant-produits:1.0}")
+    private double exposantProduits;
+
+    @Value("${commande.generateur.zipf-exposant-clients:0.8}")
+    private double exposantClients;
+
+    @Value("${commande.generateur.panier-moyen:3}")
+    private double panierMoyen;
+
+    @Value("${commande.generateur.panier-max:20}")
+    private int panierMax;
+
+    @Value("${commande.generateur.taux-rejet:0.02}")
+    private double tauxRejet;
+
+    @Value("${commande.generateur.periode:365d}")
+    private Duration periode;
+
+    // Fin de la période (ex. 2026-01-01T00:00) ; vide : aujourd'hui à minuit
+    @Value("${commande.generateur.fin:}")
+    private String fin;
+
+    // Commandes par instruction groupée et par transaction
+    @Value("${commande.generateur.lot-taille:2000}")
+    private int lotTaille;
+
+    @Override
+    public void run(String... args) {
+        Long existantes = jdbcTemplate.queryForObject("select count(*) from commande", Long.class);
+        if (existantes != null && existantes > 0) {
+            logger.info("Générateur de commandes ignoré: {} commandes déjà présentes", existantes);
+            return;
+        }
+        logger.info("Génération de {} commandes pour {} clients sur {} produits (graine {})",
+                nombreCommandes, nombreClients, nombreProduits, graine);
+        long debut = System.nanoTime();
+        SplittableRandom aleatoire = new SplittableRandom(graine);
+        LoiZipf produits = new LoiZipf(nombreProduits, exposantProduits);
+        LoiZipf clients = new LoiZipf(nombreClients, exposantClients);
+        long pas = premierAvec(nombreProduits, (long) (nombreProduits * 0.618) + 1);
+        LocalDateTime finPeriode = fin.isBlank() ? LocalDate.now().atStartOfDay() : LocalDateTime.parse(fin);
+        long secondes = Math.max(1, periode.toSeconds());
+        // Taille de panier : 1 + loi géométrique de moyenne panierMoyen - 1
+        double logEchec = Math.log(1 - 1 / Math.max(1, panierMoyen));
+
+        List<Object[]> commandes = new ArrayList<>(lotTaille);
+        List<Object[]> lignes = new ArrayList<>(lotTaille * 4);
+        long[] panier = new long[panierMax];
+        long ligneId = 0;
+        for (long commandeId = 1; commandeId <= nombreCommandes; commandeId++) {
+            int taille = 1;
+            if (logEchec < 0) {
+                taille += (int) Math.min(panierMax - 1, Math.floor(Math.log(1 - aleatoire.nextDouble()) / logEchec));
+            }
+            int distincts = 0;
+            double montant = 0;
+            for (int i = 0; i < taille; i++) {
+                // Rang de popularité → id : permutation par un pas premier avec le nombre de produits
+                long produitId = (produits.tirer(aleatoire) - 1) * pas % nombreProduits + 1;
+                if (contient(panier, distincts, produitId)) {
+                    continue;
+                }
+                panier[distincts++] = produitId;
+                int quantite = aleatoire.nextInt(10) < 7 ? 1 : 2 + aleatoire.nextInt(4);
+                double prix = prix(graine, produitId);
+                montant += prix * quantite;
+                lignes.add(new Object[]{++ligneId, produitId, quantite, prix, commandeId});
+            }
+            String client = String.format("client%06d", clients.tirer(aleatoire));
+            LocalDateTime date = finPeriode.minusSeconds(1 + aleatoire.nextLong(secondes));
+            boolean rejetee = aleatoire.nextDouble() < tauxRejet;
+            commandes.add(new Object[]{commandeId, Timestamp.valueOf(date),
+                    rejetee ? Commande.REJETEE : Commande.EN_COURS, Math.round(montant * 100) / 100.0, client,
+                    rejetee ? "Stock insuffisant pour le produit " + panier[0] : null});
+            if (commandes.size() == lotTaille) {
+                ecrire(commandes, lignes);
+                commandes.clear();
+                lignes.clear();
+            }
+        }
+        if (!commandes.isEmpty()) {
+            ecrire(commandes, lignes);
+        }
+        // Au-delà des ids écrits, bloc d'allocation groupée compris (allocationSize = 50)
+        jdbcTemplate.execute("alter sequence commande_seq restart with " + (nombreCommandes + 100));
+        jdbcTemplate.execute("alter sequence ligne_commande_seq restart with " + (ligneId + 100));
+        logger.info("{} commandes et {} lignes générées en {} ms", nombreCommandes, ligneId,
+                (System.nanoTime() - debut) / 1_000_000);
+        statistiquesCommandes.reconstruire();
+    }
+
+    // Même formule que GenerateurCatalogue (service Produit) : le prix d'un produit ne dépend que de (graine, id)
+    static double prix(long graine, long produitId) {
+        SplittableRandom aleatoire = new SplittableRandom(graine * 1_000_003L + produitId);
+        return Math.round(5 * Math.pow(400, aleatoire.nextDouble()) * 100) / 100.0;
+    }
+
+    private void ecrire(List<Object[]> commandes, List<Object[]> lignes) {
+        transactionTemplate.executeWithoutResult(statut -> {
+            jdbcTemplate.batchUpdate("insert into commande (id, date_commande, statut, montant_total, client_username, motif_rejet)"
+                    + " values (?, ?, ?, ?, ?, ?)", commandes);
+            jdbcTemplate.batchUpdate("insert into ligne_commande (id, produit_id, quantite, prix, commande_id)"
+                    + " values (?, ?, ?, ?, ?)", lignes);
+        });
+    }
+
+    private static boolean contient(long[] panier, int taille, long produitId) {
+        for (int i = 0; i < taille; i++) {
+            if (panier[i] == produitId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Premier entier à partir de candidat sans diviseur commun avec n
+    private static long premierAvec(long n, long candidat) {
+        while (pgcd(n, candidat) != 1) {
+            candidat++;
+        }
+        return candidat;
+    }
+
+    private static long pgcd(long a, long b) {
+        return b == 0 ? a : pgcd(b, a % b);
+    }
+}
@@ -0,0 +1,72 @@
+package amouhal.nouhayla.commande.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+
+import java.time.Instant;
+import java.util.Map;
+
+// Jeton du compte de service de Commande (client_credentials Keycloak), pour les appels au service Produit
+// faits sans utilisateur : tâches planifiées comme le rejet des commandes abandonnées.
+// Désactivé sans client-id ; le compte de service doit porter le rôle ADMIN dans le realm.
+@Component
+public class JetonService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JetonService.class);
+
+    // Marge avant l'expiration à partir de laquelle un nouveau jeton est demandé
+    private static final long MARGE_SECONDES = 30;
+
+    @Value("${commande.service.token-uri:http://localhost:8180/realms/microservices-app/protocol/openid-connect/token}")
+    private String tokenUri;
+
+    @Value("${commande.service.client-id:}")
+    private String clientId;
+
+    @Value("${commande.service.client-secret:}")
+    private String clientSecret;
+
+    private final RestClient restClient = RestClient.create();
+
+    private String jeton;
+    private Instant expiration = Instant.EPOCH;
+
+    // null si aucun compte de service n'est configuré ou si Keycloak ne répond pas
+    public synchronized String jeton() {
+        if (clientId == null || clientId.isBlank()) {
+            return null;
+        }
+        if (jeton != null && Instant.now().isBefore(expiration)) {
+            return jeton;
+        }
+        MultiValueMap<String, String> formulaire = new LinkedMultiValueMap<>();
+        formulaire.add("grant_type", "client_credentials");
+        formulaire.add("client_id", clientId);
+        formulaire.add("client_secret", clientSecret);
+        try {
+            Map<?, ?> reponse = restClient.post()
+                    .uri(tokenUri)
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                    .body(formulaire)
+                    .retrieve()
+                    .body(Map.class);
+            if (reponse == null || reponse.get("access_token") == null) {
+                logger.error("Réponse sans jeton pour le compte de service {}", clientId);
+                return null;
+            }
+            long duree = reponse.get("expires_in") instanceof Number n ? n.longValue() : 60;
+            jeton = reponse.get("access_token").toString();
+            expiration = Instant.now().plusSeconds(Math.max(0, duree - MARGE_SECONDES));
+            return jeton;
+        } catch (Exception e) {
+            logger.error("Impossible d'obtenir le jeton du compte de service {}: {}", clientId, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package amouhal.nouhayla.commande.config;
+
+import amouhal.nouhayla.commande.journal.JournalEvenements;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class JournalConfig {
+
+    // Journal des événements de commande, lisible par les autres services de la machine (JournalEvenements.ouvrirEnLecture)
+    @Bean(destroyMethod = "close")
+    public JournalEvenements journalEvenements(@Value("${commande.evenements.repertoire:donnees/evenements}") Path repertoire,
+                                               @Value("${commande.evenements.segment-taille:64MB}") DataSize tailleSegment,
+                                               @Value("${commande.evenements.segments-max:16}") int segmentsMax) throws IOException {
+        return JournalEvenements.ouvrir(repertoire, (int) tailleSegment.toBytes(), segmentsMax);
+    }
+}
@@ -0,0 +1,28 @@
+package amouhal.nouhayla.commande.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class VerificationConfig {
+
+    // Pool partagé par toutes les commandes en mode commande.verification.mode=parallele.
+    // Le SecurityContext de l'appelant est recopié dans chaque tâche soumise.
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService verificationExecutor(@Value("${commande.verification.pool-taille:32}") int taille) {
+        AtomicInteger compteur = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "verification-produit-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new DelegatingSecurityContextExecutorService(Executors.newFixedThreadPool(taille, threadFactory));
+    }
+}
@@ -1,39 +1,93 @@
 package amouhal.nouhayla.commande.controller;
+import amouhal.nouhayla.commande.client.ProduitIndisponibleException;
+import amouhal.nouhayla.commande.dto.CommandeResponse;
 import amouhal.nouhayla.commande.dto.CreateCommandeRequest;
+import amouhal.nouhayla.commande.dto.PageCommandes;
 import amouhal.nouhayla.commande.entity.Commande;
 import amouhal.nouhayla.commande.entity.LigneCommande;
 import amouhal.nouhayla.commande.service.CommandeService;
+import amouhal.nouhayla.commande.service.IdempotenceCommandes;
+import amouhal.nouhayla.commande.service.ImportCommandes;
+import amouhal.nouhayla.commande.service.ReceptionCommandes;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @RestController
-@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:8888"})
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:8888"}, exposedHeaders = {CommandeController.CURSEUR_SUIVANT, HttpHeaders.LOCATION, "Preference-Applied",
+        CommandeController.IDEMPOTENT_REPLAYED})
 @RequestMapping("/api/commandes")
 public class CommandeController {
 
     private static final Logger logger = LoggerFactory.getLogger(CommandeController.class);
 
+    // En-tête portant le curseur de la page suivante ; absent sur la dernière page
+    static final String CURSEUR_SUIVANT = "X-Curseur-Suivant";
+
+    static final String NDJSON = "application/x-ndjson";
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     @Autowired
     private CommandeService commandeService;
 
+    @Autowired
+    private ReceptionCommandes receptionCommandes;
+
+    @Autowired
+    private IdempotenceCommandes idempotenceCommandes;
+
+    @Autowired
+    private ImportCommandes importCommandes;
+
     // CLIENT: Créer une commande
     @PreAuthorize("hasRole('CLIENT')")
     @PostMapping
-    public ResponseEntity<Commande> createCommande(@RequestBody CreateCommandeRequest request,
+    public ResponseEntity<CommandeResponse> createCommande(@RequestBody CreateCommandeRequest request,
+                                                   @RequestHeader(value = "Prefer", required = false) String prefer,
+                                                   @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String cleIdempotence,
                                                    @AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getClaimAsString("preferred_username");
         logger.info("Utilisateur {} crée une nouvelle commande", username);
 
+        if (cleIdempotence == null || cleIdempotence.isBlank()) {
+            return creer(request, prefer, username);
+        }
+        if (cleIdempotence.length() > 255) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Les nouvelles tentatives d'un client (même clé) reçoivent la réponse de la première
+        try {
+            return idempotenceCommandes.executer(username, cleIdempotence, empreinte(request, prefer),
+                    () -> creer(request, prefer, username),
+                    reponse -> reponse.getStatusCode().is2xxSuccessful() && reponse.getBody() != null
+                            ? new IdempotenceCommandes.Resultat(reponse.getBody().getId(), reponse.getStatusCode().value(), null)
+                            : null,
+                    this::rejouer);
+        } catch (IdempotenceCommandes.ConflitException e) {
+            logger.warn("Utilisateur {}, clé {}: {}", username, cleIdempotence, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    private ResponseEntity<CommandeResponse> creer(CreateCommandeRequest request, String prefer, String username) {
         try {
             // Créer l'objet Commande
             Commande commande = new Commande();
@@ -54,43 +108,130 @@ public class CommandeController {
             commande.setLignes(lignes);
 
             logger.info("Commande avec {} lignes créée par {}", lignes.size(), username);
+
+            // Réception asynchrone à la demande du client : 202 puis suivi via GET /api/commandes/{id}
+            if (receptionCommandes.isActif() && prefer != null && prefer.toLowerCase().contains("respond-async")) {
+                Commande enAttente = receptionCommandes.soumettre(commande);
+                if (enAttente == null) {
+                    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build();
+                }
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/commandes/" + enAttente.getId()))
+                        .header("Preference-Applied", "respond-async")
+                        .body(CommandeResponse.depuis(enAttente));
+            }
+
             Commande savedCommande = commandeService.createCommande(commande);
             logger.info("Commande {} créée avec succès par {}", savedCommande.getId(), username);
-            return ResponseEntity.ok(savedCommande);
+            return ResponseEntity.ok(CommandeResponse.depuis(savedCommande));
+        } catch (ProduitIndisponibleException e) {
+            // Service Produit en difficulté : refus immédiat, le client peut réessayer plus tard
+            logger.warn("Commande de {} refusée: {}", username, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
         } catch (Exception e) {
             logger.error("Erreur lors de la création de commande par {}: {}", username, e.getMessage(), e);
             return ResponseEntity.badRequest().build();
         }
     }
 
+    private ResponseEntity<CommandeResponse> rejouer(IdempotenceCommandes.Resultat resultat) {
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.status(resultat.statutHttp())
+                .header(IDEMPOTENT_REPLAYED, "true");
+        if (resultat.statutHttp() == HttpStatus.ACCEPTED.value()) {
+            reponse.location(URI.create("/api/commandes/" + resultat.commandeId()))
+                    .header("Preference-Applied", "respond-async");
+        }
+        return reponse.body(commandeService.getCommande(resultat.commandeId()).orElse(null));
+    }
+
+    // Contenu significatif de la requête : une même clé ne peut pas servir pour une autre commande
+    private static String empreinte(CreateCommandeRequest request, String prefer) {
+        StringBuilder contenu = new StringBuilder(prefer == null ? "" : prefer.toLowerCase());
+        if (request.getLignes() != null) {
+            for (CreateCommandeRequest.LigneCommandeDto ligne : request.getLignes()) {
+                contenu.append('|').append(ligne.getProduitId()).append(':').append(ligne.getQuantite());
+            }
+        }
+        return IdempotenceCommandes.empreinte(contenu.toString());
+    }
+
+    // CLIENT (partenaires B2B): Importer des commandes en masse, NDJSON ou CSV ; un résultat NDJSON par commande
+    @PreAuthorize("hasRole('CLIENT')")
+    @PostMapping(value = "/import", consumes = {NDJSON, "text/csv"}, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> importerCommandes(HttpServletRequest request,
+                                                                   @AuthenticationPrincipal Jwt jwt) {
+        String username = jwt.getClaimAsString("preferred_username");
+        ImportCommandes.Format format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.valueOf("text/csv"))
+                ? ImportCommandes.Format.CSV
+                : ImportCommandes.Format.NDJSON;
+        logger.info("Utilisateur {} importe des commandes ({})", username, format);
+        try {
+            ImportCommandes.ImportEnCours importEnCours = importCommandes.demarrer(request.getInputStream(), format, username);
+            if (importEnCours == null) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "60").build();
+            }
+            // Le fichier est lu pendant l'envoi de la réponse : résultats reçus lot par lot, à mesure des validations
+            StreamingResponseBody resultats = importEnCours::traiter;
+            return ResponseEntity.ok()
+                    .contentType(MediaType.valueOf(NDJSON))
+                    .body(resultats);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Import refusé pour {}: {}", username, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            logger.error("Erreur de lecture de l'import de {}: {}", username, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // CLIENT: Voir ses propres commandes
     @PreAuthorize("hasRole('CLIENT')")
     @GetMapping
-    public ResponseEntity<List<Commande>> getMesCommandes(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<List<CommandeResponse>> getMesCommandes(@RequestParam(required = false) String apres,
+                                                                  @RequestParam(required = false) Integer taille,
+                                                                  @AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getClaimAsString("preferred_username");
         logger.info("Utilisateur {} consulte ses commandes", username);
-        List<Commande> mesCommandes = commandeService.getCommandesByClient(username);
-        return ResponseEntity.ok(mesCommandes);
+        try {
+            return reponsePage(commandeService.getCommandesByClient(username, apres, taille));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Utilisateur {}: {}", username, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // ADMIN: Voir toutes les commandes
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/all")
-    public ResponseEntity<List<Commande>> getAllCommandes(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<List<CommandeResponse>> getAllCommandes(@RequestParam(required = false) String apres,
+                                                                  @RequestParam(required = false) Integer taille,
+                                                                  @AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getClaimAsString("preferred_username");
         logger.info("Admin {} consulte toutes les commandes", username);
-        List<Commande> allCommandes = commandeService.getAllCommandes();
-        return ResponseEntity.ok(allCommandes);
+        try {
+            return reponsePage(commandeService.getAllCommandes(apres, taille));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Admin {}: {}", username, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // Tous: Voir une commande par son id
     @PreAuthorize("hasAnyRole('CLIENT', 'ADMIN')")
     @GetMapping("/{id}")
-    public ResponseEntity<Commande> getCommande(@PathVariable Long id,
-                                                @AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<CommandeResponse> getCommande(@PathVariable Long id,
+                                                        @AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getClaimAsString("preferred_username");
         logger.info("Utilisateur {} consulte la commande {}", username, id);
-        Optional<Commande> commande = commandeService.getCommande(id);
+        Optional<CommandeResponse> commande = commandeService.getCommande(id);
         return commande.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
+
+    private ResponseEntity<List<CommandeResponse>> reponsePage(PageCommandes page) {
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok();
+        if (page.getCurseurSuivant() != null) {
+            reponse.header(CURSEUR_SUIVANT, page.getCurseurSuivant());
+        }
+        return reponse.body(page.getCommandes());
+    }
 }
\ No newline at end of file
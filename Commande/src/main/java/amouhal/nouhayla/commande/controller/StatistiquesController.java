@@ -0,0 +1,79 @@
+package amouhal.nouhayla.commande.controller;
+
+import amouhal.nouhayla.commande.entity.StatistiqueClient;
+import amouhal.nouhayla.commande.entity.StatistiqueJour;
+import amouhal.nouhayla.commande.entity.StatistiqueProduit;
+import amouhal.nouhayla.commande.service.StatistiquesCommandes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+// Tableaux de bord administrateur : lecture des statistiques tenues à jour, sans parcourir les commandes
+@RestController
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:8888"})
+@RequestMapping("/api/commandes/statistiques")
+@PreAuthorize("hasRole('ADMIN')")
+public class StatistiquesController {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatistiquesController.class);
+
+    // Période maximale demandée en une fois
+    private static final long JOURS_MAX = 366;
+
+    @Autowired
+    private StatistiquesCommandes statistiquesCommandes;
+
+    // Totaux par jour, du 30e jour précédent à aujourd'hui par défaut
+    @GetMapping("/jours")
+    public ResponseEntity<List<StatistiqueJour>> getJours(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate du,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate au) {
+        LocalDate fin = au != null ? au : LocalDate.now();
+        LocalDate debut = du != null ? du : fin.minusDays(30);
+        if (debut.isAfter(fin) || ChronoUnit.DAYS.between(debut, fin) >= JOURS_MAX) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(statistiquesCommandes.getJours(debut, fin));
+    }
+
+    @GetMapping("/clients")
+    public ResponseEntity<List<StatistiqueClient>> getMeilleursClients(@RequestParam(defaultValue = "10") int taille) {
+        return ResponseEntity.ok(statistiquesCommandes.getMeilleursClients(taille));
+    }
+
+    @GetMapping("/clients/{username}")
+    public ResponseEntity<StatistiqueClient> getClient(@PathVariable String username) {
+        return statistiquesCommandes.getClient(username)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/produits")
+    public ResponseEntity<List<StatistiqueProduit>> getProduitsLesPlusVendus(@RequestParam(defaultValue = "10") int taille) {
+        return ResponseEntity.ok(statistiquesCommandes.getProduitsLesPlusVendus(taille));
+    }
+
+    @GetMapping("/produits/{produitId}")
+    public ResponseEntity<StatistiqueProduit> getProduit(@PathVariable Long produitId) {
+        return statistiquesCommandes.getProduit(produitId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Recalcul complet depuis les commandes (reprise de l'historique)
+    @PostMapping("/reconstruction")
+    public ResponseEntity<Void> reconstruire(@AuthenticationPrincipal Jwt jwt) {
+        logger.info("Admin {} lance la reconstruction des statistiques", jwt.getClaimAsString("preferred_username"));
+        statistiquesCommandes.reconstruire();
+        return ResponseEntity.noContent().build();
+    }
+}
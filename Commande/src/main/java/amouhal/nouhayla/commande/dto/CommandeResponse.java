@@ -0,0 +1,103 @@
+package amouhal.nouhayla.commande.dto;
+
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.LigneCommande;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Vue en lecture seule d'une commande : même JSON que l'entité, sans chargement paresseux
+public class CommandeResponse {
+    private Long id;
+    private LocalDateTime dateCommande;
+    private String statut;
+    private Double montantTotal;
+    private String clientUsername;
+    // Renseigné seulement pour une commande REJETEE
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String motifRejet;
+    private List<LigneCommandeResponse> lignes = new ArrayList<>();
+
+    public CommandeResponse() {}
+
+    // Utilisé par les projections JPQL (select new ...)
+    public CommandeResponse(Long id, LocalDateTime dateCommande, String statut, Double montantTotal, String clientUsername,
+                            String motifRejet) {
+        this.id = id;
+        this.dateCommande = dateCommande;
+        this.statut = statut;
+        this.montantTotal = montantTotal;
+        this.clientUsername = clientUsername;
+        this.motifRejet = motifRejet;
+    }
+
+    public static CommandeResponse depuis(Commande commande) {
+        CommandeResponse response = new CommandeResponse(commande.getId(), commande.getDateCommande(),
+                commande.getStatut(), commande.getMontantTotal(), commande.getClientUsername(), commande.getMotifRejet());
+        if (commande.getLignes() != null) {
+            for (LigneCommande ligne : commande.getLignes()) {
+                response.getLignes().add(new LigneCommandeResponse(commande.getId(), ligne.getId(),
+                        ligne.getProduitId(), ligne.getQuantite(), ligne.getPrix()));
+            }
+        }
+        return response;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getDateCommande() {
+        return dateCommande;
+    }
+
+    public void setDateCommande(LocalDateTime dateCommande) {
+        this.dateCommande = dateCommande;
+    }
+
+    public String getStatut() {
+        return statut;
+    }
+
+    public void setStatut(String statut) {
+        this.statut = statut;
+    }
+
+    public Double getMontantTotal() {
+        return montantTotal;
+    }
+
+    public void setMontantTotal(Double montantTotal) {
+        this.montantTotal = montantTotal;
+    }
+
+    public String getClientUsername() {
+        return clientUsername;
+    }
+
+    public void setClientUsername(String clientUsername) {
+        this.clientUsername = clientUsername;
+    }
+
+    public String getMotifRejet() {
+        return motifRejet;
+    }
+
+    public void setMotifRejet(String motifRejet) {
+        this.motifRejet = motifRejet;
+    }
+
+    public List<LigneCommandeResponse> getLignes() {
+        return lignes;
+    }
+
+    public void setLignes(List<LigneCommandeResponse> lignes) {
+        this.lignes = lignes;
+    }
+}
@@ -0,0 +1,30 @@
+package amouhal.nouhayla.commande.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position dans une liste de commandes triée par (dateCommande desc, id desc), encodée de façon opaque
+public record CurseurCommande(LocalDateTime dateCommande, Long id) {
+
+    public static CurseurCommande apres(CommandeResponse commande) {
+        return new CurseurCommande(commande.getDateCommande(), commande.getId());
+    }
+
+    public String encoder() {
+        String brut = dateCommande + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CurseurCommande decoder(String valeur) {
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(valeur), StandardCharsets.UTF_8);
+            int separateur = brut.lastIndexOf('|');
+            return new CurseurCommande(LocalDateTime.parse(brut.substring(0, separateur)),
+                    Long.parseLong(brut.substring(separateur + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide: " + valeur);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package amouhal.nouhayla.commande.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public class LigneCommandeResponse {
+    @JsonIgnore  // Sert uniquement à rattacher la ligne à sa commande
+    private Long commandeId;
+    private Long id;
+    private Long produitId;
+    private Integer quantite;
+    private Double prix;
+
+    public LigneCommandeResponse() {}
+
+    // Utilisé par les projections JPQL (select new ...)
+    public LigneCommandeResponse(Long commandeId, Long id, Long produitId, Integer quantite, Double prix) {
+        this.commandeId = commandeId;
+        this.id = id;
+        this.produitId = produitId;
+        this.quantite = quantite;
+        this.prix = prix;
+    }
+
+    public Long getCommandeId() {
+        return commandeId;
+    }
+
+    public void setCommandeId(Long commandeId) {
+        this.commandeId = commandeId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getProduitId() {
+        return produitId;
+    }
+
+    public void setProduitId(Long produitId) {
+        this.produitId = produitId;
+    }
+
+    public Integer getQuantite() {
+        return quantite;
+    }
+
+    public void setQuantite(Integer quantite) {
+        this.quantite = quantite;
+    }
+
+    public Double getPrix() {
+        return prix;
+    }
+
+    public void setPrix(Double prix) {
+        this.prix = prix;
+    }
+}
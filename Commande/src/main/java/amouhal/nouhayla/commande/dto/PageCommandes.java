@@ -0,0 +1,22 @@
+package amouhal.nouhayla.commande.dto;
+
+import java.util.List;
+
+public class PageCommandes {
+    private final List<CommandeResponse> commandes;
+    // null sur la dernière page
+    private final String curseurSuivant;
+
+    public PageCommandes(List<CommandeResponse> commandes, String curseurSuivant) {
+        this.commandes = commandes;
+        this.curseurSuivant = curseurSuivant;
+    }
+
+    public List<CommandeResponse> getCommandes() {
+        return commandes;
+    }
+
+    public String getCurseurSuivant() {
+        return curseurSuivant;
+    }
+}
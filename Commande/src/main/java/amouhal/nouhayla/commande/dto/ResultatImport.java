@@ -0,0 +1,68 @@
+package amouhal.nouhayla.commande.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Une ligne du flux de résultats d'un import : une commande du fichier, créée ou rejetée
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResultatImport {
+    public static final String CREEE = "CREEE";
+    public static final String REJETEE = "REJETEE";
+
+    // Rang de la commande dans le fichier (à partir de 1)
+    private int numero;
+    // Référence fournie par le client (champ "reference" en NDJSON, colonne "commande" en CSV)
+    private String reference;
+    private String statut;
+    private Long commandeId;
+    private String motif;
+
+    public ResultatImport() {}
+
+    public ResultatImport(int numero, String reference, String statut, Long commandeId, String motif) {
+        this.numero = numero;
+        this.reference = reference;
+        this.statut = statut;
+        this.commandeId = commandeId;
+        this.motif = motif;
+    }
+
+    public int getNumero() {
+        return numero;
+    }
+
+    public void setNumero(int numero) {
+        this.numero = numero;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    public String getStatut() {
+        return statut;
+    }
+
+    public void setStatut(String statut) {
+        this.statut = statut;
+    }
+
+    public Long getCommandeId() {
+        return commandeId;
+    }
+
+    public void setCommandeId(Long commandeId) {
+        this.commandeId = commandeId;
+    }
+
+    public String getMotif() {
+        return motif;
+    }
+
+    public void setMotif(String motif) {
+        this.motif = motif;
+    }
+}
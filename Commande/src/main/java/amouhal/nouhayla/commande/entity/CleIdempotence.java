@@ -0,0 +1,51 @@
+package amouhal.nouhayla.commande.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Résultat mémorisé d'une création de commande pour un en-tête Idempotency-Key, par client.
+// Prend le relais du cache mémoire pour les clés plus anciennes que sa durée de vie.
+// Réservée avant la création (commandeId null), associée à la commande dans la transaction qui l'enregistre.
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cle_idempotence_client_cle", columnNames = {"clientUsername", "cle"}),
+        indexes = @Index(name = "idx_cle_idempotence_date", columnList = "dateCreation"))
+public class CleIdempotence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cle_idempotence_seq")
+    @SequenceGenerator(name = "cle_idempotence_seq", sequenceName = "cle_idempotence_seq", allocationSize = 50)
+    private Long id;
+
+    private String clientUsername;
+
+    private String cle;
+
+    // Empreinte SHA-256 du contenu de la requête : une clé réutilisée pour une autre commande est refusée
+    private String empreinte;
+
+    private Long commandeId;
+
+    // Null tant que la réponse n'est pas mémorisée
+    private Integer statutHttp;
+
+    private LocalDateTime dateCreation;
+
+    public CleIdempotence() {}
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getClientUsername() { return clientUsername; }
+    public void setClientUsername(String clientUsername) { this.clientUsername = clientUsername; }
+    public String getCle() { return cle; }
+    public void setCle(String cle) { this.cle = cle; }
+    public String getEmpreinte() { return empreinte; }
+    public void setEmpreinte(String empreinte) { this.empreinte = empreinte; }
+    public Long getCommandeId() { return commandeId; }
+    public void setCommandeId(Long commandeId) { this.commandeId = commandeId; }
+    public Integer getStatutHttp() { return statutHttp; }
+    public void setStatutHttp(Integer statutHttp) { this.statutHttp = statutHttp; }
+    public LocalDateTime getDateCreation() { return dateCreation; }
+    public void setDateCreation(LocalDateTime dateCreation) { this.dateCreation = dateCreation; }
+}
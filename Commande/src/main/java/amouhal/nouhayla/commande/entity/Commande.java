@@ -7,10 +7,22 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+        // Pagination par clé des commandes d'un client et de toutes les commandes
+        @Index(name = "idx_commande_client_date_id", columnList = "clientUsername, dateCommande, id"),
+        @Index(name = "idx_commande_date_id", columnList = "dateCommande, id")
+})
 public class Commande {
 
+    // Cycle de vie : EN_ATTENTE (réception asynchrone) puis EN_COURS (stock réservé) ou REJETEE (voir motifRejet)
+    public static final String EN_ATTENTE = "EN_ATTENTE";
+    public static final String EN_COURS = "EN_COURS";
+    public static final String REJETEE = "REJETEE";
+
+    // Séquence à allocation groupée : l'id est connu sans INSERT, ce qui permet à Hibernate de regrouper les insertions
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "commande_seq")
+    @SequenceGenerator(name = "commande_seq", sequenceName = "commande_seq", allocationSize = 50)
     private Long id;
 
     private LocalDateTime dateCommande;
@@ -24,6 +36,8 @@ public class Commande {
 
     private String clientUsername;
 
+    private String motifRejet;
+
     public Commande() {}
 
     // Getters and setters...
@@ -39,4 +53,6 @@ public class Commande {
     public void setLignes(List<LigneCommande> lignes) { this.lignes = lignes; }
     public String getClientUsername() { return clientUsername; }
     public void setClientUsername(String clientUsername) { this.clientUsername = clientUsername; }
+    public String getMotifRejet() { return motifRejet; }
+    public void setMotifRejet(String motifRejet) { this.motifRejet = motifRejet; }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package amouhal.nouhayla.commande.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// Commande terminée déplacée hors des tables Commande/LigneCommande par ArchivageCommandes.
+// Ligne écrite une seule fois (jamais modifiée) : la commande et ses lignes en JSON compressé (gzip).
+@Entity
+@Table(indexes = {
+        // Pagination par clé, fusionnée avec celle des commandes actives (mêmes colonnes que Commande)
+        @Index(name = "idx_archive_client_date_id", columnList = "clientUsername, dateCommande, id"),
+        @Index(name = "idx_archive_date_id", columnList = "dateCommande, id")
+})
+public class CommandeArchivee implements Persistable<Long> {
+
+    // Même id que la commande d'origine
+    @Id
+    private Long id;
+
+    private String clientUsername;
+
+    private LocalDateTime dateCommande;
+
+    private LocalDateTime dateArchivage;
+
+    @Column(length = 10000000)
+    private byte[] contenu;
+
+    // Toujours une insertion : pas de lecture préalable de l'id par save()
+    @Transient
+    private boolean nouvelle = true;
+
+    public CommandeArchivee() {}
+
+    @PostLoad
+    void chargee() {
+        nouvelle = false;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nouvelle;
+    }
+
+    // Getters and setters
+    @Override
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getClientUsername() { return clientUsername; }
+    public void setClientUsername(String clientUsername) { this.clientUsername = clientUsername; }
+    public LocalDateTime getDateCommande() { return dateCommande; }
+    public void setDateCommande(LocalDateTime dateCommande) { this.dateCommande = dateCommande; }
+    public LocalDateTime getDateArchivage() { return dateArchivage; }
+    public void setDateArchivage(LocalDateTime dateArchivage) { this.dateArchivage = dateArchivage; }
+    public byte[] getContenu() { return contenu; }
+    public void setContenu(byte[] contenu) { this.contenu = contenu; }
+}
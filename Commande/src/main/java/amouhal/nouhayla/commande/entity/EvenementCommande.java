@@ -0,0 +1,43 @@
+package amouhal.nouhayla.commande.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Boîte d'envoi (outbox) : événement écrit dans la transaction qui crée ou modifie la commande,
+// puis recopié dans le journal d'événements par RelaisEvenements et supprimé.
+@Entity
+public class EvenementCommande {
+
+    public static final String CREEE = "COMMANDE_CREEE";
+    public static final String STATUT_MODIFIE = "COMMANDE_STATUT_MODIFIE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "evenement_commande_seq")
+    @SequenceGenerator(name = "evenement_commande_seq", sequenceName = "evenement_commande_seq", allocationSize = 50)
+    private Long id;
+
+    private String type;
+
+    private Long commandeId;
+
+    private LocalDateTime dateCreation;
+
+    // Commande au moment de l'événement (JSON de CommandeResponse)
+    @Column(length = 1000000)
+    private String contenu;
+
+    public EvenementCommande() {}
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public Long getCommandeId() { return commandeId; }
+    public void setCommandeId(Long commandeId) { this.commandeId = commandeId; }
+    public LocalDateTime getDateCreation() { return dateCreation; }
+    public void setDateCreation(LocalDateTime dateCreation) { this.dateCreation = dateCreation; }
+    public String getContenu() { return contenu; }
+    public void setContenu(String contenu) { this.contenu = contenu; }
+}
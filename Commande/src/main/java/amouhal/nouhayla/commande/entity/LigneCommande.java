@@ -4,10 +4,12 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 @Entity
+@Table(indexes = @Index(name = "idx_ligne_commande_commande", columnList = "commande_id"))
 public class LigneCommande {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ligne_commande_seq")
+    @SequenceGenerator(name = "ligne_commande_seq", sequenceName = "ligne_commande_seq", allocationSize = 50)
     private Long id;
 
     private Long produitId;
@@ -0,0 +1,34 @@
+package amouhal.nouhayla.commande.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+// Commandes acceptées (EN_COURS) et chiffre d'affaires d'un client, tenus à jour à chaque commande
+@Entity
+@Table(indexes = @Index(name = "idx_statistique_client_ca", columnList = "chiffreAffaires"))
+public class StatistiqueClient {
+
+    @Id
+    private String clientUsername;
+
+    private Long nombreCommandes;
+    private Double chiffreAffaires;
+
+    public StatistiqueClient() {}
+
+    public StatistiqueClient(String clientUsername, Long nombreCommandes, Double chiffreAffaires) {
+        this.clientUsername = clientUsername;
+        this.nombreCommandes = nombreCommandes;
+        this.chiffreAffaires = chiffreAffaires;
+    }
+
+    // Getters and setters
+    public String getClientUsername() { return clientUsername; }
+    public void setClientUsername(String clientUsername) { this.clientUsername = clientUsername; }
+    public Long getNombreCommandes() { return nombreCommandes; }
+    public void setNombreCommandes(Long nombreCommandes) { this.nombreCommandes = nombreCommandes; }
+    public Double getChiffreAffaires() { return chiffreAffaires; }
+    public void setChiffreAffaires(Double chiffreAffaires) { this.chiffreAffaires = chiffreAffaires; }
+}
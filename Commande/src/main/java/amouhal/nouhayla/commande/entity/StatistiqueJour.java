@@ -0,0 +1,78 @@
+package amouhal.nouhayla.commande.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+// Commandes acceptées (EN_COURS) et chiffre d'affaires d'une journée, tenus à jour à chaque commande.
+// Chaque jour est réparti sur plusieurs lignes (tranches) : les commandes du jour incrémentent une tranche
+// au hasard au lieu de toutes attendre le verrou d'une même ligne ; les totaux du jour en sont la somme.
+@Entity
+@IdClass(StatistiqueJour.Cle.class)
+public class StatistiqueJour {
+
+    @Id
+    private LocalDate jour;
+
+    @Id
+    private int tranche;
+
+    private Long nombreCommandes;
+    private Double chiffreAffaires;
+
+    public StatistiqueJour() {}
+
+    // Totaux d'un jour (somme des tranches), ou tranche 0
+    public StatistiqueJour(LocalDate jour, Long nombreCommandes, Double chiffreAffaires) {
+        this(jour, 0, nombreCommandes, chiffreAffaires);
+    }
+
+    public StatistiqueJour(LocalDate jour, int tranche, Long nombreCommandes, Double chiffreAffaires) {
+        this.jour = jour;
+        this.tranche = tranche;
+        this.nombreCommandes = nombreCommandes;
+        this.chiffreAffaires = chiffreAffaires;
+    }
+
+    // Getters and setters
+    public LocalDate getJour() { return jour; }
+    public void setJour(LocalDate jour) { this.jour = jour; }
+    @JsonIgnore
+    public int getTranche() { return tranche; }
+    public void setTranche(int tranche) { this.tranche = tranche; }
+    public Long getNombreCommandes() { return nombreCommandes; }
+    public void setNombreCommandes(Long nombreCommandes) { this.nombreCommandes = nombreCommandes; }
+    public Double getChiffreAffaires() { return chiffreAffaires; }
+    public void setChiffreAffaires(Double chiffreAffaires) { this.chiffreAffaires = chiffreAffaires; }
+
+    public static class Cle implements Serializable {
+
+        private LocalDate jour;
+        private int tranche;
+
+        public Cle() {}
+
+        public Cle(LocalDate jour, int tranche) {
+            this.jour = jour;
+            this.tranche = tranche;
+        }
+
+        public LocalDate getJour() { return jour; }
+        public int getTranche() { return tranche; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Cle cle && tranche == cle.tranche && Objects.equals(jour, cle.jour);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jour, tranche);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package amouhal.nouhayla.commande.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+// Quantité vendue et chiffre d'affaires d'un produit sur les commandes acceptées (EN_COURS)
+@Entity
+@Table(indexes = @Index(name = "idx_statistique_produit_quantite", columnList = "quantiteVendue"))
+public class StatistiqueProduit {
+
+    @Id
+    private Long produitId;
+
+    private Long quantiteVendue;
+    private Double chiffreAffaires;
+
+    public StatistiqueProduit() {}
+
+    public StatistiqueProduit(Long produitId, Long quantiteVendue, Double chiffreAffaires) {
+        this.produitId = produitId;
+        this.quantiteVendue = quantiteVendue;
+        this.chiffreAffaires = chiffreAffaires;
+    }
+
+    // Getters and setters
+    public Long getProduitId() { return produitId; }
+    public void setProduitId(Long produitId) { this.produitId = produitId; }
+    public Long getQuantiteVendue() { return quantiteVendue; }
+    public void setQuantiteVendue(Long quantiteVendue) { this.quantiteVendue = quantiteVendue; }
+    public Double getChiffreAffaires() { return chiffreAffaires; }
+    public void setChiffreAffaires(Double chiffreAffaires) { this.chiffreAffaires = chiffreAffaires; }
+}
@@ -0,0 +1,325 @@
+package amouhal.nouhayla.commande.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Journal local en ajout seul, découpé en segments de taille fixe projetés en mémoire (mmap).
+// Chaque enregistrement reçoit un offset croissant ; les consommateurs lisent à partir d'un offset
+// et mémorisent leur position (offsets/<consommateur>), sans courtier de messages.
+// Format d'un segment, fichier <offset du premier enregistrement sur 20 chiffres>.log :
+//   [taille int][crc32 int][contenu], taille > 0 ;
+//   taille 0 : fin provisoire, rien n'est encore écrit après ;
+//   taille -1 : segment clos, la suite est dans le segment suivant.
+// La taille est écrite en dernier : un lecteur, y compris dans un autre processus (ouvrirEnLecture),
+// ne voit que des enregistrements complets. Un seul écrivain ; lectures concurrentes possibles.
+public class JournalEvenements implements Closeable {
+
+    public record Enregistrement(long offset, byte[] contenu) {}
+
+    private static final int EN_TETE = 8;
+    private static final int CLOS = -1;
+    // Un enregistrement sur PAS_INDEX est indexé (offset -> position) pour ne pas relire tout le segment
+    private static final int PAS_INDEX = 128;
+    private static final String EXTENSION = ".log";
+    private static final Pattern CONSOMMATEUR = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private static final class Segment {
+        final long base;
+        final Path fichier;
+        final MappedByteBuffer buffer;
+        final ConcurrentSkipListMap<Long, Integer> index = new ConcurrentSkipListMap<>();
+        // Écrivain : position de fin et nombre d'enregistrements
+        int position;
+        long nombre;
+
+        Segment(long base, Path fichier, MappedByteBuffer buffer) {
+            this.base = base;
+            this.fichier = fichier;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path repertoire;
+    private final Path offsets;
+    private final int tailleSegment;
+    private final int segmentsMax;
+    private final boolean lectureSeule;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private Segment actif;
+    private volatile long prochainOffset;
+
+    private JournalEvenements(Path repertoire, int tailleSegment, int segmentsMax, boolean lectureSeule) {
+        this.repertoire = repertoire;
+        this.offsets = repertoire.resolve("offsets");
+        this.tailleSegment = tailleSegment;
+        this.segmentsMax = segmentsMax;
+        this.lectureSeule = lectureSeule;
+    }
+
+    // Écrivain : reprend le journal existant, enregistrement incomplet éventuel écarté
+    public static JournalEvenements ouvrir(Path repertoire, int tailleSegment, int segmentsMax) throws IOException {
+        if (tailleSegment < 1024 || segmentsMax < 1) {
+            throw new IllegalArgumentException("Taille de segment ou nombre de segments invalide");
+        }
+        Files.createDirectories(repertoire.resolve("offsets"));
+        JournalEvenements journal = new JournalEvenements(repertoire, tailleSegment, segmentsMax, false);
+        for (Path fichier : journal.fichiers()) {
+            journal.ajouterSegment(fichier);
+        }
+        if (journal.segments.isEmpty()) {
+            journal.actif = journal.creerSegment(0);
+        } else {
+            journal.actif = journal.segments.lastEntry().getValue();
+            journal.recuperer(journal.actif);
+            if (journal.actif.position < 0) {
+                // Arrêt entre la clôture d'un segment et la création du suivant
+                journal.actif = journal.creerSegment(journal.actif.base + journal.actif.nombre);
+            }
+        }
+        journal.prochainOffset = journal.actif.base + journal.actif.nombre;
+        return journal;
+    }
+
+    // Lecteur d'un journal écrit par un autre processus
+    public static JournalEvenements ouvrirEnLecture(Path repertoire) throws IOException {
+        Files.createDirectories(repertoire.resolve("offsets"));
+        JournalEvenements journal = new JournalEvenements(repertoire, 0, 0, true);
+        journal.rafraichir();
+        return journal;
+    }
+
+    // Ajoute un enregistrement et renvoie son offset ; durable après forcer()
+    public synchronized long ajouter(byte[] contenu) throws IOException {
+        if (lectureSeule) {
+            throw new IllegalStateException("Journal ouvert en lecture seule");
+        }
+        if (contenu.length == 0 || EN_TETE + contenu.length + 4 > tailleSegment) {
+            throw new IllegalArgumentException("Enregistrement de " + contenu.length + " octets impossible à écrire");
+        }
+        if (actif.position + EN_TETE + contenu.length + 4 > tailleSegment) {
+            actif.buffer.putInt(actif.position, CLOS);
+            actif.buffer.force();
+            actif = creerSegment(prochainOffset);
+            appliquerRetention();
+        }
+        int position = actif.position;
+        CRC32 crc = new CRC32();
+        crc.update(contenu);
+        actif.buffer.putInt(position + 4, (int) crc.getValue());
+        actif.buffer.put(position + EN_TETE, contenu);
+        VarHandle.releaseFence();
+        actif.buffer.putInt(position, contenu.length);
+
+        long offset = prochainOffset;
+        if (actif.nombre % PAS_INDEX == 0) {
+            actif.index.put(offset, position);
+        }
+        actif.position += EN_TETE + contenu.length;
+        actif.nombre++;
+        prochainOffset = offset + 1;
+        return offset;
+    }
+
+    // Écrit sur disque les enregistrements ajoutés
+    public synchronized void forcer() {
+        if (actif != null) {
+            actif.buffer.force();
+        }
+    }
+
+    // Au plus max enregistrements à partir de l'offset depuis (ou du plus ancien conservé)
+    public List<Enregistrement> lire(long depuis, int max) throws IOException {
+        List<Enregistrement> resultat = new ArrayList<>();
+        if (lectureSeule && (segments.isEmpty() || depuis >= segments.lastKey())) {
+            rafraichir();
+        }
+        Map.Entry<Long, Segment> entree = segments.floorEntry(depuis);
+        if (entree == null) {
+            entree = segments.firstEntry();
+            if (entree == null) {
+                return resultat;
+            }
+        }
+        Segment segment = entree.getValue();
+        long offset = segment.base;
+        int position = 0;
+        Map.Entry<Long, Integer> repere = segment.index.floorEntry(depuis);
+        if (repere != null) {
+            offset = repere.getKey();
+            position = repere.getValue();
+        }
+
+        while (resultat.size() < max) {
+            int taille = position + 4 <= segment.buffer.capacity() ? segment.buffer.getInt(position) : CLOS;
+            VarHandle.acquireFence();
+            if (taille == 0) {
+                break;
+            }
+            if (taille == CLOS) {
+                Map.Entry<Long, Segment> suivant = segments.higherEntry(segment.base);
+                if (suivant == null && lectureSeule) {
+                    rafraichir();
+                    suivant = segments.higherEntry(segment.base);
+                }
+                if (suivant == null) {
+                    break;
+                }
+                segment = suivant.getValue();
+                offset = segment.base;
+                position = 0;
+                continue;
+            }
+            if ((offset - segment.base) % PAS_INDEX == 0) {
+                segment.index.putIfAbsent(offset, position);
+            }
+            if (offset >= depuis) {
+                byte[] contenu = new byte[taille];
+                segment.buffer.get(position + EN_TETE, contenu);
+                resultat.add(new Enregistrement(offset, contenu));
+            }
+            position += EN_TETE + taille;
+            offset++;
+        }
+        return resultat;
+    }
+
+    // Offset du prochain enregistrement ajouté (écrivain)
+    public long getProchainOffset() {
+        return prochainOffset;
+    }
+
+    // Prochain offset à lire par ce consommateur, 0 s'il n'a encore rien validé
+    public long offsetConsommateur(String consommateur) throws IOException {
+        Path fichier = fichierOffset(consommateur);
+        if (!Files.exists(fichier)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(fichier, StandardCharsets.UTF_8).trim());
+    }
+
+    // Mémorise la position d'un consommateur (remplacement atomique du fichier)
+    public void validerOffset(String consommateur, long offset) throws IOException {
+        Path fichier = fichierOffset(consommateur);
+        Path temporaire = offsets.resolve(consommateur + ".tmp");
+        Files.writeString(temporaire, Long.toString(offset), StandardCharsets.UTF_8);
+        Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() {
+        forcer();
+        segments.clear();
+        actif = null;
+    }
+
+    private Path fichierOffset(String consommateur) {
+        if (!CONSOMMATEUR.matcher(consommateur).matches()) {
+            throw new IllegalArgumentException("Nom de consommateur invalide: " + consommateur);
+        }
+        return offsets.resolve(consommateur + ".offset");
+    }
+
+    private List<Path> fichiers() throws IOException {
+        try (Stream<Path> contenu = Files.list(repertoire)) {
+            return contenu.filter(fichier -> fichier.getFileName().toString().endsWith(EXTENSION))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void ajouterSegment(Path fichier) throws IOException {
+        String nom = fichier.getFileName().toString();
+        long base = Long.parseLong(nom.substring(0, nom.length() - EXTENSION.length()));
+        try (FileChannel canal = lectureSeule
+                ? FileChannel.open(fichier, StandardOpenOption.READ)
+                : FileChannel.open(fichier, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = lectureSeule
+                    ? canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size())
+                    : canal.map(FileChannel.MapMode.READ_WRITE, 0, tailleSegment);
+            segments.put(base, new Segment(base, fichier, buffer));
+        }
+    }
+
+    private Segment creerSegment(long base) throws IOException {
+        Path fichier = repertoire.resolve(String.format("%020d%s", base, EXTENSION));
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Segment segment = new Segment(base, fichier, canal.map(FileChannel.MapMode.READ_WRITE, 0, tailleSegment));
+            segments.put(base, segment);
+            return segment;
+        }
+    }
+
+    // Parcourt le dernier segment : fin d'écriture, nombre d'enregistrements ; efface un enregistrement incomplet.
+    // position vaut -1 si le segment est clos.
+    private void recuperer(Segment segment) {
+        int position = 0;
+        while (position + 4 <= tailleSegment) {
+            int taille = segment.buffer.getInt(position);
+            if (taille == 0) {
+                break;
+            }
+            if (taille == CLOS) {
+                segment.position = -1;
+                return;
+            }
+            if (taille < 0 || position + EN_TETE + taille > tailleSegment || !crcValide(segment, position, taille)) {
+                // Écriture interrompue : le reste du segment est remis à zéro pour les lecteurs
+                for (int i = position; i < tailleSegment; i++) {
+                    segment.buffer.put(i, (byte) 0);
+                }
+                segment.buffer.force();
+                break;
+            }
+            if (segment.nombre % PAS_INDEX == 0) {
+                segment.index.put(segment.base + segment.nombre, position);
+            }
+            position += EN_TETE + taille;
+            segment.nombre++;
+        }
+        segment.position = position;
+    }
+
+    private static boolean crcValide(Segment segment, int position, int taille) {
+        byte[] contenu = new byte[taille];
+        segment.buffer.get(position + EN_TETE, contenu);
+        CRC32 crc = new CRC32();
+        crc.update(contenu);
+        return (int) crc.getValue() == segment.buffer.getInt(position + 4);
+    }
+
+    private void appliquerRetention() throws IOException {
+        while (segments.size() > segmentsMax) {
+            Segment ancien = segments.pollFirstEntry().getValue();
+            // Les lecteurs en cours gardent leur projection : le fichier peut être supprimé
+            Files.deleteIfExists(ancien.fichier);
+        }
+    }
+
+    // Lecture seule : prend en compte les segments créés ou supprimés par l'écrivain
+    private synchronized void rafraichir() throws IOException {
+        List<Path> fichiers = fichiers();
+        segments.values().removeIf(segment -> !fichiers.contains(segment.fichier));
+        for (Path fichier : fichiers) {
+            String nom = fichier.getFileName().toString();
+            long base = Long.parseLong(nom.substring(0, nom.length() - EXTENSION.length()));
+            if (!segments.containsKey(base)) {
+                ajouterSegment(fichier);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package amouhal.nouhayla.commande.repository;
+import amouhal.nouhayla.commande.entity.CleIdempotence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface CleIdempotenceRepository extends JpaRepository<CleIdempotence, Long> {
+
+    Optional<CleIdempotence> findByClientUsernameAndCleAndDateCreationAfter(String clientUsername, String cle, LocalDateTime apres);
+
+    Optional<CleIdempotence> findByClientUsernameAndCle(String clientUsername, String cle);
+
+    // Dans la transaction qui enregistre la commande
+    @Modifying
+    @Query("update CleIdempotence c set c.commandeId = :commandeId where c.id = :id")
+    int associer(@Param("id") Long id, @Param("commandeId") Long commandeId);
+
+    @Transactional
+    @Modifying
+    @Query("update CleIdempotence c set c.commandeId = :commandeId, c.statutHttp = :statutHttp where c.id = :id")
+    int terminer(@Param("id") Long id, @Param("commandeId") Long commandeId, @Param("statutHttp") int statutHttp);
+
+    // Réservation rendue ou abandonnée : jamais une clé déjà associée à une commande
+    @Transactional
+    @Modifying
+    @Query("delete from CleIdempotence c where c.id = :id and c.commandeId is null")
+    int supprimerSansCommande(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from CleIdempotence c where c.dateCreation < :avant")
+    int supprimerAvant(@Param("avant") LocalDateTime avant);
+}
@@ -0,0 +1,40 @@
+package amouhal.nouhayla.commande.repository;
+import amouhal.nouhayla.commande.dto.CurseurCommande;
+import amouhal.nouhayla.commande.entity.CommandeArchivee;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CommandeArchiveeRepository extends JpaRepository<CommandeArchivee, Long> {
+
+    // Parcours complet de l'archive par pages (reconstruction des statistiques)
+    List<CommandeArchivee> findByIdGreaterThanOrderById(Long id, Pageable limite);
+
+    // Clés seules (sans le contenu compressé) des pages de commandes, dans l'ordre des listes de CommandeRepository :
+    // seules les commandes retenues dans la page sont ensuite lues et décompressées
+    @Query("select new amouhal.nouhayla.commande.dto.CurseurCommande(a.dateCommande, a.id) " +
+            "from CommandeArchivee a where a.clientUsername = :username " +
+            "order by a.dateCommande desc, a.id desc")
+    List<CurseurCommande> findClesByClientUsername(@Param("username") String username, Pageable limite);
+
+    @Query("select new amouhal.nouhayla.commande.dto.CurseurCommande(a.dateCommande, a.id) " +
+            "from CommandeArchivee a where a.clientUsername = :username and (a.dateCommande, a.id) < (:date, :id) " +
+            "order by a.dateCommande desc, a.id desc")
+    List<CurseurCommande> findClesByClientUsernameApres(@Param("username") String username,
+                                                        @Param("date") LocalDateTime date,
+                                                        @Param("id") Long id,
+                                                        Pageable limite);
+
+    @Query("select new amouhal.nouhayla.commande.dto.CurseurCommande(a.dateCommande, a.id) " +
+            "from CommandeArchivee a order by a.dateCommande desc, a.id desc")
+    List<CurseurCommande> findCles(Pageable limite);
+
+    @Query("select new amouhal.nouhayla.commande.dto.CurseurCommande(a.dateCommande, a.id) " +
+            "from CommandeArchivee a where (a.dateCommande, a.id) < (:date, :id) " +
+            "order by a.dateCommande desc, a.id desc")
+    List<CurseurCommande> findClesApres(@Param("date") LocalDateTime date, @Param("id") Long id, Pageable limite);
+}
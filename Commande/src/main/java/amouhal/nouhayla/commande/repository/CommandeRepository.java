@@ -1,9 +1,65 @@
 package amouhal.nouhayla.commande.repository;
+import amouhal.nouhayla.commande.dto.CommandeResponse;
 import amouhal.nouhayla.commande.entity.Commande;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface CommandeRepository extends JpaRepository<Commande, Long> {
     List<Commande> findByClientUsername(String username);
-}
\ No newline at end of file
+
+    // Projections en lecture seule : les lignes sont chargées à part, en une requête pour toutes les commandes.
+    // Pagination par clé (dateCommande, id) décroissante : chaque page est un parcours de l'index
+    // idx_commande_client_date_id / idx_commande_date_id à partir du curseur, quelle que soit sa profondeur.
+    @Query("select new amouhal.nouhayla.commande.dto.CommandeResponse(c.id, c.dateCommande, c.statut, c.montantTotal, c.clientUsername, c.motifRejet) " +
+            "from Commande c where c.clientUsername = :username " +
+            "order by c.dateCommande desc, c.id desc")
+    List<CommandeResponse> findPageByClientUsername(@Param("username") String username, Pageable limite);
+
+    @Query("select new amouhal.nouhayla.commande.dto.CommandeResponse(c.id, c.dateCommande, c.statut, c.montantTotal, c.clientUsername, c.motifRejet) " +
+            "from Commande c where c.clientUsername = :username and (c.dateCommande, c.id) < (:date, :id) " +
+            "order by c.dateCommande desc, c.id desc")
+    List<CommandeResponse> findPageByClientUsernameApres(@Param("username") String username,
+                                                         @Param("date") LocalDateTime date,
+                                                         @Param("id") Long id,
+                                                         Pageable limite);
+
+    @Query("select new amouhal.nouhayla.commande.dto.CommandeResponse(c.id, c.dateCommande, c.statut, c.montantTotal, c.clientUsername, c.motifRejet) " +
+            "from Commande c order by c.dateCommande desc, c.id desc")
+    List<CommandeResponse> findPage(Pageable limite);
+
+    @Query("select new amouhal.nouhayla.commande.dto.CommandeResponse(c.id, c.dateCommande, c.statut, c.montantTotal, c.clientUsername, c.motifRejet) " +
+            "from Commande c where (c.dateCommande, c.id) < (:date, :id) " +
+            "order by c.dateCommande desc, c.id desc")
+    List<CommandeResponse> findPageApres(@Param("date") LocalDateTime date, @Param("id") Long id, Pageable limite);
+
+    @Query("select new amouhal.nouhayla.commande.dto.CommandeResponse(c.id, c.dateCommande, c.statut, c.montantTotal, c.clientUsername, c.motifRejet) " +
+            "from Commande c where c.id = :id")
+    Optional<CommandeResponse> findResumeById(@Param("id") Long id);
+
+    // Lignes chargées avec les commandes : un lot de la réception asynchrone en une requête
+    @Query("select distinct c from Commande c left join fetch c.lignes where c.id in :ids")
+    List<Commande> findAvecLignesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Commandes en attente depuis avant : leur traitement (sur ce service ou une autre instance) a été perdu
+    @EntityGraph(attributePaths = "lignes")
+    List<Commande> findByStatutAndDateCommandeBefore(String statut, LocalDateTime avant);
+
+    // Archivage : commandes terminées (hors EN_ATTENTE) antérieures à avant, les plus anciennes d'abord
+    @Query("select c.id from Commande c where c.dateCommande < :avant and c.statut <> '" + Commande.EN_ATTENTE + "' " +
+            "order by c.dateCommande, c.id")
+    List<Long> findIdsArchivables(@Param("avant") LocalDateTime avant, Pageable limite);
+
+    // Après suppression des lignes (LigneCommandeRepository.supprimerParCommandeIds)
+    @Modifying
+    @Query("delete from Commande c where c.id in :ids")
+    int supprimerParIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,12 @@
+package amouhal.nouhayla.commande.repository;
+import amouhal.nouhayla.commande.entity.EvenementCommande;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface EvenementCommandeRepository extends JpaRepository<EvenementCommande, Long> {
+
+    // Événements pas encore recopiés dans le journal, dans l'ordre de création
+    List<EvenementCommande> findByOrderById(Pageable limite);
+}
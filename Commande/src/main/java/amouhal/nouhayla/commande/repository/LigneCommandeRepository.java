@@ -1,5 +1,21 @@
 package amouhal.nouhayla.commande.repository;
+import amouhal.nouhayla.commande.dto.LigneCommandeResponse;
 import amouhal.nouhayla.commande.entity.LigneCommande;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface LigneCommandeRepository extends JpaRepository<LigneCommande, Long> {}
\ No newline at end of file
+import java.util.Collection;
+import java.util.List;
+
+public interface LigneCommandeRepository extends JpaRepository<LigneCommande, Long> {
+
+    @Query("select new amouhal.nouhayla.commande.dto.LigneCommandeResponse(l.commande.id, l.id, l.produitId, l.quantite, l.prix) " +
+            "from LigneCommande l where l.commande.id in :commandeIds order by l.id")
+    List<LigneCommandeResponse> findResumesByCommandeIds(@Param("commandeIds") Collection<Long> commandeIds);
+
+    @Modifying
+    @Query("delete from LigneCommande l where l.commande.id in :commandeIds")
+    int supprimerParCommandeIds(@Param("commandeIds") Collection<Long> commandeIds);
+}
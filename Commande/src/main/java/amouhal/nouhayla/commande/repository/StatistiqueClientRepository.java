@@ -0,0 +1,24 @@
+package amouhal.nouhayla.commande.repository;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.StatistiqueClient;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface StatistiqueClientRepository extends JpaRepository<StatistiqueClient, String> {
+
+    List<StatistiqueClient> findByOrderByChiffreAffairesDesc(Pageable limite);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update StatistiqueClient s set s.nombreCommandes = s.nombreCommandes + :nombre, " +
+            "s.chiffreAffaires = s.chiffreAffaires + :montant where s.clientUsername = :clientUsername")
+    int ajouter(@Param("clientUsername") String clientUsername, @Param("nombre") long nombre, @Param("montant") double montant);
+
+    @Query("select new amouhal.nouhayla.commande.entity.StatistiqueClient(c.clientUsername, count(c), sum(c.montantTotal)) " +
+            "from Commande c where c.statut = '" + Commande.EN_COURS + "' group by c.clientUsername")
+    List<StatistiqueClient> calculer();
+}
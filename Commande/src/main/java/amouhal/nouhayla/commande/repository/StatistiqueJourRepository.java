@@ -0,0 +1,35 @@
+package amouhal.nouhayla.commande.repository;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.StatistiqueJour;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface StatistiqueJourRepository extends JpaRepository<StatistiqueJour, StatistiqueJour.Cle> {
+
+    // Totaux par jour : somme des tranches
+    @Query("select new amouhal.nouhayla.commande.entity.StatistiqueJour(s.jour, sum(s.nombreCommandes), sum(s.chiffreAffaires)) " +
+            "from StatistiqueJour s where s.jour between :du and :au group by s.jour order by s.jour")
+    List<StatistiqueJour> findTotauxByJourBetween(@Param("du") LocalDate du, @Param("au") LocalDate au);
+
+    // Incrément atomique d'une tranche, dans la transaction qui accepte les commandes (la ligne doit exister)
+    @Modifying(flushAutomatically = true)
+    @Query("update StatistiqueJour s set s.nombreCommandes = s.nombreCommandes + :nombre, " +
+            "s.chiffreAffaires = s.chiffreAffaires + :montant where s.jour = :jour and s.tranche = :tranche")
+    int ajouter(@Param("jour") LocalDate jour, @Param("tranche") int tranche,
+                @Param("nombre") long nombre, @Param("montant") double montant);
+
+    // Reconstruction : totaux actuels de tous les jours
+    @Query("select new amouhal.nouhayla.commande.entity.StatistiqueJour(s.jour, sum(s.nombreCommandes), sum(s.chiffreAffaires)) " +
+            "from StatistiqueJour s group by s.jour")
+    List<StatistiqueJour> findTotaux();
+
+    // Reconstruction : totaux recalculés depuis les commandes
+    @Query("select new amouhal.nouhayla.commande.entity.StatistiqueJour(cast(c.dateCommande as LocalDate), count(c), sum(c.montantTotal)) " +
+            "from Commande c where c.statut = '" + Commande.EN_COURS + "' group by cast(c.dateCommande as LocalDate)")
+    List<StatistiqueJour> calculer();
+}
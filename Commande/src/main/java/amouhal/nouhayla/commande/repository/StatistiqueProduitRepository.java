@@ -0,0 +1,24 @@
+package amouhal.nouhayla.commande.repository;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.StatistiqueProduit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface StatistiqueProduitRepository extends JpaRepository<StatistiqueProduit, Long> {
+
+    List<StatistiqueProduit> findByOrderByQuantiteVendueDesc(Pageable limite);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update StatistiqueProduit s set s.quantiteVendue = s.quantiteVendue + :quantite, " +
+            "s.chiffreAffaires = s.chiffreAffaires + :montant where s.produitId = :produitId")
+    int ajouter(@Param("produitId") Long produitId, @Param("quantite") long quantite, @Param("montant") double montant);
+
+    @Query("select new amouhal.nouhayla.commande.entity.StatistiqueProduit(l.produitId, sum(l.quantite), sum(l.prix * l.quantite)) " +
+            "from LigneCommande l where l.commande.statut = '" + Commande.EN_COURS + "' group by l.produitId")
+    List<StatistiqueProduit> calculer();
+}
@@ -0,0 +1,195 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.dto.CommandeResponse;
+import amouhal.nouhayla.commande.dto.CurseurCommande;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.CommandeArchivee;
+import amouhal.nouhayla.commande.repository.CommandeArchiveeRepository;
+import amouhal.nouhayla.commande.repository.CommandeRepository;
+import amouhal.nouhayla.commande.repository.LigneCommandeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Archivage des commandes terminées (EN_COURS ou REJETEE) plus anciennes que commande.archivage.age :
+// chaque lot est recopié dans CommandeArchivee (JSON compressé) puis supprimé des tables Commande/LigneCommande,
+// dans une seule transaction. Les tables actives, leurs index et leurs sauvegardes ne contiennent plus que
+// les commandes récentes ; CommandeService.getCommande lit l'archive quand la commande n'y est plus, et les
+// listes de commandes fusionnent les deux (page()).
+@Service
+public class ArchivageCommandes {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivageCommandes.class);
+
+    @Autowired
+    private CommandeRepository commandeRepository;
+
+    @Autowired
+    private LigneCommandeRepository ligneCommandeRepository;
+
+    @Autowired
+    private CommandeArchiveeRepository commandeArchiveeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${commande.archivage.actif:true}")
+    private boolean actif;
+
+    @Value("${commande.archivage.age:180d}")
+    private Duration age;
+
+    // Commandes déplacées par transaction, et nombre maximal de lots par passage
+    @Value("${commande.archivage.lot-taille:500}")
+    private int lotTaille;
+
+    @Value("${commande.archivage.lots-max:200}")
+    private int lotsMax;
+
+    private Counter archivees;
+
+    @PostConstruct
+    public void initialiser() {
+        archivees = Counter.builder("commande.archivage.commandes")
+                .description("Commandes déplacées vers l'archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${commande.archivage.intervalle-ms:3600000}",
+            initialDelayString = "${commande.archivage.delai-initial-ms:60000}")
+    public void archiver() {
+        if (!actif) {
+            return;
+        }
+        LocalDateTime avant = LocalDateTime.now().minus(age);
+        int total = 0;
+        try {
+            for (int i = 0; i < lotsMax; i++) {
+                Integer deplacees = transactionTemplate.execute(statut -> archiverLot(avant));
+                total += deplacees;
+                archivees.increment(deplacees);
+                if (deplacees < lotTaille) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Le lot en cours est annulé en entier : ses commandes restent dans les tables actives
+            logger.error("Échec de l'archivage des commandes: {}", e.getMessage(), e);
+        }
+        if (total > 0) {
+            logger.info("{} commandes antérieures au {} archivées", total, avant);
+        }
+    }
+
+    // Commande archivée, vide si elle n'est pas dans l'archive
+    public Optional<CommandeResponse> lire(Long id) {
+        return commandeArchiveeRepository.findById(id).map(this::decoder);
+    }
+
+    // Clés des commandes archivées d'un client (tous les clients si username est null) qui suivent le curseur
+    // (depuis la plus récente s'il est null), dans l'ordre des listes de commandes
+    public List<CurseurCommande> page(String username, CurseurCommande apres, int nombre) {
+        PageRequest page = PageRequest.of(0, nombre);
+        if (username == null) {
+            return apres == null
+                    ? commandeArchiveeRepository.findCles(page)
+                    : commandeArchiveeRepository.findClesApres(apres.dateCommande(), apres.id(), page);
+        }
+        return apres == null
+                ? commandeArchiveeRepository.findClesByClientUsername(username, page)
+                : commandeArchiveeRepository.findClesByClientUsernameApres(username, apres.dateCommande(), apres.id(), page);
+    }
+
+    // Commandes archivées par id, lignes comprises
+    public Map<Long, CommandeResponse> lire(Collection<Long> ids) {
+        Map<Long, CommandeResponse> commandes = new HashMap<>();
+        if (!ids.isEmpty()) {
+            commandeArchiveeRepository.findAllById(ids).forEach(archive -> commandes.put(archive.getId(), decoder(archive)));
+        }
+        return commandes;
+    }
+
+    // Parcourt toute l'archive, par pages
+    public void parcourir(Consumer<CommandeResponse> action) {
+        Long dernier = 0L;
+        List<CommandeArchivee> page;
+        do {
+            page = commandeArchiveeRepository.findByIdGreaterThanOrderById(dernier, PageRequest.of(0, lotTaille));
+            for (CommandeArchivee archive : page) {
+                action.accept(decoder(archive));
+                dernier = archive.getId();
+            }
+        } while (page.size() == lotTaille);
+    }
+
+    private int archiverLot(LocalDateTime avant) {
+        List<Long> ids = commandeRepository.findIdsArchivables(avant, PageRequest.of(0, lotTaille));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<CommandeArchivee> archives = new ArrayList<>(ids.size());
+        for (Commande commande : commandeRepository.findAvecLignesByIdIn(ids)) {
+            CommandeArchivee archive = new CommandeArchivee();
+            archive.setId(commande.getId());
+            archive.setClientUsername(commande.getClientUsername());
+            archive.setDateCommande(commande.getDateCommande());
+            archive.setDateArchivage(maintenant);
+            archive.setContenu(encoder(CommandeResponse.depuis(commande)));
+            archives.add(archive);
+        }
+        commandeArchiveeRepository.saveAll(archives);
+        ligneCommandeRepository.supprimerParCommandeIds(ids);
+        commandeRepository.supprimerParIds(ids);
+        return ids.size();
+    }
+
+    private byte[] encoder(CommandeResponse commande) {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(sortie)) {
+            objectMapper.writeValue(gzip, commande);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sortie.toByteArray();
+    }
+
+    private CommandeResponse decoder(CommandeArchivee archive) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(archive.getContenu()))) {
+            return objectMapper.readValue(gzip, CommandeResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Archive de la commande " + archive.getId() + " illisible", e);
+        }
+    }
+}
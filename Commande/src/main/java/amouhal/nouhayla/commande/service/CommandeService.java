@@ -1,17 +1,49 @@
 package amouhal.nouhayla.commande.service;
+import amouhal.nouhayla.commande.client.ProduitCache;
 import amouhal.nouhayla.commande.client.ProduitClient;
 import amouhal.nouhayla.commande.client.ProduitDto;
+import amouhal.nouhayla.commande.client.ProduitIndisponibleException;
+import amouhal.nouhayla.commande.client.ProduitRequestCoalescer;
+import amouhal.nouhayla.commande.client.ReservationDto;
+import amouhal.nouhayla.commande.client.ReservationResultatDto;
+import amouhal.nouhayla.commande.dto.CommandeResponse;
+import amouhal.nouhayla.commande.dto.CurseurCommande;
+import amouhal.nouhayla.commande.dto.LigneCommandeResponse;
+import amouhal.nouhayla.commande.dto.PageCommandes;
 import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.EvenementCommande;
 import amouhal.nouhayla.commande.entity.LigneCommande;
 import amouhal.nouhayla.commande.repository.CommandeRepository;
+import amouhal.nouhayla.commande.repository.LigneCommandeRepository;
+import feign.FeignException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 @Service
 public class CommandeService {
@@ -31,37 +63,132 @@ public class CommandeService {
         this.produitClient = produitClient;
     }
 
+    private static final String MODE_PARALLELE = "parallele";
+
+    // Nombre maximal d'ids dans la clause IN du chargement des lignes
+    private static final int TRANCHE_LIGNES = 1000;
+
     private static final Logger logger = LoggerFactory.getLogger(CommandeService.class);
 
     @Autowired
     private CommandeRepository commandeRepository;
 
+    @Autowired
+    private LigneCommandeRepository ligneCommandeRepository;
+
     @Autowired
     private ProduitClient produitClient;
 
+    @Autowired
+    private StatistiquesCommandes statistiquesCommandes;
+
+    @Autowired
+    private EvenementsCommandes evenementsCommandes;
+
+    @Autowired
+    private ArchivageCommandes archivageCommandes;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IdempotenceCommandes idempotenceCommandes;
+
+    @Autowired
+    private ProduitCache produitCache;
+
+    @Autowired
+    private ProduitRequestCoalescer produitRequestCoalescer;
+
+    // Contexte de sécurité propagé aux threads : FeignClientInterceptor retrouve le JWT de l'appelant
+    @Autowired
+    @Qualifier("verificationExecutor")
+    private ExecutorService verificationExecutor;
+
+    @Value("${commande.verification.mode:lot}")
+    private String modeVerification = "lot";
+
+    // Nombre maximal d'appels simultanés au service Produit pour une même commande
+    @Value("${commande.verification.parallelisme-max:8}")
+    private int parallelismeMax = 8;
+
+    // Prix et noms des dernières données connues quand le service Produit est indisponible (stock toujours réservé)
+    @Value("${produit.resilience.repli-dernier-connu:false}")
+    private boolean repliDernierConnu;
+
+    // Taille des pages de commandes quand le client n'en demande pas, et plafond de ce qu'il peut demander
+    @Value("${commande.pagination.taille-defaut:50}")
+    private int tailleParDefaut = 50;
+
+    @Value("${commande.pagination.taille-max:200}")
+    private int tailleMax = 200;
+
     // Création
     public Commande createCommande(Commande commande) {
         logger.info("Création d'une commande pour le client: {}", commande.getClientUsername());
         
         commande.setDateCommande(LocalDateTime.now());
-        double total = 0;
         
+        Map<Long, ProduitDto> produits = new HashMap<>();
+        if (commande.getLignes() != null && !commande.getLignes().isEmpty()) {
+            // Mode "lot" : un seul appel groupé ; mode "parallele" : un appel par produit, en concurrence
+            produits = MODE_PARALLELE.equals(modeVerification)
+                    ? chargerProduitsEnParallele(commande.getLignes())
+                    : chargerProduits(commande.getLignes());
+        }
+        double total = appliquerPrix(commande, produits);
+        commande.setStatut(Commande.EN_COURS);
+        
+        // Le contrôle ci-dessus peut être périmé : seule la réservation côté Produit fait foi
+        ReservationDto reservation = reserverStock(commande, produits);
+
+        Commande savedCommande;
+        try {
+            statistiquesCommandes.preparer(List.of(commande));
+            savedCommande = transactionTemplate.execute(statut -> {
+                Commande enregistree = commandeRepository.save(commande);
+                idempotenceCommandes.associer(enregistree.getId());
+                statistiquesCommandes.comptabiliser(List.of(enregistree));
+                evenementsCommandes.enregistrer(EvenementCommande.CREEE, List.of(enregistree));
+                return enregistree;
+            });
+        } catch (RuntimeException e) {
+            logger.error("Échec de l'enregistrement de la commande, libération du stock réservé");
+            libererStock(reservation);
+            throw e;
+        }
+        logger.info("Commande {} créée avec succès. Montant total: {}", savedCommande.getId(), total);
+        
+        return savedCommande;
+    }
+
+    // Réception asynchrone : la commande est enregistrée telle que reçue, vérifiée plus tard par ReceptionCommandes
+    public Commande enregistrerEnAttente(Commande commande) {
+        commande.setDateCommande(LocalDateTime.now());
+        commande.setStatut(Commande.EN_ATTENTE);
+        commande.setMontantTotal(0.0);
+        if (commande.getLignes() != null) {
+            commande.getLignes().forEach(ligne -> ligne.setCommande(commande));
+        }
+        Commande enregistree = transactionTemplate.execute(statut -> {
+            Commande c = commandeRepository.save(commande);
+            idempotenceCommandes.associer(c.getId());
+            evenementsCommandes.enregistrer(EvenementCommande.CREEE, List.of(c));
+            return c;
+        });
+        logger.info("Commande {} reçue, en attente de vérification", enregistree.getId());
+        return enregistree;
+    }
+
+    // Contrôle chaque ligne, y applique le prix du produit et fixe le montant total
+    double appliquerPrix(Commande commande, Map<Long, ProduitDto> produits) {
+        double total = 0;
         if (commande.getLignes() != null) {
             for (LigneCommande ligne : commande.getLignes()) {
-                // Vérifier la disponibilité du produit via le service Produit
+                // Vérifier la disponibilité du produit
                 try {
-                    ProduitDto produit = produitClient.getProduit(ligne.getProduitId());
-                    
-                    if (produit == null) {
-                        logger.error("Produit {} non trouvé", ligne.getProduitId());
-                        throw new RuntimeException("Produit " + ligne.getProduitId() + " non trouvé");
-                    }
-                    
-                    if (produit.getQuantiteStock() < ligne.getQuantite()) {
-                        logger.error("Stock insuffisant pour le produit {}. Demandé: {}, Disponible: {}", 
-                            ligne.getProduitId(), ligne.getQuantite(), produit.getQuantiteStock());
-                        throw new RuntimeException("Stock insuffisant pour le produit " + produit.getNom());
-                    }
+                    ProduitDto produit = produits.get(ligne.getProduitId());
+                    controlerLigne(ligne, produit);
                     
                     // Utiliser le prix du produit
                     ligne.setPrix(produit.getPrix());
@@ -76,28 +203,344 @@ public class CommandeService {
                 }
             }
         }
-        
         commande.setMontantTotal(total);
-        commande.setStatut("EN_COURS");
-        
-        Commande savedCommande = commandeRepository.save(commande);
-        logger.info("Commande {} créée avec succès. Montant total: {}", savedCommande.getId(), total);
-        
-        return savedCommande;
+        return total;
+    }
+
+    // Décrémente le stock de toutes les lignes en un seul appel ; aucune ligne n'est réservée en cas d'échec
+    ReservationDto reserverStock(Commande commande, Map<Long, ProduitDto> produits) {
+        if (commande.getLignes() == null || commande.getLignes().isEmpty()) {
+            return null;
+        }
+        ReservationDto reservation = new ReservationDto(commande.getLignes().stream()
+                .map(ligne -> new ReservationDto.LigneReservationDto(ligne.getProduitId(), ligne.getQuantite()))
+                .collect(Collectors.toList()));
+        // Commande déjà enregistrée (réception asynchrone) : id dérivé du sien, retrouvé sans être conservé
+        reservation.setReservationId(commande.getId() != null ? reservationId(commande.getId()) : UUID.randomUUID().toString());
+
+        ReservationResultatDto resultat;
+        try {
+            resultat = produitClient.reserverStock(reservation);
+        } catch (ProduitIndisponibleException e) {
+            // Appel refusé avant d'atteindre le réseau : rien n'a été réservé
+            logger.error("Réservation du stock impossible: {}", e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            // Délai dépassé, réponse perdue ou 5xx : la réservation a peut-être été appliquée.
+            // Libérée par son id : rend le stock si elle l'a été, l'annule d'avance si elle arrive encore.
+            logger.error("Erreur lors de la réservation du stock {}: {}", reservation.getReservationId(), e.getMessage());
+            libererStock(reservation);
+            throw new RuntimeException("Erreur lors de la réservation du stock: " + e.getMessage());
+        }
+
+        if (resultat == null) {
+            libererStock(reservation);
+            throw new RuntimeException("Erreur lors de la réservation du stock");
+        }
+        if (!resultat.isReussie()) {
+            ReservationResultatDto.ResultatLigneDto echec = resultat.getLignes().stream()
+                    .filter(ligne -> !ReservationResultatDto.RESERVEE.equals(ligne.getStatut()))
+                    .findFirst()
+                    .orElse(null);
+            if (echec == null) {
+                throw new RuntimeException("Erreur lors de la réservation du stock");
+            }
+            logger.error("Réservation refusée pour le produit {}: {}", echec.getProduitId(), echec.getStatut());
+            produitCache.invalider(echec.getProduitId());
+            if (ReservationResultatDto.ANNULEE.equals(echec.getStatut())) {
+                throw new RuntimeException("Erreur lors de la réservation du stock: réservation annulée");
+            }
+            if (ReservationResultatDto.INTROUVABLE.equals(echec.getStatut())) {
+                throw new RuntimeException("Erreur lors de la vérification du produit: Produit " + echec.getProduitId() + " non trouvé");
+            }
+            ProduitDto produit = produits.get(echec.getProduitId());
+            String nom = produit != null ? produit.getNom() : String.valueOf(echec.getProduitId());
+            throw new RuntimeException("Erreur lors de la vérification du produit: Stock insuffisant pour le produit " + nom);
+        }
+        logger.info("Stock réservé pour {} lignes", reservation.getLignes().size());
+        return reservation;
+    }
+
+    // Compensation : le service Produit remet en stock les quantités enregistrées sous cet id, une seule fois
+    // (un nouvel essai de la compensation ne rend rien de plus)
+    void libererStock(ReservationDto reservation) {
+        if (reservation == null) {
+            return;
+        }
+        libererReservation(reservation.getReservationId());
     }
 
-    public List<Commande> getCommandesByClient(String username) {
+    // Libère une réservation par son id seul ; false si le service Produit n'a pas pu être joint.
+    // Un id jamais réservé est annulé d'avance : une réservation encore en route sous cet id sera refusée.
+    boolean libererReservation(String reservationId) {
+        ReservationDto liberation = new ReservationDto();
+        liberation.setReservationId(reservationId);
+        try {
+            produitClient.libererStock(liberation);
+            return true;
+        } catch (Exception e) {
+            logger.error("Impossible de libérer la réservation {}: {}", reservationId, e.getMessage());
+            return false;
+        }
+    }
+
+    // Id de la réservation de stock d'une commande enregistrée avant sa vérification
+    static String reservationId(Long commandeId) {
+        return "commande-" + commandeId;
+    }
+
+    private void controlerLigne(LigneCommande ligne, ProduitDto produit) {
+        if (produit == null) {
+            logger.error("Produit {} non trouvé", ligne.getProduitId());
+            throw new RuntimeException("Produit " + ligne.getProduitId() + " non trouvé");
+        }
+
+        // Stock inconnu (cache plus assez frais) : la réservation tranchera
+        if (produit.getQuantiteStock() != null && produit.getQuantiteStock() < ligne.getQuantite()) {
+            logger.error("Stock insuffisant pour le produit {}. Demandé: {}, Disponible: {}",
+                ligne.getProduitId(), ligne.getQuantite(), produit.getQuantiteStock());
+            throw new RuntimeException("Stock insuffisant pour le produit " + produit.getNom());
+        }
+    }
+
+    // Un appel getProduit par produit distinct, au plus parallelismeMax en vol pour cette commande.
+    // Chaque réponse est contrôlée dès son arrivée : le premier échec annule les appels restants.
+    private Map<Long, ProduitDto> chargerProduitsEnParallele(List<LigneCommande> lignes) {
+        Map<Long, List<LigneCommande>> lignesParProduit = new LinkedHashMap<>();
+        for (LigneCommande ligne : lignes) {
+            lignesParProduit.computeIfAbsent(ligne.getProduitId(), id -> new ArrayList<>()).add(ligne);
+        }
+
+        Map<Long, ProduitDto> produits = new HashMap<>();
+        List<Long> absentsDuCache = new ArrayList<>();
+        for (Map.Entry<Long, List<LigneCommande>> entree : lignesParProduit.entrySet()) {
+            ProduitDto enCache = produitCache.lire(entree.getKey());
+            if (enCache == null) {
+                absentsDuCache.add(entree.getKey());
+                continue;
+            }
+            for (LigneCommande ligne : entree.getValue()) {
+                try {
+                    controlerLigne(ligne, enCache);
+                } catch (RuntimeException e) {
+                    throw new RuntimeException("Erreur lors de la vérification du produit: " + e.getMessage());
+                }
+            }
+            produits.put(entree.getKey(), enCache);
+        }
+
+        Iterator<Long> aSoumettre = absentsDuCache.iterator();
+        CompletionService<ProduitDto> completion = new ExecutorCompletionService<>(verificationExecutor);
+        Map<Future<ProduitDto>, Long> enVol = new HashMap<>();
+
+        try {
+            while (aSoumettre.hasNext() && enVol.size() < parallelismeMax) {
+                soumettre(completion, enVol, aSoumettre.next());
+            }
+            while (!enVol.isEmpty()) {
+                Future<ProduitDto> termine = completion.take();
+                Long produitId = enVol.remove(termine);
+                ProduitDto produit;
+                try {
+                    produit = termine.get();
+                } catch (ExecutionException e) {
+                    // Le service Produit répond 404 pour un id inconnu : même message qu'en mode séquentiel
+                    if (e.getCause() instanceof FeignException.NotFound) {
+                        produit = null;
+                    } else if (e.getCause() instanceof ProduitIndisponibleException indisponible) {
+                        produit = repli(List.of(produitId), indisponible).get(produitId);
+                    } else {
+                        logger.error("Erreur lors de la récupération du produit {}: {}", produitId, e.getCause().getMessage());
+                        throw new RuntimeException("Erreur lors de la vérification des produits: " + e.getCause().getMessage());
+                    }
+                }
+                for (LigneCommande ligne : lignesParProduit.get(produitId)) {
+                    try {
+                        controlerLigne(ligne, produit);
+                    } catch (RuntimeException e) {
+                        throw new RuntimeException("Erreur lors de la vérification du produit: " + e.getMessage());
+                    }
+                }
+                produits.put(produitId, produit);
+                produitCache.enregistrer(produit);
+
+                if (aSoumettre.hasNext()) {
+                    soumettre(completion, enVol, aSoumettre.next());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Vérification des produits interrompue");
+        } finally {
+            if (!enVol.isEmpty()) {
+                logger.info("Annulation de {} vérifications de produit en cours", enVol.size());
+                enVol.keySet().forEach(f -> f.cancel(true));
+            }
+        }
+        return produits;
+    }
+
+    private void soumettre(CompletionService<ProduitDto> completion, Map<Future<ProduitDto>, Long> enVol, Long produitId) {
+        enVol.put(completion.submit(() -> produitClient.getProduit(produitId)), produitId);
+    }
+
+    // Récupère les produits de la commande depuis le cache local, les absents en appels groupés
+    Map<Long, ProduitDto> chargerProduits(List<LigneCommande> lignes) {
+        Map<Long, ProduitDto> produits = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        lignes.stream()
+                .map(LigneCommande::getProduitId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(id -> {
+                    ProduitDto enCache = produitCache.lire(id);
+                    if (enCache != null) {
+                        produits.put(id, enCache);
+                    } else {
+                        ids.add(id);
+                    }
+                });
+
+        if (!ids.isEmpty()) {
+            // Lectures concurrentes du même produit partagées, ids proches regroupés en un appel
+            Map<Long, ProduitDto> charges;
+            try {
+                charges = produitRequestCoalescer.getProduits(ids);
+            } catch (ProduitIndisponibleException e) {
+                produits.putAll(repli(ids, e));
+                return produits;
+            } catch (Exception e) {
+                logger.error("Erreur lors de la récupération des produits {}: {}", ids, e.getMessage());
+                throw new RuntimeException("Erreur lors de la vérification des produits: " + e.getMessage());
+            }
+            for (ProduitDto produit : charges.values()) {
+                produits.put(produit.getId(), produit);
+                produitCache.enregistrer(produit);
+            }
+        }
+        return produits;
+    }
+
+    // Service Produit indisponible : dernières données connues si le repli est activé.
+    // Elles sont sans stock : la réservation, qui passe par le service Produit, reste seule juge.
+    private Map<Long, ProduitDto> repli(List<Long> ids, ProduitIndisponibleException e) {
+        Map<Long, ProduitDto> connus = repliDernierConnu ? produitCache.lireDerniersConnus(ids) : null;
+        if (connus == null) {
+            logger.error("Produits {} indisponibles: {}", ids, e.getMessage());
+            throw e;
+        }
+        logger.warn("{}: dernières données connues utilisées pour les produits {}", e.getMessage(), ids);
+        return connus;
+    }
+
+    // Pages de commandes les plus récentes d'abord ; "apres" est le curseur renvoyé par la page précédente.
+    // Les commandes archivées y figurent à leur place (voir pageDe).
+    @Transactional(readOnly = true)
+    public PageCommandes getCommandesByClient(String username, String apres, Integer taille) {
         logger.info("Récupération des commandes pour le client: {}", username);
-        return commandeRepository.findByClientUsername(username);
+        int limite = tailleEffective(taille);
+        // Une commande de plus que demandé pour savoir s'il existe une page suivante
+        Pageable page = PageRequest.of(0, limite + 1);
+        CurseurCommande curseur = apres == null || apres.isBlank() ? null : CurseurCommande.decoder(apres);
+        List<CommandeResponse> commandes = curseur == null
+                ? commandeRepository.findPageByClientUsername(username, page)
+                : commandeRepository.findPageByClientUsernameApres(username, curseur.dateCommande(), curseur.id(), page);
+        return pageDe(commandes, archivageCommandes.page(username, curseur, limite + 1), limite);
     }
 
-    public Optional<Commande> getCommande(Long id) {
+    @Transactional(readOnly = true)
+    public Optional<CommandeResponse> getCommande(Long id) {
         logger.info("Récupération de la commande: {}", id);
-        return commandeRepository.findById(id);
+        Optional<CommandeResponse> commande = commandeRepository.findResumeById(id)
+                .map(resume -> avecLignes(List.of(resume)).get(0));
+        // Plus dans les tables actives : commande ancienne, déplacée dans l'archive
+        return commande.isPresent() ? commande : archivageCommandes.lire(id);
     }
 
-    public List<Commande> getAllCommandes() {
+    @Transactional(readOnly = true)
+    public PageCommandes getAllCommandes(String apres, Integer taille) {
         logger.info("Récupération de toutes les commandes");
-        return commandeRepository.findAll();
+        int limite = tailleEffective(taille);
+        Pageable page = PageRequest.of(0, limite + 1);
+        CurseurCommande curseur = apres == null || apres.isBlank() ? null : CurseurCommande.decoder(apres);
+        List<CommandeResponse> commandes = curseur == null
+                ? commandeRepository.findPage(page)
+                : commandeRepository.findPageApres(curseur.dateCommande(), curseur.id(), page);
+        return pageDe(commandes, archivageCommandes.page(null, curseur, limite + 1), limite);
+    }
+
+    private int tailleEffective(Integer taille) {
+        if (taille == null || taille <= 0) {
+            return tailleParDefaut;
+        }
+        return Math.min(taille, tailleMax);
+    }
+
+    // Fusionne, sur le même ordre (dateCommande desc, id desc), les commandes actives et les clés des commandes
+    // archivées qui suivent le même curseur ; seules les archivées retenues dans la page sont décompressées.
+    // Les actives sont lues en premier : une commande archivée entre les deux lectures est vue deux fois
+    // (gardée une fois), jamais manquée.
+    private PageCommandes pageDe(List<CommandeResponse> actives, List<CurseurCommande> archivees, int limite) {
+        Set<Long> idsActifs = actives.stream().map(CommandeResponse::getId).collect(Collectors.toSet());
+        List<Object> fusion = new ArrayList<>(limite + 1);
+        int a = 0;
+        int b = 0;
+        while (fusion.size() <= limite && (a < actives.size() || b < archivees.size())) {
+            if (b < archivees.size() && idsActifs.contains(archivees.get(b).id())) {
+                b++;
+            } else if (b >= archivees.size()
+                    || a < actives.size() && avant(CurseurCommande.apres(actives.get(a)), archivees.get(b))) {
+                fusion.add(actives.get(a++));
+            } else {
+                fusion.add(archivees.get(b++));
+            }
+        }
+        String curseurSuivant = null;
+        if (fusion.size() > limite) {
+            fusion = fusion.subList(0, limite);
+            Object derniere = fusion.get(limite - 1);
+            curseurSuivant = (derniere instanceof CommandeResponse commande ? CurseurCommande.apres(commande)
+                    : (CurseurCommande) derniere).encoder();
+        }
+
+        List<CommandeResponse> retenues = new ArrayList<>();
+        List<Long> archiveesRetenues = new ArrayList<>();
+        for (Object element : fusion) {
+            if (element instanceof CommandeResponse commande) {
+                retenues.add(commande);
+            } else {
+                archiveesRetenues.add(((CurseurCommande) element).id());
+            }
+        }
+        // Lignes ajoutées aux commandes actives sur place ; les archivées ont les leurs dans l'archive
+        avecLignes(retenues);
+        Map<Long, CommandeResponse> lues = archivageCommandes.lire(archiveesRetenues);
+        List<CommandeResponse> commandes = new ArrayList<>(fusion.size());
+        for (Object element : fusion) {
+            commandes.add(element instanceof CommandeResponse commande ? commande : lues.get(((CurseurCommande) element).id()));
+        }
+        return new PageCommandes(commandes, curseurSuivant);
+    }
+
+    // true si la clé x vient avant y dans l'ordre (dateCommande desc, id desc)
+    private static boolean avant(CurseurCommande x, CurseurCommande y) {
+        int comparaison = x.dateCommande().compareTo(y.dateCommande());
+        return comparaison > 0 || comparaison == 0 && x.id() > y.id();
+    }
+
+    // Rattache les lignes aux commandes avec une requête par tranche de commandes (au lieu d'une par commande)
+    private List<CommandeResponse> avecLignes(List<CommandeResponse> commandes) {
+        Map<Long, CommandeResponse> parId = new HashMap<>();
+        for (CommandeResponse commande : commandes) {
+            parId.put(commande.getId(), commande);
+        }
+        List<Long> ids = new ArrayList<>(parId.keySet());
+        for (int debut = 0; debut < ids.size(); debut += TRANCHE_LIGNES) {
+            List<Long> tranche = ids.subList(debut, Math.min(debut + TRANCHE_LIGNES, ids.size()));
+            for (LigneCommandeResponse ligne : ligneCommandeRepository.findResumesByCommandeIds(tranche)) {
+                parId.get(ligne.getCommandeId()).getLignes().add(ligne);
+            }
+        }
+        return commandes;
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.dto.CommandeResponse;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.EvenementCommande;
+import amouhal.nouhayla.commande.repository.EvenementCommandeRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Écriture des événements de commande dans la boîte d'envoi, obligatoirement dans la transaction
+// qui crée ou modifie les commandes : l'événement existe si et seulement si le changement est validé.
+@Service
+public class EvenementsCommandes {
+
+    @Autowired
+    private EvenementCommandeRepository evenementCommandeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enregistrer(String type, Collection<Commande> commandes) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<EvenementCommande> evenements = new ArrayList<>(commandes.size());
+        for (Commande commande : commandes) {
+            EvenementCommande evenement = new EvenementCommande();
+            evenement.setType(type);
+            evenement.setCommandeId(commande.getId());
+            evenement.setDateCreation(maintenant);
+            try {
+                evenement.setContenu(objectMapper.writeValueAsString(CommandeResponse.depuis(commande)));
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Événement de la commande " + commande.getId() + " impossible à sérialiser", e);
+            }
+            evenements.add(evenement);
+        }
+        evenementCommandeRepository.saveAll(evenements);
+    }
+}
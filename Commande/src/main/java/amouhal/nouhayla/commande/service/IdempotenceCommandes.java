@@ -0,0 +1,295 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.entity.CleIdempotence;
+import amouhal.nouhayla.commande.repository.CleIdempotenceRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Déduplication des créations de commande portant un en-tête Idempotency-Key (clé propre à chaque client) :
+// - une requête identique encore en cours est attendue au lieu d'être recalculée ;
+// - un résultat récent est servi par un cache mémoire borné à durée de vie ;
+// - au-delà, par la table CleIdempotence, conservée pendant la durée de rétention.
+// La clé est réservée en base (ligne sans commande, contrainte unique) avant de créer la commande : une nouvelle
+// tentative reçue par une autre instance attend le résultat de la première au lieu de créer une seconde commande.
+// La commande est associée à la clé dans la transaction qui l'enregistre (associer()) : une réservation restée
+// sans commande (instance arrêtée avant l'enregistrement) peut être reprise après le délai d'abandon.
+// Seules les créations réussies sont mémorisées : après un échec, la réservation est rendue et une nouvelle
+// tentative est recalculée.
+@Service
+public class IdempotenceCommandes {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotenceCommandes.class);
+
+    @Autowired
+    private CleIdempotenceRepository cleIdempotenceRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${commande.idempotence.taille-max:10000}")
+    private long tailleMax;
+
+    @Value("${commande.idempotence.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${commande.idempotence.retention:24h}")
+    private Duration retention;
+
+    // Attente maximale d'une requête en double sur la première
+    @Value("${commande.idempotence.attente-max:30s}")
+    private Duration attenteMax;
+
+    // Réservation sans commande plus ancienne : instance arrêtée avant l'enregistrement, la clé peut être reprise
+    @Value("${commande.idempotence.abandon:2m}")
+    private Duration abandon;
+
+    // Intervalle entre deux lectures d'une clé réservée par une autre instance
+    private static final long ATTENTE_LECTURE_MS = 50;
+
+    private final Map<Cle, CompletableFuture<Resultat>> enVol = new ConcurrentHashMap<>();
+    // Réservation de clé de la création en cours sur ce thread, pour associer()
+    private final ThreadLocal<Long> reservationCourante = new ThreadLocal<>();
+    private Cache<Cle, Resultat> cache;
+    private Counter rejouees;
+
+    private record Cle(String clientUsername, String cle) {}
+
+    // Ce qu'il faut pour rejouer la réponse : la commande créée et le code HTTP renvoyé
+    public record Resultat(Long commandeId, int statutHttp, String empreinte) {}
+
+    // Clé déjà utilisée par ce client pour une requête différente, ou requête d'origine toujours en cours
+    public static class ConflitException extends RuntimeException {
+        public ConflitException(String message) {
+            super(message);
+        }
+    }
+
+    @PostConstruct
+    public void initialiser() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotence");
+        rejouees = Counter.builder("commande.idempotence.rejouees")
+                .description("Créations de commande servies par un résultat déjà obtenu")
+                .register(meterRegistry);
+    }
+
+    // Exécute l'action une seule fois par clé. memoriser renvoie null pour un résultat à ne pas conserver (échec) ;
+    // rejouer reconstruit la réponse d'une exécution précédente.
+    public <T> T executer(String clientUsername, String cle, String empreinte, Supplier<T> action,
+                          Function<T, Resultat> memoriser, Function<Resultat, T> rejouer) {
+        Cle c = new Cle(clientUsername, cle);
+        while (true) {
+            Resultat connu = chercher(c);
+            if (connu != null) {
+                return rejouer(connu, empreinte, rejouer);
+            }
+
+            CompletableFuture<Resultat> nouveau = new CompletableFuture<>();
+            CompletableFuture<Resultat> premier = enVol.putIfAbsent(c, nouveau);
+            if (premier != null) {
+                Resultat obtenu = attendre(premier, cle);
+                if (obtenu != null) {
+                    return rejouer(obtenu, empreinte, rejouer);
+                }
+                // La première requête a échoué : celle-ci retente
+                continue;
+            }
+
+            Long reservation = null;
+            try {
+                // Clé réservée en base, ou résultat obtenu par une autre instance
+                CleIdempotence ligne = reserver(c, empreinte);
+                if (ligne.getCommandeId() != null) {
+                    connu = resultat(ligne);
+                    cache.put(c, connu);
+                    nouveau.complete(connu);
+                    return rejouer(connu, empreinte, rejouer);
+                }
+                reservation = ligne.getId();
+                reservationCourante.set(reservation);
+                T reponse;
+                try {
+                    reponse = action.get();
+                } finally {
+                    reservationCourante.remove();
+                }
+                Resultat resultat = memoriser.apply(reponse);
+                if (resultat != null) {
+                    resultat = new Resultat(resultat.commandeId(), resultat.statutHttp(), empreinte);
+                    terminer(c, reservation, resultat);
+                } else {
+                    rendre(reservation);
+                }
+                nouveau.complete(resultat);
+                return reponse;
+            } catch (RuntimeException e) {
+                if (reservation != null) {
+                    rendre(reservation);
+                }
+                nouveau.complete(null);
+                throw e;
+            } finally {
+                enVol.remove(c, nouveau);
+            }
+        }
+    }
+
+    // Dans la transaction qui enregistre la commande créée pour une clé d'idempotence : la clé ne peut plus être
+    // reprise même si l'instance s'arrête avant d'avoir mémorisé la réponse. Sans effet hors d'executer().
+    public void associer(Long commandeId) {
+        Long reservation = reservationCourante.get();
+        if (reservation != null) {
+            cleIdempotenceRepository.associer(reservation, commandeId);
+        }
+    }
+
+    // Empreinte stable du contenu d'une requête
+    public static String empreinte(String contenu) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(contenu.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${commande.idempotence.purge-ms:3600000}")
+    public void purger() {
+        int supprimees = cleIdempotenceRepository.supprimerAvant(LocalDateTime.now().minus(retention));
+        if (supprimees > 0) {
+            logger.info("{} clés d'idempotence expirées supprimées", supprimees);
+        }
+    }
+
+    private Resultat chercher(Cle c) {
+        Resultat resultat = cache.getIfPresent(c);
+        if (resultat != null) {
+            return resultat;
+        }
+        resultat = cleIdempotenceRepository
+                .findByClientUsernameAndCleAndDateCreationAfter(c.clientUsername(), c.cle(), LocalDateTime.now().minus(retention))
+                .filter(ligne -> ligne.getCommandeId() != null)
+                .map(IdempotenceCommandes::resultat)
+                .orElse(null);
+        if (resultat != null) {
+            cache.put(c, resultat);
+        }
+        return resultat;
+    }
+
+    // Ligne réservée par cet appel (sans commande), ou ligne terminée par une autre instance.
+    // ConflitException si l'autre instance n'a pas terminé dans le délai d'attente.
+    private CleIdempotence reserver(Cle c, String empreinte) {
+        long limite = System.currentTimeMillis() + attenteMax.toMillis();
+        while (true) {
+            CleIdempotence ligne = new CleIdempotence();
+            ligne.setClientUsername(c.clientUsername());
+            ligne.setCle(c.cle());
+            ligne.setEmpreinte(empreinte);
+            ligne.setDateCreation(LocalDateTime.now());
+            try {
+                return cleIdempotenceRepository.saveAndFlush(ligne);
+            } catch (DataIntegrityViolationException e) {
+                logger.debug("Clé d'idempotence {} déjà réservée pour {}", c.cle(), c.clientUsername());
+            }
+
+            Optional<CleIdempotence> existante = cleIdempotenceRepository.findByClientUsernameAndCle(c.clientUsername(), c.cle());
+            if (existante.isEmpty()) {
+                // Rendue entre-temps (échec de la première tentative) : nouvelle réservation
+                continue;
+            }
+            CleIdempotence autre = existante.get();
+            if (!autre.getEmpreinte().equals(empreinte)) {
+                throw new ConflitException("Clé d'idempotence déjà utilisée pour une autre commande");
+            }
+            if (autre.getCommandeId() != null) {
+                return autre;
+            }
+            if (autre.getDateCreation().isBefore(LocalDateTime.now().minus(abandon))) {
+                // Aucune commande associée : l'instance qui l'avait réservée s'est arrêtée avant de l'enregistrer
+                logger.warn("Réservation abandonnée de la clé d'idempotence {} pour {}, reprise", c.cle(), c.clientUsername());
+                cleIdempotenceRepository.supprimerSansCommande(autre.getId());
+                continue;
+            }
+            if (System.currentTimeMillis() > limite) {
+                throw new ConflitException("Requête " + c.cle() + " toujours en cours");
+            }
+            try {
+                Thread.sleep(ATTENTE_LECTURE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Attente de la requête " + c.cle() + " interrompue");
+            }
+        }
+    }
+
+    private void terminer(Cle c, Long reservation, Resultat resultat) {
+        cache.put(c, resultat);
+        cleIdempotenceRepository.terminer(reservation, resultat.commandeId(), resultat.statutHttp());
+    }
+
+    // Création échouée : la clé est libérée pour une nouvelle tentative
+    private void rendre(Long reservation) {
+        try {
+            cleIdempotenceRepository.supprimerSansCommande(reservation);
+        } catch (RuntimeException e) {
+            // Reprise possible après le délai d'abandon
+            logger.warn("Réservation de clé d'idempotence {} non rendue: {}", reservation, e.getMessage());
+        }
+    }
+
+    // Instance arrêtée entre l'enregistrement de la commande et celui de la réponse : réponse de création synchrone
+    private static Resultat resultat(CleIdempotence ligne) {
+        return new Resultat(ligne.getCommandeId(), ligne.getStatutHttp() != null ? ligne.getStatutHttp() : 200, ligne.getEmpreinte());
+    }
+
+    private <T> T rejouer(Resultat resultat, String empreinte, Function<Resultat, T> rejouer) {
+        if (!resultat.empreinte().equals(empreinte)) {
+            throw new ConflitException("Clé d'idempotence déjà utilisée pour une autre commande");
+        }
+        rejouees.increment();
+        return rejouer.apply(resultat);
+    }
+
+    private Resultat attendre(CompletableFuture<Resultat> premier, String cle) {
+        try {
+            return premier.get(attenteMax.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Attente de la requête " + cle + " interrompue");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new ConflitException("Requête " + cle + " toujours en cours");
+        }
+    }
+}
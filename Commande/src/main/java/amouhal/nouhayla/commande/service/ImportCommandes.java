@@ -0,0 +1,267 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.client.ProduitDto;
+import amouhal.nouhayla.commande.client.ReservationDto;
+import amouhal.nouhayla.commande.dto.ResultatImport;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.EvenementCommande;
+import amouhal.nouhayla.commande.entity.LigneCommande;
+import amouhal.nouhayla.commande.repository.CommandeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+// Import en masse de commandes (partenaires B2B), en NDJSON ou CSV.
+// Le flux est lu au fil de l'eau et traité par lots : produits du lot chargés en une fois,
+// stock réservé commande par commande (en parallèle sur le pool de vérification),
+// puis commandes acceptées du lot écrites dans une seule transaction.
+// Les résultats d'un lot (un par commande) sont envoyés au client dès que sa transaction est validée :
+// la mémoire utilisée ne dépend que de la taille d'un lot, pas de celle du fichier.
+@Service
+public class ImportCommandes {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportCommandes.class);
+
+    public enum Format { NDJSON, CSV }
+
+    // Import accepté, dont le premier enregistrement est déjà lu (en-tête CSV contrôlé avant de répondre).
+    // traiter() lit la suite du flux et rend la place d'import, qu'il réussisse ou non.
+    public final class ImportEnCours {
+        private final LecteurImport lecteur;
+        private final LecteurImport.Enregistrement premier;
+        private final String username;
+
+        private ImportEnCours(LecteurImport lecteur, LecteurImport.Enregistrement premier, String username) {
+            this.lecteur = lecteur;
+            this.premier = premier;
+            this.username = username;
+        }
+
+        // Un résultat NDJSON par commande, écrit et envoyé lot par lot
+        public void traiter(OutputStream flux) throws IOException {
+            int[] totaux = new int[2];
+            BufferedWriter sortie = new BufferedWriter(new OutputStreamWriter(flux, StandardCharsets.UTF_8));
+            try {
+                List<LecteurImport.Enregistrement> lot = new ArrayList<>(lotTaille);
+                LecteurImport.Enregistrement enregistrement = premier;
+                while (enregistrement != null) {
+                    lot.add(enregistrement);
+                    if (lot.size() == lotTaille) {
+                        ecrire(traiterLot(lot, username), sortie, totaux);
+                        lot.clear();
+                    }
+                    enregistrement = lecteur.suivant();
+                }
+                if (!lot.isEmpty()) {
+                    ecrire(traiterLot(lot, username), sortie, totaux);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Import interrompu pour {} après {} commandes créées et {} rejetées: {}",
+                        username, totaux[0], totaux[1], e.getMessage());
+                throw e;
+            } finally {
+                imports.release();
+            }
+            logger.info("Import terminé pour {}: {} commandes créées, {} rejetées", username, totaux[0], totaux[1]);
+        }
+    }
+
+    @Autowired
+    private CommandeService commandeService;
+
+    @Autowired
+    private CommandeRepository commandeRepository;
+
+    @Autowired
+    private StatistiquesCommandes statistiquesCommandes;
+
+    @Autowired
+    private EvenementsCommandes evenementsCommandes;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("verificationExecutor")
+    private ExecutorService verificationExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Commandes traitées et écrites par transaction
+    @Value("${commande.import.lot-taille:200}")
+    private int lotTaille;
+
+    // Taille maximale d'une ligne du fichier (caractères) et nombre maximal de lignes par commande
+    @Value("${commande.import.ligne-max:65536}")
+    private int ligneMax;
+
+    @Value("${commande.import.lignes-max-par-commande:1000}")
+    private int lignesMaxParCommande;
+
+    // Imports traités en même temps ; au-delà, la requête est refusée (429)
+    @Value("${commande.import.simultanes-max:2}")
+    private int simultanesMax;
+
+    private Semaphore imports;
+    private Counter creees;
+    private Counter rejetees;
+
+    @PostConstruct
+    public void initialiser() {
+        imports = new Semaphore(simultanesMax);
+        creees = Counter.builder("commande.import.commandes")
+                .tag("statut", ResultatImport.CREEE)
+                .description("Commandes importées en masse")
+                .register(meterRegistry);
+        rejetees = Counter.builder("commande.import.commandes")
+                .tag("statut", ResultatImport.REJETEE)
+                .description("Commandes importées en masse")
+                .register(meterRegistry);
+    }
+
+    // null si le nombre maximal d'imports simultanés est atteint
+    public ImportEnCours demarrer(InputStream flux, Format format, String username) throws IOException {
+        if (!imports.tryAcquire()) {
+            logger.warn("Import refusé pour {}: {} imports déjà en cours", username, simultanesMax);
+            return null;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(flux, StandardCharsets.UTF_8));
+            LecteurImport lecteur = format == Format.CSV
+                    ? LecteurImport.csv(reader, ligneMax, lignesMaxParCommande)
+                    : LecteurImport.ndjson(reader, objectMapper, ligneMax, lignesMaxParCommande);
+            logger.info("Import {} de commandes pour {}", format, username);
+            return new ImportEnCours(lecteur, lecteur.suivant(), username);
+        } catch (IOException | RuntimeException e) {
+            imports.release();
+            throw e;
+        }
+    }
+
+    private List<ResultatImport> traiterLot(List<LecteurImport.Enregistrement> lot, String username) {
+        ResultatImport[] resultats = new ResultatImport[lot.size()];
+        Map<Integer, Commande> commandes = new LinkedHashMap<>();
+        List<LigneCommande> lignes = new ArrayList<>();
+        for (int i = 0; i < lot.size(); i++) {
+            LecteurImport.Enregistrement enregistrement = lot.get(i);
+            if (enregistrement.erreur() != null) {
+                resultats[i] = rejet(enregistrement, enregistrement.erreur());
+                continue;
+            }
+            Commande commande = new Commande();
+            commande.setClientUsername(username);
+            commande.setLignes(new ArrayList<>(enregistrement.lignes()));
+            commande.getLignes().forEach(ligne -> ligne.setCommande(commande));
+            commandes.put(i, commande);
+            lignes.addAll(enregistrement.lignes());
+        }
+
+        // Un seul chargement des produits pour tout le lot
+        Map<Long, ProduitDto> produits;
+        try {
+            produits = lignes.isEmpty() ? Map.of() : commandeService.chargerProduits(lignes);
+        } catch (RuntimeException e) {
+            commandes.keySet().forEach(i -> resultats[i] = rejet(lot.get(i), e.getMessage()));
+            return List.of(resultats);
+        }
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        Map<Integer, Future<ReservationDto>> reservations = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Commande> entree : commandes.entrySet()) {
+            Commande commande = entree.getValue();
+            try {
+                commandeService.appliquerPrix(commande, produits);
+            } catch (RuntimeException e) {
+                resultats[entree.getKey()] = rejet(lot.get(entree.getKey()), e.getMessage());
+                continue;
+            }
+            commande.setDateCommande(maintenant);
+            commande.setStatut(Commande.EN_COURS);
+            reservations.put(entree.getKey(), verificationExecutor.submit(() -> commandeService.reserverStock(commande, produits)));
+        }
+
+        Map<Integer, ReservationDto> reservees = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Future<ReservationDto>> entree : reservations.entrySet()) {
+            try {
+                reservees.put(entree.getKey(), entree.getValue().get());
+            } catch (ExecutionException e) {
+                resultats[entree.getKey()] = rejet(lot.get(entree.getKey()), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reservations.values().forEach(future -> future.cancel(true));
+                throw new RuntimeException("Import interrompu");
+            }
+        }
+
+        List<Commande> acceptees = new ArrayList<>();
+        reservees.keySet().forEach(i -> acceptees.add(commandes.get(i)));
+        try {
+            statistiquesCommandes.preparer(acceptees);
+            transactionTemplate.executeWithoutResult(statut -> {
+                commandeRepository.saveAll(acceptees);
+                statistiquesCommandes.comptabiliser(acceptees);
+                evenementsCommandes.enregistrer(EvenementCommande.CREEE, acceptees);
+            });
+            for (Integer i : reservees.keySet()) {
+                LecteurImport.Enregistrement enregistrement = lot.get(i);
+                resultats[i] = new ResultatImport(enregistrement.numero(), enregistrement.reference(),
+                        ResultatImport.CREEE, commandes.get(i).getId(), null);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Échec de l'enregistrement d'un lot de {} commandes importées, libération du stock réservé", acceptees.size());
+            reservees.values().forEach(commandeService::libererStock);
+            reservees.keySet().forEach(i -> resultats[i] = rejet(lot.get(i), "Erreur lors de l'enregistrement de la commande"));
+        }
+        return List.of(resultats);
+    }
+
+    private void ecrire(List<ResultatImport> resultats, BufferedWriter sortie, int[] totaux) throws IOException {
+        for (ResultatImport resultat : resultats) {
+            sortie.write(objectMapper.writeValueAsString(resultat));
+            sortie.newLine();
+            if (ResultatImport.CREEE.equals(resultat.getStatut())) {
+                totaux[0]++;
+                creees.increment();
+            } else {
+                totaux[1]++;
+                rejetees.increment();
+            }
+        }
+        // Lot validé : ses résultats partent sans attendre la fin du fichier
+        sortie.flush();
+    }
+
+    private static ResultatImport rejet(LecteurImport.Enregistrement enregistrement, String motif) {
+        return new ResultatImport(enregistrement.numero(), enregistrement.reference(), ResultatImport.REJETEE, null, motif);
+    }
+}
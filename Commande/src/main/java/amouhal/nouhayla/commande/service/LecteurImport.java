@@ -0,0 +1,225 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.dto.CreateCommandeRequest;
+import amouhal.nouhayla.commande.entity.LigneCommande;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lecture incrémentale d'un fichier d'import, une commande à la fois : seule la commande en cours est en mémoire.
+// - NDJSON : une commande par ligne, {"reference": "...", "lignes": [{"produitId": 1, "quantite": 2}]}
+// - CSV : en-tête commande,produitId,quantite puis une ligne de commande par ligne ;
+//   les lignes consécutives de même référence forment une commande.
+abstract class LecteurImport {
+
+    // Une commande lue ; erreur renseignée si elle est mal formée (elle sera rejetée sans être traitée)
+    record Enregistrement(int numero, String reference, List<LigneCommande> lignes, String erreur) {}
+
+    private final Reader reader;
+    private final int ligneMax;
+    protected final int lignesMaxParCommande;
+    private int numero;
+    private boolean ligneTropLongue;
+
+    protected LecteurImport(Reader reader, int ligneMax, int lignesMaxParCommande) {
+        this.reader = reader;
+        this.ligneMax = ligneMax;
+        this.lignesMaxParCommande = lignesMaxParCommande;
+    }
+
+    static LecteurImport ndjson(Reader reader, ObjectMapper objectMapper, int ligneMax, int lignesMaxParCommande) {
+        return new Ndjson(reader, objectMapper, ligneMax, lignesMaxParCommande);
+    }
+
+    static LecteurImport csv(Reader reader, int ligneMax, int lignesMaxParCommande) {
+        return new Csv(reader, ligneMax, lignesMaxParCommande);
+    }
+
+    // Commande suivante, null en fin de flux
+    abstract Enregistrement suivant() throws IOException;
+
+    protected Enregistrement enregistrement(String reference, List<LigneCommande> lignes, String erreur) {
+        return new Enregistrement(++numero, reference, lignes, erreur);
+    }
+
+    // Ligne suivante sans fin de ligne, null en fin de flux. Au-delà de ligneMax caractères
+    // le reste est lu sans être conservé et ligneTropLongue() renvoie true.
+    protected String lireLigne() throws IOException {
+        StringBuilder ligne = new StringBuilder();
+        ligneTropLongue = false;
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        while (c != -1 && c != '\n') {
+            if (ligne.length() < ligneMax) {
+                ligne.append((char) c);
+            } else {
+                ligneTropLongue = true;
+            }
+            c = reader.read();
+        }
+        int fin = ligne.length();
+        if (fin > 0 && ligne.charAt(fin - 1) == '\r') {
+            ligne.setLength(fin - 1);
+        }
+        return ligne.toString();
+    }
+
+    protected boolean ligneTropLongue() {
+        return ligneTropLongue;
+    }
+
+    protected static String controlerLigne(LigneCommande ligne) {
+        if (ligne.getProduitId() == null) {
+            return "Ligne de commande sans produit";
+        }
+        if (ligne.getQuantite() == null || ligne.getQuantite() <= 0) {
+            return "Quantité invalide pour le produit " + ligne.getProduitId();
+        }
+        return null;
+    }
+
+    private static class Ndjson extends LecteurImport {
+        private final ObjectMapper objectMapper;
+
+        Ndjson(Reader reader, ObjectMapper objectMapper, int ligneMax, int lignesMaxParCommande) {
+            super(reader, ligneMax, lignesMaxParCommande);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Enregistrement suivant() throws IOException {
+            String texte;
+            do {
+                texte = lireLigne();
+            } while (texte != null && texte.isBlank() && !ligneTropLongue());
+            if (texte == null) {
+                return null;
+            }
+            if (ligneTropLongue()) {
+                return enregistrement(null, List.of(), "Ligne trop longue");
+            }
+
+            JsonNode noeud;
+            CreateCommandeRequest requete;
+            try {
+                noeud = objectMapper.readTree(texte);
+                requete = objectMapper.treeToValue(noeud, CreateCommandeRequest.class);
+            } catch (IOException e) {
+                return enregistrement(null, List.of(), "JSON invalide");
+            }
+            String reference = noeud.hasNonNull("reference") ? noeud.get("reference").asText() : null;
+            if (requete.getLignes() == null || requete.getLignes().isEmpty()) {
+                return enregistrement(reference, List.of(), "Commande sans ligne");
+            }
+            if (requete.getLignes().size() > lignesMaxParCommande) {
+                return enregistrement(reference, List.of(), "Trop de lignes dans la commande");
+            }
+            List<LigneCommande> lignes = new ArrayList<>();
+            for (CreateCommandeRequest.LigneCommandeDto dto : requete.getLignes()) {
+                LigneCommande ligne = new LigneCommande();
+                ligne.setProduitId(dto.getProduitId());
+                ligne.setQuantite(dto.getQuantite());
+                String erreur = controlerLigne(ligne);
+                if (erreur != null) {
+                    return enregistrement(reference, List.of(), erreur);
+                }
+                lignes.add(ligne);
+            }
+            return enregistrement(reference, lignes, null);
+        }
+    }
+
+    private static class Csv extends LecteurImport {
+        private static final String EN_TETE = "commande,produitId,quantite";
+
+        private boolean enTeteLu;
+        // Première ligne de la commande suivante, lue en avance pour détecter le changement de référence
+        private String[] enAvance;
+
+        Csv(Reader reader, int ligneMax, int lignesMaxParCommande) {
+            super(reader, ligneMax, lignesMaxParCommande);
+        }
+
+        @Override
+        Enregistrement suivant() throws IOException {
+            if (!enTeteLu) {
+                enTeteLu = true;
+                String enTete = lireLigne();
+                if (enTete == null) {
+                    return null;
+                }
+                if (!EN_TETE.equalsIgnoreCase(enTete.replace(" ", ""))) {
+                    throw new IllegalArgumentException("En-tête CSV attendu: " + EN_TETE);
+                }
+            }
+
+            String[] colonnes = enAvance != null ? enAvance : lireColonnes();
+            enAvance = null;
+            if (colonnes == null) {
+                return null;
+            }
+            String reference = colonnes[0];
+            List<LigneCommande> lignes = new ArrayList<>();
+            String erreur = null;
+            while (colonnes != null && colonnes[0].equals(reference)) {
+                if (erreur == null) {
+                    erreur = ajouterLigne(lignes, colonnes);
+                }
+                if (erreur != null) {
+                    // Les lignes déjà lues ne servent plus : la commande sera rejetée
+                    lignes.clear();
+                }
+                colonnes = lireColonnes();
+            }
+            enAvance = colonnes;
+            return enregistrement(reference, erreur == null ? lignes : List.of(), erreur);
+        }
+
+        private String ajouterLigne(List<LigneCommande> lignes, String[] colonnes) {
+            if (colonnes.length != 3) {
+                return "Ligne CSV invalide";
+            }
+            if (lignes.size() >= lignesMaxParCommande) {
+                return "Trop de lignes dans la commande";
+            }
+            LigneCommande ligne = new LigneCommande();
+            try {
+                ligne.setProduitId(Long.parseLong(colonnes[1]));
+                ligne.setQuantite(Integer.parseInt(colonnes[2]));
+            } catch (NumberFormatException e) {
+                return "Ligne CSV invalide";
+            }
+            String erreur = controlerLigne(ligne);
+            if (erreur == null) {
+                lignes.add(ligne);
+            }
+            return erreur;
+        }
+
+        // Colonnes de la ligne suivante non vide, null en fin de flux
+        private String[] lireColonnes() throws IOException {
+            String texte;
+            do {
+                texte = lireLigne();
+            } while (texte != null && texte.isBlank() && !ligneTropLongue());
+            if (texte == null) {
+                return null;
+            }
+            String[] colonnes = texte.split(",", -1);
+            if (ligneTropLongue()) {
+                // Seule la référence est gardée : la ligne sera jugée invalide, et avec elle sa commande
+                return new String[]{colonnes[0].trim()};
+            }
+            for (int i = 0; i < colonnes.length; i++) {
+                colonnes[i] = colonnes[i].trim();
+            }
+            return colonnes;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.client.ProduitDto;
+import amouhal.nouhayla.commande.client.ReservationDto;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.EvenementCommande;
+import amouhal.nouhayla.commande.entity.LigneCommande;
+import amouhal.nouhayla.commande.repository.CommandeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Réception asynchrone des commandes (Prefer: respond-async) :
+// - la requête n'attend que l'enregistrement de la commande EN_ATTENTE, qui lui donne son id ;
+// - un thread unique vide la file par lots : produits chargés une fois pour le lot, stock réservé
+//   commande par commande avec le JWT de son client, puis tous les résultats (EN_COURS ou REJETEE)
+//   écrits dans une seule transaction.
+// La file est bornée : quand elle est pleine, soumettre() refuse et le contrôleur répond 429.
+// Si l'écriture d'un lot échoue, son stock est libéré et ses commandes sont rejetées dans une autre transaction.
+// Une commande encore EN_ATTENTE après abandon-apres (redémarrage, panne d'une instance) est rejetée par le
+// contrôle périodique : le jeton de son client n'est pas conservé, elle ne peut plus être vérifiée. Le stock
+// qu'elle a pu réserver (id de réservation dérivé de son id) est d'abord libéré avec le compte de service.
+@Service
+public class ReceptionCommandes {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceptionCommandes.class);
+
+    @Autowired
+    private CommandeService commandeService;
+
+    @Autowired
+    private CommandeRepository commandeRepository;
+
+    @Autowired
+    private StatistiquesCommandes statistiquesCommandes;
+
+    @Autowired
+    private EvenementsCommandes evenementsCommandes;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${commande.reception.asynchrone.actif:false}")
+    private boolean actif;
+
+    // Commandes acceptées mais pas encore traitées
+    @Value("${commande.reception.file-taille:1000}")
+    private int fileTaille;
+
+    // Commandes traitées et écrites par transaction
+    @Value("${commande.reception.lot-taille:50}")
+    private int lotTaille;
+
+    // Attente maximale pour compléter un lot une fois la première commande arrivée
+    @Value("${commande.reception.lot-attente:5ms}")
+    private Duration lotAttente;
+
+    // Âge au-delà duquel une commande EN_ATTENTE n'est plus en cours de traitement, sur aucune instance
+    @Value("${commande.reception.abandon-apres:10m}")
+    private Duration abandonApres;
+
+    private final BlockingQueue<Demande> file = new LinkedBlockingQueue<>();
+    private Semaphore places;
+    private Thread traitement;
+    private volatile boolean arrete;
+    private Counter acceptees;
+    private Counter refusees;
+    private DistributionSummary tailleLots;
+
+    // Commande reçue et contexte de sécurité de son client (FeignClientInterceptor y lit le JWT)
+    private record Demande(Long commandeId, SecurityContext contexte) {}
+
+    // Résultat du traitement d'une commande, appliqué ensuite dans la transaction du lot
+    private record Resultat(Demande demande, Commande commande, ReservationDto reservation) {}
+
+    @PostConstruct
+    public void initialiser() {
+        rejeterAbandonnees();
+        if (!actif) {
+            return;
+        }
+        places = new Semaphore(fileTaille);
+        acceptees = Counter.builder("commande.reception.acceptees")
+                .description("Commandes acceptées en réception asynchrone")
+                .register(meterRegistry);
+        refusees = Counter.builder("commande.reception.refusees")
+                .description("Commandes refusées, file de réception pleine")
+                .register(meterRegistry);
+        tailleLots = DistributionSummary.builder("commande.reception.lots")
+                .description("Commandes traitées par transaction")
+                .register(meterRegistry);
+        Gauge.builder("commande.reception.file", file, BlockingQueue::size)
+                .description("Commandes en attente de traitement")
+                .register(meterRegistry);
+
+        traitement = new Thread(this::traiter, "reception-commandes");
+        traitement.setDaemon(true);
+        traitement.start();
+    }
+
+    @PreDestroy
+    public void arreter() {
+        arrete = true;
+        if (traitement != null) {
+            traitement.interrupt();
+        }
+    }
+
+    // Seules les commandes plus anciennes que abandon-apres : les plus récentes peuvent être dans la file
+    // d'une autre instance, ou le seront encore dans celle-ci. Une commande dont la réservation n'a pas pu être
+    // libérée reste EN_ATTENTE jusqu'au contrôle suivant.
+    @Scheduled(fixedDelayString = "${commande.reception.controle-ms:60000}",
+            initialDelayString = "${commande.reception.controle-ms:60000}")
+    public void rejeterAbandonnees() {
+        LocalDateTime avant = LocalDateTime.now().minus(abandonApres);
+        try {
+            List<Long> liberees = commandeRepository.findByStatutAndDateCommandeBefore(Commande.EN_ATTENTE, avant).stream()
+                    .filter(commande -> commande.getLignes() == null || commande.getLignes().isEmpty()
+                            || commandeService.libererReservation(CommandeService.reservationId(commande.getId())))
+                    .map(Commande::getId)
+                    .collect(Collectors.toList());
+            if (liberees.isEmpty()) {
+                return;
+            }
+            Integer abandonnees = transactionTemplate.execute(statut -> {
+                List<Commande> enAttente = commandeRepository.findAvecLignesByIdIn(liberees).stream()
+                        .filter(commande -> Commande.EN_ATTENTE.equals(commande.getStatut()))
+                        .collect(Collectors.toList());
+                rejeter(enAttente, "Traitement interrompu (commande en attente depuis plus de " + abandonApres.toMinutes() + " min)");
+                return enAttente.size();
+            });
+            if (abandonnees > 0) {
+                logger.warn("{} commandes en attente depuis avant le {} rejetées", abandonnees, avant);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Échec du rejet des commandes abandonnées: {}", e.getMessage(), e);
+        }
+    }
+
+    public boolean isActif() {
+        return actif;
+    }
+
+    // Enregistre la commande EN_ATTENTE et la confie au traitement ; null si la file est pleine
+    public Commande soumettre(Commande commande) {
+        validerForme(commande);
+        if (!places.tryAcquire()) {
+            refusees.increment();
+            logger.warn("File de réception pleine ({} commandes), commande de {} refusée", fileTaille, commande.getClientUsername());
+            return null;
+        }
+        Commande enregistree;
+        try {
+            enregistree = commandeService.enregistrerEnAttente(commande);
+        } catch (RuntimeException e) {
+            places.release();
+            throw e;
+        }
+        file.add(new Demande(enregistree.getId(), SecurityContextHolder.getContext()));
+        acceptees.increment();
+        return enregistree;
+    }
+
+    // Seule la forme est contrôlée à la réception ; produits et stock le sont par le traitement
+    private void validerForme(Commande commande) {
+        if (commande.getLignes() == null) {
+            return;
+        }
+        for (LigneCommande ligne : commande.getLignes()) {
+            if (ligne.getProduitId() == null) {
+                throw new IllegalArgumentException("Ligne de commande sans produit");
+            }
+            if (ligne.getQuantite() == null || ligne.getQuantite() <= 0) {
+                throw new IllegalArgumentException("Quantité invalide pour le produit " + ligne.getProduitId());
+            }
+        }
+    }
+
+    private void traiter() {
+        List<Demande> lot = new ArrayList<>(lotTaille);
+        while (!arrete) {
+            try {
+                lot.add(file.take());
+                long limite = System.nanoTime() + lotAttente.toNanos();
+                while (lot.size() < lotTaille) {
+                    file.drainTo(lot, lotTaille - lot.size());
+                    long reste = limite - System.nanoTime();
+                    if (lot.size() >= lotTaille || reste <= 0) {
+                        break;
+                    }
+                    Demande suivante = file.poll(reste, TimeUnit.NANOSECONDS);
+                    if (suivante == null) {
+                        break;
+                    }
+                    lot.add(suivante);
+                }
+                places.release(lot.size());
+                traiterLot(lot);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Commandes du lot restées EN_ATTENTE : rejetées par rejeterAbandonnees()
+                logger.error("Échec du traitement d'un lot de {} commandes: {}", lot.size(), e.getMessage(), e);
+            } finally {
+                lot.clear();
+            }
+        }
+    }
+
+    private void traiterLot(List<Demande> lot) {
+        Map<Long, Commande> commandes = commandeRepository.findAvecLignesByIdIn(
+                        lot.stream().map(Demande::commandeId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Commande::getId, Function.identity()));
+
+        Map<Long, ProduitDto> produitsDuLot = chargerProduitsDuLot(lot, commandes);
+
+        List<Resultat> resultats = new ArrayList<>(lot.size());
+        for (Demande demande : lot) {
+            Commande commande = commandes.get(demande.commandeId());
+            if (commande != null) {
+                resultats.add(verifier(demande, commande, produitsDuLot));
+            }
+        }
+
+        try {
+            // Seules les commandes passées EN_COURS sont comptabilisées
+            List<Commande> traitees = resultats.stream().map(Resultat::commande).collect(Collectors.toList());
+            statistiquesCommandes.preparer(traitees);
+            transactionTemplate.executeWithoutResult(statut ->
+                    statistiquesCommandes.comptabiliser(ecrire(resultats)));
+            tailleLots.record(resultats.size());
+            logger.info("Lot de {} commandes traité", resultats.size());
+        } catch (RuntimeException e) {
+            logger.error("Échec de l'écriture d'un lot de {} commandes, libération du stock réservé", resultats.size(), e);
+            resultats.forEach(this::liberer);
+            rejeterLot(resultats, "Échec de l'enregistrement du traitement: " + e.getMessage());
+        }
+    }
+
+    // Transaction distincte de celle du lot annulé ; si elle échoue aussi, rejeterAbandonnees() s'en charge
+    private void rejeterLot(List<Resultat> resultats, String motif) {
+        try {
+            transactionTemplate.executeWithoutResult(statut -> {
+                List<Commande> commandes = commandeRepository.findAvecLignesByIdIn(resultats.stream()
+                                .map(resultat -> resultat.commande().getId())
+                                .collect(Collectors.toList()))
+                        .stream()
+                        .filter(commande -> Commande.EN_ATTENTE.equals(commande.getStatut()))
+                        .collect(Collectors.toList());
+                rejeter(commandes, motif);
+            });
+        } catch (RuntimeException e) {
+            logger.error("Impossible de rejeter les {} commandes du lot: {}", resultats.size(), e.getMessage());
+        }
+    }
+
+    private void rejeter(List<Commande> commandes, String motif) {
+        for (Commande commande : commandes) {
+            commande.setStatut(Commande.REJETEE);
+            commande.setMotifRejet(motif);
+        }
+        evenementsCommandes.enregistrer(EvenementCommande.STATUT_MODIFIE, commandes);
+    }
+
+    private void liberer(Resultat resultat) {
+        sousContexte(resultat.demande(), () -> {
+            commandeService.libererStock(resultat.reservation());
+            return null;
+        });
+    }
+
+    // Un seul chargement pour toutes les lignes du lot ; en cas d'échec, chaque commande recharge ses produits
+    private Map<Long, ProduitDto> chargerProduitsDuLot(List<Demande> lot, Map<Long, Commande> commandes) {
+        List<LigneCommande> lignes = new ArrayList<>();
+        commandes.values().forEach(commande -> lignes.addAll(commande.getLignes()));
+        if (lignes.isEmpty()) {
+            return new HashMap<>();
+        }
+        try {
+            return sousContexte(lot.get(0), () -> commandeService.chargerProduits(lignes));
+        } catch (RuntimeException e) {
+            logger.warn("Chargement groupé des produits impossible, chargement par commande: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Contrôle et réservation d'une commande ; un refus la rejette sans affecter le reste du lot
+    private Resultat verifier(Demande demande, Commande commande, Map<Long, ProduitDto> produitsDuLot) {
+        ReservationDto reservation = null;
+        try {
+            reservation = sousContexte(demande, () -> {
+                Map<Long, ProduitDto> produits = produitsDuLot != null
+                        ? produitsDuLot
+                        : commandeService.chargerProduits(commande.getLignes());
+                commandeService.appliquerPrix(commande, produits);
+                return commandeService.reserverStock(commande, produits);
+            });
+            commande.setStatut(Commande.EN_COURS);
+        } catch (RuntimeException e) {
+            logger.warn("Commande {} rejetée: {}", commande.getId(), e.getMessage());
+            commande.setStatut(Commande.REJETEE);
+            commande.setMotifRejet(e.getMessage());
+        }
+        return new Resultat(demande, commande, reservation);
+    }
+
+    // Recharge le lot dans la transaction et y reporte les résultats : les UPDATE partent groupés au commit.
+    // Une commande qui n'est plus EN_ATTENTE (rejetée entre-temps comme abandonnée) garde son statut et rend
+    // son stock. Renvoie les commandes effectivement écrites.
+    private List<Commande> ecrire(List<Resultat> resultats) {
+        Map<Long, Commande> gerees = commandeRepository.findAvecLignesByIdIn(
+                        resultats.stream().map(resultat -> resultat.commande().getId()).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Commande::getId, Function.identity()));
+        List<Commande> ecrites = new ArrayList<>(resultats.size());
+        for (Resultat resultat : resultats) {
+            Commande traitee = resultat.commande();
+            Commande geree = gerees.get(traitee.getId());
+            if (geree == null || !Commande.EN_ATTENTE.equals(geree.getStatut())) {
+                logger.warn("Commande {} déjà traitée ailleurs, résultat ignoré", traitee.getId());
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        liberer(resultat);
+                    }
+                });
+                continue;
+            }
+            ecrites.add(traitee);
+            geree.setStatut(traitee.getStatut());
+            geree.setMotifRejet(traitee.getMotifRejet());
+            if (Commande.EN_COURS.equals(traitee.getStatut())) {
+                geree.setMontantTotal(traitee.getMontantTotal());
+                Map<Long, Double> prix = new HashMap<>();
+                traitee.getLignes().forEach(ligne -> prix.put(ligne.getId(), ligne.getPrix()));
+                geree.getLignes().forEach(ligne -> ligne.setPrix(prix.get(ligne.getId())));
+            }
+        }
+        evenementsCommandes.enregistrer(EvenementCommande.STATUT_MODIFIE, ecrites.stream()
+                .map(commande -> gerees.get(commande.getId()))
+                .collect(Collectors.toList()));
+        return ecrites;
+    }
+
+    private <T> T sousContexte(Demande demande, Supplier<T> action) {
+        SecurityContextHolder.setContext(demande.contexte());
+        try {
+            return action.get();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
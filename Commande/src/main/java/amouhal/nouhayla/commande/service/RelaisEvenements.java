@@ -0,0 +1,88 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.entity.EvenementCommande;
+import amouhal.nouhayla.commande.journal.JournalEvenements;
+import amouhal.nouhayla.commande.repository.EvenementCommandeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+
+// Recopie les événements de la boîte d'envoi dans le journal local, par lots, puis les supprime.
+// Le journal est forcé sur disque avant la suppression : un arrêt entre les deux recopie à nouveau
+// le lot (livraison au moins une fois), les consommateurs dédupliquent sur l'id de l'événement.
+// Un seul relais par base de commandes.
+@Service
+public class RelaisEvenements {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelaisEvenements.class);
+
+    @Autowired
+    private EvenementCommandeRepository evenementCommandeRepository;
+
+    @Autowired
+    private JournalEvenements journalEvenements;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${commande.evenements.lot-taille:500}")
+    private int lotTaille;
+
+    private Counter publies;
+
+    @PostConstruct
+    public void initialiser() {
+        publies = Counter.builder("commande.evenements.publies")
+                .description("Événements de commande recopiés dans le journal")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${commande.evenements.relais-ms:200}")
+    public synchronized void relayer() {
+        try {
+            int recopies;
+            do {
+                recopies = relayerLot();
+            } while (recopies == lotTaille);
+        } catch (IOException | RuntimeException e) {
+            // Les événements restent dans la boîte d'envoi : nouvel essai au prochain passage
+            logger.error("Échec de la recopie des événements de commande: {}", e.getMessage(), e);
+        }
+    }
+
+    private int relayerLot() throws IOException {
+        List<EvenementCommande> lot = evenementCommandeRepository.findByOrderById(PageRequest.of(0, lotTaille));
+        if (lot.isEmpty()) {
+            return 0;
+        }
+        for (EvenementCommande evenement : lot) {
+            ObjectNode enveloppe = objectMapper.createObjectNode();
+            enveloppe.put("id", evenement.getId());
+            enveloppe.put("type", evenement.getType());
+            enveloppe.put("commandeId", evenement.getCommandeId());
+            enveloppe.put("date", evenement.getDateCreation().toString());
+            enveloppe.set("commande", objectMapper.readTree(evenement.getContenu()));
+            journalEvenements.ajouter(objectMapper.writeValueAsBytes(enveloppe));
+        }
+        journalEvenements.forcer();
+        evenementCommandeRepository.deleteAllInBatch(lot);
+        publies.increment(lot.size());
+        logger.debug("{} événements de commande recopiés dans le journal", lot.size());
+        return lot.size();
+    }
+}
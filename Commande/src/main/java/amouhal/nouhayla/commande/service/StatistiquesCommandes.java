@@ -0,0 +1,276 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.dto.CommandeResponse;
+import amouhal.nouhayla.commande.dto.LigneCommandeResponse;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.LigneCommande;
+import amouhal.nouhayla.commande.entity.StatistiqueClient;
+import amouhal.nouhayla.commande.entity.StatistiqueJour;
+import amouhal.nouhayla.commande.entity.StatistiqueProduit;
+import amouhal.nouhayla.commande.repository.StatistiqueClientRepository;
+import amouhal.nouhayla.commande.repository.StatistiqueJourRepository;
+import amouhal.nouhayla.commande.repository.StatistiqueProduitRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+// Statistiques des commandes acceptées (EN_COURS) pour les tableaux de bord administrateur :
+// totaux par jour, par client et par produit, tenus à jour à chaque commande acceptée
+// au lieu d'être recalculés sur tout l'historique à chaque consultation.
+// - preparer(), avant la transaction : crée les lignes manquantes (à zéro), chacune dans sa propre transaction ;
+// - comptabiliser(), dans la transaction qui accepte les commandes : incréments atomiques (UPDATE ... + n),
+//   annulés avec elle. Les lignes sont mises à jour dans un ordre fixe pour éviter les interblocages.
+//   Le jour courant, incrémenté par toutes les commandes, est réparti sur tranches-jour lignes (StatistiqueJour).
+// reconstruire() recalcule tout depuis les commandes, archivées comprises (reprise de l'historique, correction après incident),
+// sans verrouiller les lignes pendant le calcul.
+@Service
+public class StatistiquesCommandes {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatistiquesCommandes.class);
+
+    // Écart de chiffre d'affaires dû aux seuls arrondis des sommes, ignoré par la reconstruction
+    private static final double ECART_MONTANT_NEGLIGEABLE = 1e-6;
+
+    @Autowired
+    private StatistiqueJourRepository statistiqueJourRepository;
+
+    @Autowired
+    private StatistiqueClientRepository statistiqueClientRepository;
+
+    @Autowired
+    private StatistiqueProduitRepository statistiqueProduitRepository;
+
+    @Autowired
+    private ArchivageCommandes archivageCommandes;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Clés dont la ligne existe déjà : évite une lecture par clé à chaque commande
+    @Value("${commande.statistiques.cles-connues-max:100000}")
+    private long clesConnuesMax;
+
+    // Reconstruction complète au démarrage (--commande.statistiques.reconstruction=true pour une reprise)
+    @Value("${commande.statistiques.reconstruction:false}")
+    private boolean reconstructionAuDemarrage;
+
+    // Lignes par jour : autant de commandes du même jour peuvent être comptabilisées sans s'attendre
+    @Value("${commande.statistiques.tranches-jour:8}")
+    private int tranchesJour;
+
+    // Nombre maximal d'éléments renvoyés par les classements
+    @Value("${commande.statistiques.classement-max:100}")
+    private int classementMax;
+
+    private Cache<Object, Boolean> clesConnues;
+
+    // Lecture de la reconstruction : toutes ses requêtes voient la même image de la base
+    private TransactionTemplate instantane;
+
+    // Totaux d'un lot de commandes, par clé triée
+    private record Totaux(Map<LocalDate, double[]> jours, Map<String, double[]> clients, Map<Long, double[]> produits) {}
+
+    @PostConstruct
+    public void initialiser() {
+        clesConnues = Caffeine.newBuilder().maximumSize(clesConnuesMax).build();
+        instantane = new TransactionTemplate(transactionManager);
+        instantane.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        instantane.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruireAuDemarrage() {
+        if (reconstructionAuDemarrage) {
+            reconstruire();
+        }
+    }
+
+    // Hors transaction, avant l'enregistrement des commandes
+    public void preparer(Collection<Commande> commandes) {
+        preparer(totaux(commandes));
+    }
+
+    private void preparer(Totaux totaux) {
+        for (LocalDate jour : totaux.jours().keySet()) {
+            for (int tranche = 0; tranche < tranchesJour; tranche++) {
+                assurer(new StatistiqueJour.Cle(jour, tranche), statistiqueJourRepository,
+                        cle -> new StatistiqueJour(cle.getJour(), cle.getTranche(), 0L, 0.0));
+            }
+        }
+        totaux.clients().keySet().forEach(client -> assurer(client, statistiqueClientRepository,
+                cle -> new StatistiqueClient(cle, 0L, 0.0)));
+        totaux.produits().keySet().forEach(produit -> assurer(produit, statistiqueProduitRepository,
+                cle -> new StatistiqueProduit(cle, 0L, 0.0)));
+    }
+
+    // Dans la transaction qui enregistre les commandes acceptées, après preparer()
+    public void comptabiliser(Collection<Commande> commandes) {
+        Totaux totaux = totaux(commandes);
+        totaux.jours().forEach((jour, t) -> {
+            int tranche = ThreadLocalRandom.current().nextInt(tranchesJour);
+            verifier(statistiqueJourRepository.ajouter(jour, tranche, (long) t[0], t[1]), new StatistiqueJour.Cle(jour, tranche));
+        });
+        totaux.clients().forEach((client, t) -> verifier(
+                statistiqueClientRepository.ajouter(client, (long) t[0], t[1]), client));
+        totaux.produits().forEach((produit, t) -> verifier(
+                statistiqueProduitRepository.ajouter(produit, (long) t[0], t[1]), produit));
+    }
+
+    // Recalcule toutes les statistiques depuis les commandes, sans bloquer les commandes acceptées entre-temps :
+    // - une transaction en lecture seule (REPEATABLE_READ : une seule image de la base) lit les lignes actuelles
+    //   et recalcule les totaux ; une commande validée avant cette image y figure deux fois (dans sa ligne et dans
+    //   le recalcul), une commande validée après n'y figure pas du tout ;
+    // - l'écart (recalcul - lignes lues) est ensuite ajouté aux lignes par les mêmes incréments que comptabiliser(),
+    //   dans une courte transaction : les commandes validées pendant le calcul sont conservées.
+    public void reconstruire() {
+        logger.info("Reconstruction des statistiques de commandes");
+        long debut = System.currentTimeMillis();
+        Totaux ecarts = new Totaux(new TreeMap<>(), new TreeMap<>(), new TreeMap<>());
+        instantane.executeWithoutResult(statut -> {
+            statistiqueJourRepository.findTotaux().forEach(s ->
+                    ajouter(ecarts.jours(), s.getJour(), -s.getNombreCommandes(), -s.getChiffreAffaires()));
+            statistiqueClientRepository.findAll().forEach(s ->
+                    ajouter(ecarts.clients(), s.getClientUsername(), -s.getNombreCommandes(), -s.getChiffreAffaires()));
+            statistiqueProduitRepository.findAll().forEach(s ->
+                    ajouter(ecarts.produits(), s.getProduitId(), -s.getQuantiteVendue(), -s.getChiffreAffaires()));
+
+            statistiqueJourRepository.calculer().forEach(s ->
+                    ajouter(ecarts.jours(), s.getJour(), s.getNombreCommandes(), s.getChiffreAffaires()));
+            statistiqueClientRepository.calculer().forEach(s ->
+                    ajouter(ecarts.clients(), s.getClientUsername(), s.getNombreCommandes(), s.getChiffreAffaires()));
+            statistiqueProduitRepository.calculer().forEach(s ->
+                    ajouter(ecarts.produits(), s.getProduitId(), s.getQuantiteVendue(), s.getChiffreAffaires()));
+            archivageCommandes.parcourir(commande -> ajouterArchivee(ecarts, commande));
+        });
+        ecarts.jours().values().removeIf(StatistiquesCommandes::nul);
+        ecarts.clients().values().removeIf(StatistiquesCommandes::nul);
+        ecarts.produits().values().removeIf(StatistiquesCommandes::nul);
+
+        // Lignes des nouvelles clés créées à zéro, puis écarts reportés sur la tranche 0 de chaque jour
+        clesConnues.invalidateAll();
+        preparer(ecarts);
+        transactionTemplate.executeWithoutResult(statut -> {
+            ecarts.jours().forEach((jour, e) -> verifier(
+                    statistiqueJourRepository.ajouter(jour, 0, (long) e[0], e[1]), new StatistiqueJour.Cle(jour, 0)));
+            ecarts.clients().forEach((client, e) -> verifier(
+                    statistiqueClientRepository.ajouter(client, (long) e[0], e[1]), client));
+            ecarts.produits().forEach((produit, e) -> verifier(
+                    statistiqueProduitRepository.ajouter(produit, (long) e[0], e[1]), produit));
+        });
+        logger.info("Statistiques reconstruites en {} ms ({} jours, {} clients, {} produits corrigés)",
+                System.currentTimeMillis() - debut, ecarts.jours().size(), ecarts.clients().size(), ecarts.produits().size());
+    }
+
+    public List<StatistiqueJour> getJours(LocalDate du, LocalDate au) {
+        return statistiqueJourRepository.findTotauxByJourBetween(du, au);
+    }
+
+    public Optional<StatistiqueClient> getClient(String clientUsername) {
+        return statistiqueClientRepository.findById(clientUsername);
+    }
+
+    public Optional<StatistiqueProduit> getProduit(Long produitId) {
+        return statistiqueProduitRepository.findById(produitId);
+    }
+
+    public List<StatistiqueClient> getMeilleursClients(int taille) {
+        return statistiqueClientRepository.findByOrderByChiffreAffairesDesc(PageRequest.of(0, limiter(taille)));
+    }
+
+    public List<StatistiqueProduit> getProduitsLesPlusVendus(int taille) {
+        return statistiqueProduitRepository.findByOrderByQuantiteVendueDesc(PageRequest.of(0, limiter(taille)));
+    }
+
+    private int limiter(int taille) {
+        return Math.max(1, Math.min(taille, classementMax));
+    }
+
+    // Nombre de commandes (ou quantité vendue) et montant par jour, client et produit ; les commandes non acceptées sont ignorées
+    private static Totaux totaux(Collection<Commande> commandes) {
+        Totaux totaux = new Totaux(new TreeMap<>(), new TreeMap<>(), new TreeMap<>());
+        for (Commande commande : commandes) {
+            if (!Commande.EN_COURS.equals(commande.getStatut())) {
+                continue;
+            }
+            double montant = commande.getMontantTotal() != null ? commande.getMontantTotal() : 0.0;
+            ajouter(totaux.jours(), commande.getDateCommande().toLocalDate(), 1, montant);
+            ajouter(totaux.clients(), commande.getClientUsername(), 1, montant);
+            if (commande.getLignes() != null) {
+                for (LigneCommande ligne : commande.getLignes()) {
+                    ajouter(totaux.produits(), ligne.getProduitId(), ligne.getQuantite(), ligne.getPrix() * ligne.getQuantite());
+                }
+            }
+        }
+        return totaux;
+    }
+
+    private static void ajouterArchivee(Totaux totaux, CommandeResponse commande) {
+        if (!Commande.EN_COURS.equals(commande.getStatut())) {
+            return;
+        }
+        double montant = commande.getMontantTotal() != null ? commande.getMontantTotal() : 0.0;
+        ajouter(totaux.jours(), commande.getDateCommande().toLocalDate(), 1, montant);
+        ajouter(totaux.clients(), commande.getClientUsername(), 1, montant);
+        for (LigneCommandeResponse ligne : commande.getLignes()) {
+            ajouter(totaux.produits(), ligne.getProduitId(), ligne.getQuantite(), ligne.getPrix() * ligne.getQuantite());
+        }
+    }
+
+    private static <K> void ajouter(Map<K, double[]> totaux, K cle, double nombre, double montant) {
+        double[] total = totaux.computeIfAbsent(cle, c -> new double[2]);
+        total[0] += nombre;
+        total[1] += montant;
+    }
+
+    private static boolean nul(double[] ecart) {
+        return ecart[0] == 0 && Math.abs(ecart[1]) < ECART_MONTANT_NEGLIGEABLE;
+    }
+
+    private <K, E> void assurer(K cle, JpaRepository<E, K> repository, Function<K, E> nouvelle) {
+        if (clesConnues.getIfPresent(cle) != null) {
+            return;
+        }
+        if (!repository.existsById(cle)) {
+            try {
+                repository.save(nouvelle.apply(cle));
+            } catch (DataIntegrityViolationException e) {
+                // Créée au même moment par une autre commande
+                logger.debug("Ligne de statistiques {} déjà créée", cle);
+            }
+        }
+        clesConnues.put(cle, Boolean.TRUE);
+    }
+
+    private void verifier(int lignes, Object cle) {
+        if (lignes == 0) {
+            // Ligne absente (tranches-jour augmenté depuis preparer(), ligne supprimée à la main) : la commande reste valable
+            clesConnues.invalidate(cle);
+            logger.warn("Ligne de statistiques {} absente, commande non comptabilisée", cle);
+        }
+    }
+}
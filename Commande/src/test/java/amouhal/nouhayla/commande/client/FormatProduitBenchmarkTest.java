@@ -0,0 +1,72 @@
+package amouhal.nouhayla.commande.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Taille et coût de décodage d'une réponse de lot du service Produit, en JSON et en Smile,
+// avec les ObjectMapper que construisent les convertisseurs HTTP de Spring.
+// Lancement : mvn test -Dtest=FormatProduitBenchmarkTest -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FormatProduitBenchmarkTest {
+
+    private static final int[] TAILLES_LOT = {1, 20, 200, 2000};
+    private static final int DECODAGES = 100000;
+    private static final int ECHAUFFEMENT = 50000;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+
+    @Test
+    void tailleEtDecodage() throws Exception {
+        System.out.printf("%-8s %-6s %10s %14s%n", "lot", "format", "octets", "us/décodage");
+        for (int taille : TAILLES_LOT) {
+            // Réponse telle que la sérialise le service Produit (champs de l'entité Produit)
+            Map<String, Object> reponse = reponse(taille);
+            for (ObjectMapper mapper : new ObjectMapper[]{json, smile}) {
+                byte[] octets = mapper.writeValueAsBytes(reponse);
+                int nombre = Math.max(100, DECODAGES / taille);
+                decoder(mapper, octets, Math.max(50, ECHAUFFEMENT / taille));
+                long debut = System.nanoTime();
+                decoder(mapper, octets, nombre);
+                long duree = System.nanoTime() - debut;
+                System.out.printf("%-8d %-6s %10d %14.2f%n", taille, mapper == json ? "json" : "smile",
+                        octets.length, duree / 1000.0 / nombre);
+            }
+        }
+    }
+
+    private static void decoder(ObjectMapper mapper, byte[] octets, int nombre) throws Exception {
+        for (int i = 0; i < nombre; i++) {
+            ProduitsBatchDto lot = mapper.readValue(octets, ProduitsBatchDto.class);
+            if (lot.getProduits().isEmpty()) {
+                throw new IllegalStateException("Lot vide");
+            }
+        }
+    }
+
+    private static Map<String, Object> reponse(int taille) {
+        List<Map<String, Object>> produits = new ArrayList<>();
+        for (int i = 1; i <= taille; i++) {
+            Map<String, Object> produit = new LinkedHashMap<>();
+            produit.put("id", (long) i);
+            produit.put("reference", String.format("GEN-%07d", i));
+            produit.put("nom", "Lenovo Ordinateur portable Pro " + (100 + i % 900));
+            produit.put("description", "Ordinateur portable Lenovo Pro, coloris gris. Batterie longue durée, garantie 2 ans.");
+            produit.put("prix", 499.99 + i);
+            produit.put("quantiteStock", i % 1000);
+            produit.put("version", 0L);
+            produits.add(produit);
+        }
+        Map<String, Object> reponse = new LinkedHashMap<>();
+        reponse.put("produits", produits);
+        reponse.put("introuvables", List.of());
+        return reponse;
+    }
+}
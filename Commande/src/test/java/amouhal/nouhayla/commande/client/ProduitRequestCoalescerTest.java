@@ -0,0 +1,90 @@
+package amouhal.nouhayla.commande.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProduitRequestCoalescerTest {
+
+    private final ProduitClient produitClient = mock(ProduitClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProduitRequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new ProduitRequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "produitClient", produitClient);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "actif", true);
+        ReflectionTestUtils.setField(coalescer, "fenetre", Duration.ofMillis(200));
+        ReflectionTestUtils.setField(coalescer, "partageEntreUtilisateurs", true);
+        ReflectionTestUtils.setField(coalescer, "attenteMax", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(coalescer, "appelsMax", 2);
+        ReflectionTestUtils.setField(coalescer, "tailleBatch", 500);
+        coalescer.initialiser();
+    }
+
+    @AfterEach
+    void tearDown() {
+        coalescer.arreter();
+    }
+
+    @Test
+    void lecturesConcurrentesRegroupeesEnUnSeulAppel() throws Exception {
+        when(produitClient.getProduits(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            ProduitsBatchDto reponse = new ProduitsBatchDto();
+            for (Long id : ids) {
+                if (id == 99L) {
+                    reponse.getIntrouvables().add(id);
+                } else {
+                    ProduitDto produit = new ProduitDto();
+                    produit.setId(id);
+                    reponse.getProduits().add(produit);
+                }
+            }
+            return reponse;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(20);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<Map<Long, ProduitDto>>> resultats = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            long autre = i % 2 == 0 ? 2L : 99L;
+            resultats.add(pool.submit(() -> {
+                depart.await();
+                return coalescer.getProduits(List.of(1L, autre));
+            }));
+        }
+        depart.countDown();
+        for (Future<Map<Long, ProduitDto>> resultat : resultats) {
+            Map<Long, ProduitDto> produits = resultat.get();
+            assertEquals(1L, produits.get(1L).getId());
+            assertFalse(produits.containsKey(99L));
+        }
+        pool.shutdown();
+
+        verify(produitClient, times(1)).getProduits(anyList());
+        assertEquals(40, meterRegistry.counter("produit.coalescence.requetes").count());
+        assertEquals(37, meterRegistry.counter("produit.coalescence.partagees").count());
+    }
+}
@@ -0,0 +1,98 @@
+package amouhal.nouhayla.commande.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalEvenementsTest {
+
+    @TempDir
+    Path repertoire;
+
+    @Test
+    void lesEnregistrementsSeLisentDansLOrdreAuTraversDesSegments() throws IOException {
+        try (JournalEvenements journal = JournalEvenements.ouvrir(repertoire, 4096, 100)) {
+            for (int i = 0; i < 500; i++) {
+                assertEquals(i, journal.ajouter(("evenement-" + i).getBytes(StandardCharsets.UTF_8)));
+            }
+            journal.forcer();
+
+            assertEquals(500, journal.lire(0, 1000).size());
+            List<JournalEvenements.Enregistrement> suite = journal.lire(321, 3);
+            assertEquals(321, suite.get(0).offset());
+            assertEquals("evenement-323", new String(suite.get(2).contenu(), StandardCharsets.UTF_8));
+            assertEquals(0, journal.lire(500, 10).size());
+        }
+        assertTrue(fichiersLog() > 1);
+    }
+
+    @Test
+    void laReouvertureEcarteUnEnregistrementIncomplet() throws IOException {
+        try (JournalEvenements journal = JournalEvenements.ouvrir(repertoire, 4096, 10)) {
+            journal.ajouter("a".getBytes(StandardCharsets.UTF_8));
+            journal.ajouter("b".getBytes(StandardCharsets.UTF_8));
+        }
+        // Écriture interrompue : taille écrite, contenu et crc manquants
+        Path segment = repertoire.resolve(String.format("%020d.log", 0));
+        try (FileChannel canal = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(4).putInt(0, 5), 2 * 9);
+        }
+
+        try (JournalEvenements journal = JournalEvenements.ouvrir(repertoire, 4096, 10)) {
+            assertEquals(2, journal.getProchainOffset());
+            assertEquals(2, journal.ajouter("c".getBytes(StandardCharsets.UTF_8)));
+            assertEquals("c", new String(journal.lire(2, 1).get(0).contenu(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void unLecteurSuitLEcrivainEtMemoriseSaPosition() throws IOException {
+        try (JournalEvenements journal = JournalEvenements.ouvrir(repertoire, 1024, 10);
+             JournalEvenements lecteur = JournalEvenements.ouvrirEnLecture(repertoire)) {
+            journal.ajouter("premier".getBytes(StandardCharsets.UTF_8));
+            long position = lecteur.offsetConsommateur("notifications");
+            List<JournalEvenements.Enregistrement> lus = lecteur.lire(position, 10);
+            assertEquals(1, lus.size());
+            lecteur.validerOffset("notifications", lus.get(0).offset() + 1);
+
+            for (int i = 0; i < 100; i++) {
+                journal.ajouter(("suivant-" + i).getBytes(StandardCharsets.UTF_8));
+            }
+            lus = lecteur.lire(lecteur.offsetConsommateur("notifications"), 1000);
+            assertEquals(100, lus.size());
+            assertEquals(1, lus.get(0).offset());
+        }
+    }
+
+    @Test
+    void lesSegmentsLesPlusAnciensSontSupprimes() throws IOException {
+        try (JournalEvenements journal = JournalEvenements.ouvrir(repertoire, 1024, 2)) {
+            for (int i = 0; i < 1000; i++) {
+                journal.ajouter(("evenement-" + i).getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(2, fichiersLog());
+            // Un consommateur en retard reprend au plus ancien enregistrement conservé
+            List<JournalEvenements.Enregistrement> lus = journal.lire(0, 2000);
+            assertEquals(999, lus.get(lus.size() - 1).offset());
+            assertTrue(lus.get(0).offset() > 0);
+        }
+    }
+
+    private long fichiersLog() throws IOException {
+        try (Stream<Path> fichiers = Files.list(repertoire)) {
+            return fichiers.filter(fichier -> fichier.toString().endsWith(".log")).count();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package amouhal.nouhayla.commande.repository;
+
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.LigneCommande;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Coût d'insertion d'une commande selon la taille du panier, avec et sans regroupement JDBC.
+// Lancement : mvn test -Dtest=InsertionCommandeBenchmarkTest -Dbenchmark=true
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InsertionCommandeBenchmarkTest {
+
+    private static final int[] TAILLES_PANIER = {1, 5, 20, 50};
+    private static final int COMMANDES = 2000;
+    private static final int ECHAUFFEMENT = 200;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void coutInsertionParCommande() {
+        Statistics statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        System.out.printf("%-8s %-10s %14s %18s%n", "panier", "batch", "us/commande", "requêtes/commande");
+        for (int taille : TAILLES_PANIER) {
+            for (int batch : new int[]{1, 50}) {
+                inserer(taille, batch, ECHAUFFEMENT);
+                statistiques.clear();
+                long debut = System.nanoTime();
+                inserer(taille, batch, COMMANDES);
+                long duree = System.nanoTime() - debut;
+                System.out.printf("%-8d %-10d %14.1f %18.2f%n", taille, batch,
+                        duree / 1000.0 / COMMANDES,
+                        (double) statistiques.getPrepareStatementCount() / COMMANDES);
+            }
+        }
+    }
+
+    // Une transaction par commande, comme createCommande
+    private void inserer(int taillePanier, int tailleBatch, int nombre) {
+        for (int i = 0; i < nombre; i++) {
+            transactionTemplate.executeWithoutResult(statut -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(tailleBatch);
+                entityManager.persist(commande(taillePanier));
+            });
+        }
+    }
+
+    private Commande commande(int taillePanier) {
+        Commande commande = new Commande();
+        commande.setClientUsername("benchmark");
+        commande.setDateCommande(LocalDateTime.now());
+        commande.setStatut("EN_COURS");
+        commande.setMontantTotal(10.0 * taillePanier);
+        List<LigneCommande> lignes = new ArrayList<>();
+        for (int j = 0; j < taillePanier; j++) {
+            LigneCommande ligne = new LigneCommande();
+            ligne.setProduitId((long) j + 1);
+            ligne.setQuantite(1);
+            ligne.setPrix(10.0);
+            ligne.setCommande(commande);
+            lignes.add(ligne);
+        }
+        commande.setLignes(lignes);
+        return commande;
+    }
+}
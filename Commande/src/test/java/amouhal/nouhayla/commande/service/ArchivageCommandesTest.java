@@ -0,0 +1,105 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.dto.CommandeResponse;
+import amouhal.nouhayla.commande.dto.PageCommandes;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.LigneCommande;
+import amouhal.nouhayla.commande.repository.CommandeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ArchivageCommandesTest {
+
+    @Autowired
+    private ArchivageCommandes archivageCommandes;
+
+    @Autowired
+    private CommandeService commandeService;
+
+    @Autowired
+    private CommandeRepository commandeRepository;
+
+    @Test
+    void commandeArchiveeRelueAvecSesLignes() {
+        Commande ancienne = commandeRepository.save(commande("client-archive-1", LocalDateTime.now().minusDays(400), 3));
+
+        archivageCommandes.archiver();
+
+        assertFalse(commandeRepository.existsById(ancienne.getId()));
+        CommandeResponse relue = commandeService.getCommande(ancienne.getId()).orElseThrow();
+        assertEquals("client-archive-1", relue.getClientUsername());
+        assertEquals(Commande.EN_COURS, relue.getStatut());
+        assertEquals(1, relue.getLignes().size());
+        assertEquals(3, relue.getLignes().get(0).getQuantite());
+    }
+
+    @Test
+    void listeDuClientFusionneActivesEtArchivees() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        Commande archivee1 = commandeRepository.save(commande("client-archive-2", maintenant.minusDays(300), 1));
+        Commande archivee2 = commandeRepository.save(commande("client-archive-2", maintenant.minusDays(500), 2));
+        archivageCommandes.archiver();
+        Commande active1 = commandeRepository.save(commande("client-archive-2", maintenant.minusDays(1), 4));
+        // Plus ancienne qu'une archivée : reste à sa place dans l'ordre des dates
+        Commande active2 = commandeRepository.save(commande("client-archive-2", maintenant.minusDays(400), 5));
+
+        PageCommandes premiere = commandeService.getCommandesByClient("client-archive-2", null, 3);
+        assertEquals(List.of(active1.getId(), archivee1.getId(), active2.getId()), ids(premiere));
+        assertEquals(1, premiere.getCommandes().get(1).getLignes().size());
+        assertEquals(4, premiere.getCommandes().get(0).getLignes().get(0).getQuantite());
+
+        PageCommandes seconde = commandeService.getCommandesByClient("client-archive-2", premiere.getCurseurSuivant(), 3);
+        assertEquals(List.of(archivee2.getId()), ids(seconde));
+        assertEquals(2, seconde.getCommandes().get(0).getLignes().get(0).getQuantite());
+        assertNull(seconde.getCurseurSuivant());
+    }
+
+    @Test
+    void listeAdminInclutLesArchivees() {
+        Commande archivee = commandeRepository.save(commande("client-archive-3", LocalDateTime.now().minusDays(250), 1));
+        archivageCommandes.archiver();
+
+        List<Long> toutes = new ArrayList<>();
+        String curseur = null;
+        do {
+            PageCommandes page = commandeService.getAllCommandes(curseur, 2);
+            toutes.addAll(ids(page));
+            curseur = page.getCurseurSuivant();
+        } while (curseur != null);
+
+        assertTrue(toutes.contains(archivee.getId()));
+        assertEquals(toutes.size(), toutes.stream().distinct().count());
+    }
+
+    private static List<Long> ids(PageCommandes page) {
+        return page.getCommandes().stream().map(CommandeResponse::getId).toList();
+    }
+
+    private static Commande commande(String client, LocalDateTime date, int quantite) {
+        Commande commande = new Commande();
+        commande.setClientUsername(client);
+        commande.setDateCommande(date);
+        commande.setStatut(Commande.EN_COURS);
+        commande.setMontantTotal(10.0 * quantite);
+        LigneCommande ligne = new LigneCommande();
+        ligne.setProduitId(1L);
+        ligne.setQuantite(quantite);
+        ligne.setPrix(10.0);
+        ligne.setCommande(commande);
+        commande.setLignes(new ArrayList<>(List.of(ligne)));
+        return commande;
+    }
+}
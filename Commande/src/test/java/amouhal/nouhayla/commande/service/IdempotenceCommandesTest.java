@@ -0,0 +1,189 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.entity.CleIdempotence;
+import amouhal.nouhayla.commande.repository.CleIdempotenceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotenceCommandesTest {
+
+    private final CleIdempotenceRepository repository = mock(CleIdempotenceRepository.class);
+    private IdempotenceCommandes idempotence;
+
+    @BeforeEach
+    void setUp() {
+        idempotence = new IdempotenceCommandes();
+        ReflectionTestUtils.setField(idempotence, "cleIdempotenceRepository", repository);
+        ReflectionTestUtils.setField(idempotence, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(idempotence, "tailleMax", 100L);
+        ReflectionTestUtils.setField(idempotence, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(idempotence, "retention", Duration.ofHours(1));
+        ReflectionTestUtils.setField(idempotence, "attenteMax", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(idempotence, "abandon", Duration.ofMinutes(2));
+        idempotence.initialiser();
+        when(repository.findByClientUsernameAndCleAndDateCreationAfter(anyString(), anyString(), any()))
+                .thenReturn(Optional.empty());
+        AtomicLong ids = new AtomicLong();
+        when(repository.saveAndFlush(any(CleIdempotence.class))).thenAnswer(invocation -> {
+            CleIdempotence ligne = invocation.getArgument(0);
+            ligne.setId(ids.incrementAndGet());
+            return ligne;
+        });
+    }
+
+    @Test
+    void lesDoublonsEnVolAttendentLaPremiereExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch liberer = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> reponses = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                reponses.add(pool.submit(() -> idempotence.executer("alice", "cle-1", "e1",
+                        () -> {
+                            executions.incrementAndGet();
+                            attendre(liberer);
+                            return "commande 42";
+                        },
+                        reponse -> new IdempotenceCommandes.Resultat(42L, 200, null),
+                        resultat -> "rejouée " + resultat.commandeId())));
+            }
+            Thread.sleep(200);
+            liberer.countDown();
+
+            int rejouees = 0;
+            for (Future<String> reponse : reponses) {
+                if (reponse.get(5, TimeUnit.SECONDS).equals("rejouée 42")) {
+                    rejouees++;
+                }
+            }
+            assertEquals(1, executions.get());
+            assertEquals(3, rejouees);
+            verify(repository, times(1)).saveAndFlush(any(CleIdempotence.class));
+            verify(repository, times(1)).terminer(any(), eq(42L), eq(200));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void unEchecNestPasMemorise() {
+        assertThrows(RuntimeException.class, () -> idempotence.executer("alice", "cle-2", "e1",
+                () -> { throw new RuntimeException("Stock insuffisant"); },
+                reponse -> null, resultat -> "rejouée"));
+
+        // Réservation rendue : la nouvelle tentative crée la commande
+        verify(repository).supprimerSansCommande(1L);
+        String reponse = idempotence.executer("alice", "cle-2", "e1", () -> "commande 7",
+                r -> new IdempotenceCommandes.Resultat(7L, 200, null), resultat -> "rejouée");
+        assertEquals("commande 7", reponse);
+    }
+
+    @Test
+    void cleReserveeParUneAutreInstanceRejoueSonResultat() {
+        // Première tentative reçue par une autre instance : clé déjà réservée, commande créée peu après
+        when(repository.saveAndFlush(any(CleIdempotence.class))).thenThrow(new DataIntegrityViolationException("uk_cle_idempotence_client_cle"));
+        when(repository.findByClientUsernameAndCle("alice", "cle-4"))
+                .thenReturn(Optional.of(ligne(null, null, LocalDateTime.now())))
+                .thenReturn(Optional.of(ligne(11L, 201, LocalDateTime.now())));
+        AtomicInteger executions = new AtomicInteger();
+
+        String reponse = idempotence.executer("alice", "cle-4", "e1", () -> "commande " + executions.incrementAndGet(),
+                r -> new IdempotenceCommandes.Resultat(12L, 200, null), resultat -> "rejouée " + resultat.commandeId());
+
+        assertEquals("rejouée 11", reponse);
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void reservationAbandonneeSansCommandeEstReprise() {
+        when(repository.saveAndFlush(any(CleIdempotence.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_cle_idempotence_client_cle"))
+                .thenAnswer(invocation -> {
+                    CleIdempotence ligne = invocation.getArgument(0);
+                    ligne.setId(2L);
+                    return ligne;
+                });
+        CleIdempotence abandonnee = ligne(null, null, LocalDateTime.now().minusMinutes(10));
+        abandonnee.setId(1L);
+        when(repository.findByClientUsernameAndCle("alice", "cle-5")).thenReturn(Optional.of(abandonnee));
+
+        String reponse = idempotence.executer("alice", "cle-5", "e1", () -> "commande 13",
+                r -> new IdempotenceCommandes.Resultat(13L, 200, null), resultat -> "rejouée");
+
+        assertEquals("commande 13", reponse);
+        verify(repository).supprimerSansCommande(1L);
+        verify(repository).terminer(2L, 13L, 200);
+    }
+
+    @Test
+    void associerRattacheLaCommandeALaCleReservee() {
+        idempotence.executer("alice", "cle-6", "e1", () -> {
+                    idempotence.associer(14L);
+                    return "commande 14";
+                },
+                r -> new IdempotenceCommandes.Resultat(14L, 200, null), resultat -> "rejouée");
+        verify(repository).associer(1L, 14L);
+
+        // Hors d'une création avec clé : sans effet
+        idempotence.associer(15L);
+        verify(repository, never()).associer(any(), eq(15L));
+    }
+
+    @Test
+    void uneCleReutiliseePourUneAutreRequeteEstRefusee() {
+        idempotence.executer("alice", "cle-3", "e1", () -> "commande 8",
+                reponse -> new IdempotenceCommandes.Resultat(8L, 200, null), resultat -> "rejouée");
+
+        assertThrows(IdempotenceCommandes.ConflitException.class, () -> idempotence.executer("alice", "cle-3", "e2",
+                () -> "commande 9", reponse -> new IdempotenceCommandes.Resultat(9L, 200, null), resultat -> "rejouée"));
+        // Les clés sont propres à chaque client
+        assertEquals("commande 10", idempotence.executer("bob", "cle-3", "e2", () -> "commande 10",
+                reponse -> new IdempotenceCommandes.Resultat(10L, 200, null), resultat -> "rejouée"));
+    }
+
+    private static CleIdempotence ligne(Long commandeId, Integer statutHttp, LocalDateTime date) {
+        CleIdempotence ligne = new CleIdempotence();
+        ligne.setClientUsername("alice");
+        ligne.setEmpreinte("e1");
+        ligne.setCommandeId(commandeId);
+        ligne.setStatutHttp(statutHttp);
+        ligne.setDateCreation(date);
+        return ligne;
+    }
+
+    private static void attendre(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
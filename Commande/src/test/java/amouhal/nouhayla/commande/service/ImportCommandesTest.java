@@ -0,0 +1,112 @@
+package amouhal.nouhayla.commande.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ImportCommandesTest {
+
+    @Autowired
+    private ImportCommandes importCommandes;
+
+    @Test
+    void resultatsDUnLotEnvoyesAvantLaFinDuFichier() throws Exception {
+        Object lotTaille = ReflectionTestUtils.getField(importCommandes, "lotTaille");
+        ReflectionTestUtils.setField(importCommandes, "lotTaille", 2);
+        PipedOutputStream fichier = new PipedOutputStream();
+        PipedInputStream flux = new PipedInputStream(fichier);
+        try {
+            fichier.write("{\"reference\":\"A\",\"lignes\":[]}\n{\"reference\":\"B\",\"lignes\":[]}\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            fichier.flush();
+            ImportCommandes.ImportEnCours importEnCours = importCommandes.demarrer(flux, ImportCommandes.Format.NDJSON, "client-import");
+            assertNotNull(importEnCours);
+
+            Sortie sortie = new Sortie();
+            CompletableFuture<Void> traitement = CompletableFuture.runAsync(() -> {
+                try {
+                    importEnCours.traiter(sortie);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            // Le premier lot est reçu alors que le fichier n'est pas terminé
+            assertEquals(2, sortie.lignesRecues(2));
+            assertFalse(traitement.isDone());
+
+            fichier.write("pas du json\n".getBytes(StandardCharsets.UTF_8));
+            fichier.close();
+            traitement.get(10, TimeUnit.SECONDS);
+            String[] resultats = sortie.texte().split("\n");
+            assertEquals(3, resultats.length);
+            assertTrue(resultats[2].contains("JSON invalide"));
+        } finally {
+            ReflectionTestUtils.setField(importCommandes, "lotTaille", lotTaille);
+        }
+    }
+
+    @Test
+    void enTeteCsvInvalideRefuseAvantDeRepondre() {
+        for (int i = 0; i < 3; i++) {
+            ByteArrayInputStream flux = new ByteArrayInputStream("colonne,inconnue\n".getBytes(StandardCharsets.UTF_8));
+            // Refus immédiat, et la place d'import est rendue à chaque fois
+            assertThrows(IllegalArgumentException.class,
+                    () -> importCommandes.demarrer(flux, ImportCommandes.Format.CSV, "client-import"));
+        }
+    }
+
+    // Sortie de la réponse : ne compte que ce qui a été envoyé (flush)
+    private static class Sortie extends OutputStream {
+        private final ByteArrayOutputStream tampon = new ByteArrayOutputStream();
+        private String envoye = "";
+
+        @Override
+        public synchronized void write(int b) {
+            tampon.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            tampon.write(b, off, len);
+        }
+
+        @Override
+        public synchronized void flush() {
+            envoye = tampon.toString(StandardCharsets.UTF_8);
+            notifyAll();
+        }
+
+        synchronized String texte() {
+            flush();
+            return envoye;
+        }
+
+        synchronized int lignesRecues(int attendues) throws InterruptedException {
+            long fin = System.currentTimeMillis() + 10_000;
+            while (envoye.split("\n", -1).length - 1 < attendues && System.currentTimeMillis() < fin) {
+                wait(100);
+            }
+            return envoye.split("\n", -1).length - 1;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.client.ProduitClient;
+import amouhal.nouhayla.commande.client.ReservationDto;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.LigneCommande;
+import amouhal.nouhayla.commande.repository.CommandeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = "commande.reception.asynchrone.actif=true")
+@ActiveProfiles("test")
+class ReceptionCommandesTest {
+
+    @Autowired
+    private ReceptionCommandes receptionCommandes;
+
+    @Autowired
+    private CommandeRepository commandeRepository;
+
+    @SpyBean
+    private StatistiquesCommandes statistiquesCommandes;
+
+    @MockBean
+    private ProduitClient produitClient;
+
+    @Test
+    void seulesLesCommandesAbandonneesSontRejetees() {
+        Commande ancienne = commandeRepository.save(enAttente(LocalDateTime.now().minusMinutes(30)));
+        Commande recente = commandeRepository.save(enAttente(LocalDateTime.now()));
+
+        receptionCommandes.rejeterAbandonnees();
+
+        assertEquals(Commande.REJETEE, statut(ancienne));
+        assertEquals(Commande.EN_ATTENTE, statut(recente));
+    }
+
+    @Test
+    void commandeAbandonneeRendSonStockAvantDEtreRejetee() {
+        Commande ancienne = enAttente(LocalDateTime.now().minusMinutes(30));
+        LigneCommande ligne = new LigneCommande();
+        ligne.setProduitId(1L);
+        ligne.setQuantite(2);
+        ligne.setCommande(ancienne);
+        ancienne.setLignes(new ArrayList<>(List.of(ligne)));
+        ancienne = commandeRepository.save(ancienne);
+        String reservationId = "commande-" + ancienne.getId();
+
+        // Service Produit injoignable : la commande attend le contrôle suivant
+        when(produitClient.libererStock(any())).thenThrow(new RuntimeException("Produit indisponible"));
+        receptionCommandes.rejeterAbandonnees();
+        assertEquals(Commande.EN_ATTENTE, statut(ancienne));
+
+        doReturn(null).when(produitClient).libererStock(any());
+        receptionCommandes.rejeterAbandonnees();
+        assertEquals(Commande.REJETEE, statut(ancienne));
+        verify(produitClient, times(2))
+                .libererStock(argThat((ReservationDto r) -> reservationId.equals(r.getReservationId())));
+    }
+
+    @Test
+    void echecDEcritureDuLotRejetteSesCommandes() throws Exception {
+        doThrow(new IllegalStateException("base indisponible")).when(statistiquesCommandes).comptabiliser(any());
+
+        Commande commande = new Commande();
+        commande.setClientUsername("client-reception");
+        commande.setLignes(new ArrayList<>());
+        Commande soumise = receptionCommandes.soumettre(commande);
+
+        long limite = System.currentTimeMillis() + 5000;
+        while (Commande.EN_ATTENTE.equals(statut(soumise))) {
+            assertTrue(System.currentTimeMillis() < limite, "commande restée EN_ATTENTE");
+            Thread.sleep(20);
+        }
+        Commande rejetee = commandeRepository.findById(soumise.getId()).orElseThrow();
+        assertEquals(Commande.REJETEE, rejetee.getStatut());
+        assertTrue(rejetee.getMotifRejet().contains("base indisponible"));
+    }
+
+    private String statut(Commande commande) {
+        return commandeRepository.findById(commande.getId()).orElseThrow().getStatut();
+    }
+
+    private static Commande enAttente(LocalDateTime date) {
+        Commande commande = new Commande();
+        commande.setClientUsername("client-reception");
+        commande.setDateCommande(date);
+        commande.setStatut(Commande.EN_ATTENTE);
+        commande.setMontantTotal(0.0);
+        return commande;
+    }
+}
@@ -0,0 +1,88 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.client.ProduitCache;
+import amouhal.nouhayla.commande.client.ProduitClient;
+import amouhal.nouhayla.commande.client.ProduitIndisponibleException;
+import amouhal.nouhayla.commande.client.ReservationDto;
+import amouhal.nouhayla.commande.client.ReservationResultatDto;
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.LigneCommande;
+import feign.RetryableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservationStockTest {
+
+    private final ProduitClient produitClient = mock(ProduitClient.class);
+    private CommandeService commandeService;
+
+    @BeforeEach
+    void setUp() {
+        commandeService = new CommandeService();
+        commandeService.setProduitClient(produitClient);
+        ReflectionTestUtils.setField(commandeService, "produitCache", mock(ProduitCache.class));
+    }
+
+    @Test
+    void delaiDepasseLibereLaReservationParSonId() {
+        when(produitClient.reserverStock(any())).thenThrow(mock(RetryableException.class));
+
+        assertThrows(RuntimeException.class, () -> commandeService.reserverStock(commande(), Map.of()));
+
+        ArgumentCaptor<ReservationDto> reservation = ArgumentCaptor.forClass(ReservationDto.class);
+        verify(produitClient).reserverStock(reservation.capture());
+        ArgumentCaptor<ReservationDto> liberation = ArgumentCaptor.forClass(ReservationDto.class);
+        verify(produitClient).libererStock(liberation.capture());
+        assertNotNull(reservation.getValue().getReservationId());
+        assertEquals(reservation.getValue().getReservationId(), liberation.getValue().getReservationId());
+        assertTrue(liberation.getValue().getLignes().isEmpty());
+    }
+
+    @Test
+    void appelRefuseSansReseauNeLibereRien() {
+        when(produitClient.reserverStock(any())).thenThrow(new ProduitIndisponibleException("circuit ouvert"));
+
+        assertThrows(ProduitIndisponibleException.class, () -> commandeService.reserverStock(commande(), Map.of()));
+
+        verify(produitClient, never()).libererStock(any());
+    }
+
+    @Test
+    void reservationRefuseeNeLibereRien() {
+        ReservationResultatDto.ResultatLigneDto ligne = new ReservationResultatDto.ResultatLigneDto();
+        ligne.setProduitId(1L);
+        ligne.setQuantite(2);
+        ligne.setStatut(ReservationResultatDto.STOCK_INSUFFISANT);
+        ReservationResultatDto refus = new ReservationResultatDto();
+        refus.setLignes(List.of(ligne));
+        when(produitClient.reserverStock(any())).thenReturn(refus);
+
+        assertThrows(RuntimeException.class, () -> commandeService.reserverStock(commande(), Map.of()));
+
+        verify(produitClient, never()).libererStock(any());
+    }
+
+    private static Commande commande() {
+        LigneCommande ligne = new LigneCommande();
+        ligne.setProduitId(1L);
+        ligne.setQuantite(2);
+        Commande commande = new Commande();
+        commande.setLignes(List.of(ligne));
+        return commande;
+    }
+}
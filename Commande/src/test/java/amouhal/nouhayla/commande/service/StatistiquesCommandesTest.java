@@ -0,0 +1,177 @@
+package amouhal.nouhayla.commande.service;
+
+import amouhal.nouhayla.commande.entity.Commande;
+import amouhal.nouhayla.commande.entity.LigneCommande;
+import amouhal.nouhayla.commande.entity.StatistiqueJour;
+import amouhal.nouhayla.commande.repository.CommandeRepository;
+import amouhal.nouhayla.commande.repository.StatistiqueJourRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+
+@SpringBootTest(properties = "commande.statistiques.tranches-jour=4")
+@ActiveProfiles("test")
+class StatistiquesCommandesTest {
+
+    @Autowired
+    private StatistiquesCommandes statistiquesCommandes;
+
+    @Autowired
+    private CommandeRepository commandeRepository;
+
+    @Autowired
+    private StatistiqueJourRepository statistiqueJourRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @SpyBean
+    private ArchivageCommandes archivageCommandes;
+
+    @Test
+    void commandesSimultaneesDuMemeJourReparties() throws Exception {
+        LocalDate jour = LocalDate.of(2001, 1, 10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> taches = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                Commande commande = commande("client-stats-1", jour.atTime(10, 0), 2.5);
+                taches.add(executor.submit(() -> accepter(commande)));
+            }
+            for (Future<?> tache : taches) {
+                tache.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        StatistiqueJour totaux = statistiquesCommandes.getJours(jour, jour).get(0);
+        assertEquals(40L, totaux.getNombreCommandes());
+        assertEquals(100.0, totaux.getChiffreAffaires(), 1e-9);
+        long lignes = statistiqueJourRepository.findAll().stream().filter(s -> jour.equals(s.getJour())).count();
+        assertEquals(4, lignes);
+    }
+
+    @Test
+    void commandeValideePendantLeCalculCompteeUneFois() throws Exception {
+        LocalDate jour = LocalDate.of(2001, 1, 11);
+        Commande commande = commande("client-stats-2", jour.atTime(9, 0), 7.0);
+        statistiquesCommandes.preparer(List.of(commande));
+
+        // Commande comptabilisée mais pas encore validée quand la reconstruction lit la base
+        CountDownLatch comptabilisee = new CountDownLatch(1);
+        CountDownLatch valider = new CountDownLatch(1);
+        CompletableFuture<Void> acceptation = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(statut -> {
+            commandeRepository.save(commande);
+            statistiquesCommandes.comptabiliser(List.of(commande));
+            comptabilisee.countDown();
+            attendre(valider);
+        }));
+        assertTrue(comptabilisee.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Void> reconstruction = CompletableFuture.runAsync(statistiquesCommandes::reconstruire);
+        Thread.sleep(200);
+        valider.countDown();
+        acceptation.get(10, TimeUnit.SECONDS);
+        reconstruction.get(30, TimeUnit.SECONDS);
+
+        assertEquals(1L, statistiquesCommandes.getJours(jour, jour).get(0).getNombreCommandes());
+        assertEquals(1L, statistiquesCommandes.getClient("client-stats-2").orElseThrow().getNombreCommandes());
+    }
+
+    @Test
+    void commandeAccepteePendantLaReconstructionCompteeUneFois() throws Exception {
+        LocalDate jour = LocalDate.of(2001, 1, 12);
+        Commande commande = commande("client-stats-3", jour.atTime(9, 0), 4.0);
+        statistiquesCommandes.preparer(List.of(commande));
+
+        // Reconstruction suspendue pendant son calcul
+        CountDownLatch calculee = new CountDownLatch(1);
+        CountDownLatch reprendre = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            calculee.countDown();
+            attendre(reprendre);
+            return invocation.callRealMethod();
+        }).when(archivageCommandes).parcourir(any());
+        try {
+            CompletableFuture<Void> reconstruction = CompletableFuture.runAsync(statistiquesCommandes::reconstruire);
+            assertTrue(calculee.await(10, TimeUnit.SECONDS));
+            // La commande n'attend pas la fin de la reconstruction
+            CompletableFuture.runAsync(() -> accepter(commande)).get(10, TimeUnit.SECONDS);
+            reprendre.countDown();
+            reconstruction.get(30, TimeUnit.SECONDS);
+        } finally {
+            reprendre.countDown();
+            reset(archivageCommandes);
+        }
+
+        assertEquals(1L, statistiquesCommandes.getJours(jour, jour).get(0).getNombreCommandes());
+        assertEquals(1L, statistiquesCommandes.getClient("client-stats-3").orElseThrow().getNombreCommandes());
+        assertEquals(4L, statistiquesCommandes.getProduit(9003L).orElseThrow().getQuantiteVendue());
+    }
+
+    @Test
+    void reconstructionCorrigeLesStatistiquesFaussees() {
+        LocalDate jour = LocalDate.of(2001, 1, 13);
+        Commande commande = commande("client-stats-4", jour.atTime(9, 0), 3.0);
+        accepter(commande);
+        // Ligne faussée (incident, reprise) : la reconstruction la ramène au total des commandes
+        statistiqueJourRepository.save(new StatistiqueJour(jour, 2, 5L, 50.0));
+
+        statistiquesCommandes.reconstruire();
+
+        StatistiqueJour totaux = statistiquesCommandes.getJours(jour, jour).get(0);
+        assertEquals(1L, totaux.getNombreCommandes());
+        assertEquals(3.0, totaux.getChiffreAffaires(), 1e-9);
+    }
+
+    private void accepter(Commande commande) {
+        statistiquesCommandes.preparer(List.of(commande));
+        transactionTemplate.executeWithoutResult(statut -> {
+            commandeRepository.save(commande);
+            statistiquesCommandes.comptabiliser(List.of(commande));
+        });
+    }
+
+    private static void attendre(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Commande commande(String client, LocalDateTime date, double montant) {
+        Commande commande = new Commande();
+        commande.setClientUsername(client);
+        commande.setDateCommande(date);
+        commande.setStatut(Commande.EN_COURS);
+        commande.setMontantTotal(montant);
+        LigneCommande ligne = new LigneCommande();
+        ligne.setProduitId(9000L + Integer.parseInt(client.substring(client.length() - 1)));
+        ligne.setQuantite((int) montant);
+        ligne.setPrix(1.0);
+        ligne.setCommande(commande);
+        commande.setLignes(new ArrayList<>(List.of(ligne)));
+        return commande;
+    }
+}
@@ -2,8 +2,10 @@ package amouhal.nouhayla.produit;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ProduitApplication {
 
 	public static void main(String[] args) {
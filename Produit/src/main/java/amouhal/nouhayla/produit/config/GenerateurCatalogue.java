@@ -0,0 +1,107 @@
+package amouhal.nouhayla.produit.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Catalogue synthétique pour les tests de charge (profil generateur) : produits GEN-0000001… écrits par lots JDBC,
+// ids 1..n attribués directement puis séquence repositionnée au-delà.
+// Tout découle de la graine : deux exécutions donnent le même catalogue, sur H2 comme sur PostgreSQL.
+// Le prix d'un produit ne dépend que de (graine, id) : le générateur de commandes du service Commande
+// le recalcule avec la même formule, sans appeler ce service.
+// Rien n'est généré si la table contient déjà des produits.
+@Component
+@Profile("generateur")
+public class GenerateurCatalogue implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerateurCatalogue.class);
+
+    private static final String[] CATEGORIES = {"Ordinateur portable", "Smartphone", "Tablette", "Écran", "Clavier",
+            "Souris", "Casque audio", "Enceinte", "Imprimante", "Disque dur", "Chaise de bureau", "Bureau", "Lampe",
+            "Cafetière", "Aspirateur", "Réfrigérateur", "Montre connectée", "Appareil photo", "Téléviseur", "Routeur"};
+    private static final String[] MARQUES = {"Dell", "Apple", "Samsung", "Lenovo", "HP", "Asus", "Logitech", "Sony",
+            "Philips", "Bosch", "Xiaomi", "Canon", "LG", "Acer", "Microsoft", "Seagate"};
+    private static final String[] GAMMES = {"Pro", "Max", "Lite", "Plus", "Ultra", "Mini", "Air", "Neo", "Studio", "Edge"};
+    private static final String[] COLORIS = {"noir", "blanc", "gris", "bleu", "rouge", "argent", "doré", "vert"};
+    private static final String[] ATOUTS = {"Livraison rapide", "Économie d'énergie", "Écran haute résolution",
+            "Batterie longue durée", "Connexion sans fil", "Design compact", "Qualité professionnelle", "Fonctionnement silencieux"};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${produit.generateur.produits:1000000}")
+    private int nombreProduits;
+
+    @Value("${produit.generateur.graine:42}")
+    private long graine;
+
+    // Lignes par instruction groupée et par transaction
+    @Value("${produit.generateur.lot-taille:5000}")
+    private int lotTaille;
+
+    // Popularité des catégories et des marques (loi de Zipf) : quelques-unes dominent le catalogue
+    @Value("${produit.generateur.zipf-exposant:1.0}")
+    private double exposant;
+
+    @Override
+    public void run(String... args) {
+        Long existants = jdbcTemplate.queryForObject("select count(*) from produit", Long.class);
+        if (existants != null && existants > 0) {
+            logger.info("Générateur de catalogue ignoré: {} produits déjà présents", existants);
+            return;
+        }
+        logger.info("Génération de {} produits (graine {})", nombreProduits, graine);
+        long debut = System.nanoTime();
+        SplittableRandom aleatoire = new SplittableRandom(graine);
+        LoiZipf categories = new LoiZipf(CATEGORIES.length, exposant);
+        LoiZipf marques = new LoiZipf(MARQUES.length, exposant);
+
+        List<Object[]> lot = new ArrayList<>(lotTaille);
+        for (long id = 1; id <= nombreProduits; id++) {
+            String categorie = CATEGORIES[categories.tirer(aleatoire) - 1];
+            String marque = MARQUES[marques.tirer(aleatoire) - 1];
+            String gamme = GAMMES[aleatoire.nextInt(GAMMES.length)];
+            String nom = marque + " " + categorie + " " + gamme + " " + (100 + aleatoire.nextInt(900));
+            int garantie = 1 + aleatoire.nextInt(3);
+            String description = categorie + " " + marque + " " + gamme + ", coloris " + COLORIS[aleatoire.nextInt(COLORIS.length)]
+                    + ". " + ATOUTS[aleatoire.nextInt(ATOUTS.length)] + ", garantie " + garantie + (garantie > 1 ? " ans." : " an.");
+            // Un produit sur vingt en rupture
+            int stock = aleatoire.nextInt(20) == 0 ? 0 : aleatoire.nextInt(1000);
+            lot.add(new Object[]{id, String.format("GEN-%07d", id), nom, description, prix(graine, id), stock});
+            if (lot.size() == lotTaille) {
+                ecrire(lot);
+                lot.clear();
+            }
+        }
+        if (!lot.isEmpty()) {
+            ecrire(lot);
+        }
+        // Au-delà des ids écrits, bloc d'allocation groupée compris (allocationSize = 50)
+        jdbcTemplate.execute("alter sequence produit_seq restart with " + (nombreProduits + 100));
+        logger.info("{} produits générés en {} ms", nombreProduits, (System.nanoTime() - debut) / 1_000_000);
+    }
+
+    // Prix de 5 à 2000, log-uniforme (beaucoup de petits prix). Même formule dans GenerateurCommandes (Commande).
+    static double prix(long graine, long produitId) {
+        SplittableRandom aleatoire = new SplittableRandom(graine * 1_000_003L + produitId);
+        return Math.round(5 * Math.pow(400, aleatoire.nextDouble()) * 100) / 100.0;
+    }
+
+    private void ecrire(List<Object[]> lot) {
+        transactionTemplate.executeWithoutResult(statut -> jdbcTemplate.batchUpdate(
+                "insert into produit (id, reference, nom, description, prix, quantite_stock, version) values (?, ?, ?, ?, ?, ?, 0)", lot));
+    }
+}
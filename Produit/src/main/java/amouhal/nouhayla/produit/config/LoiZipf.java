@@ -0,0 +1,29 @@
+package amouhal.nouhayla.produit.config;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Tirage de rangs 1..n selon une loi de Zipf : le rang k est tiré avec une probabilité proportionnelle à 1/k^s.
+// Table des probabilités cumulées (8 octets par rang) et recherche dichotomique.
+final class LoiZipf {
+
+    private final double[] cumul;
+
+    LoiZipf(int n, double exposant) {
+        cumul = new double[n];
+        double somme = 0;
+        for (int k = 1; k <= n; k++) {
+            somme += 1 / Math.pow(k, exposant);
+            cumul[k - 1] = somme;
+        }
+        for (int k = 0; k < n; k++) {
+            cumul[k] /= somme;
+        }
+    }
+
+    int tirer(SplittableRandom aleatoire) {
+        int position = Arrays.binarySearch(cumul, aleatoire.nextDouble());
+        int rang = position >= 0 ? position : -position - 1;
+        return Math.min(rang, cumul.length - 1) + 1;
+    }
+}
@@ -1,27 +1,78 @@
 package amouhal.nouhayla.produit.controller;
+import amouhal.nouhayla.produit.dto.FiltreProduits;
+import amouhal.nouhayla.produit.dto.ImportProduitsResponse;
+import amouhal.nouhayla.produit.dto.ModificationProduit;
+import amouhal.nouhayla.produit.dto.ModificationsProduits;
+import amouhal.nouhayla.produit.dto.PageProduits;
+import amouhal.nouhayla.produit.dto.ProduitsBatchResponse;
+import amouhal.nouhayla.produit.dto.ReservationRequest;
+import amouhal.nouhayla.produit.dto.ReservationResponse;
+import amouhal.nouhayla.produit.dto.TriProduits;
 import amouhal.nouhayla.produit.entity.Produit;
+import amouhal.nouhayla.produit.service.CatalogueProduits;
+import amouhal.nouhayla.produit.service.ImportProduits;
+import amouhal.nouhayla.produit.service.JournalModifications;
 import amouhal.nouhayla.produit.service.ProduitService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @RestController
-@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:8888"})
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:8888"}, exposedHeaders = {HttpHeaders.ETAG, ProduitController.CURSEUR_SUIVANT, ProduitController.SEQUENCE})
 @RequestMapping("/api/produits")
 public class ProduitController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProduitController.class);
 
+    // En-tête portant le curseur de la page suivante ; absent sur la dernière page
+    static final String CURSEUR_SUIVANT = "X-Curseur-Suivant";
+
+    // En-tête de la liste complète : séquence du journal des modifications à laquelle elle correspond
+    static final String SEQUENCE = "X-Sequence";
+
+    static final String NDJSON = "application/x-ndjson";
+
+    // JSON binaire de Jackson, négocié par Accept sur toutes les routes (service Commande)
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    // Réponses réutilisables par le navigateur après revalidation (If-None-Match) auprès du service
+    private static final CacheControl REVALIDER = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private ProduitService produitService;
 
+    @Autowired
+    private ImportProduits importProduits;
+
+    @Autowired
+    private JournalModifications journalModifications;
+
+    @Value("${produit.batch.taille-max:500}")
+    private int tailleMaxBatch;
+
+    @Value("${produit.recherche.requete-max:200}")
+    private int longueurMaxRecherche;
+
     // ADMIN : Ajouter
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping
@@ -32,17 +83,103 @@ public class ProduitController {
         return ResponseEntity.ok(produitService.ajouterProduit(produit));
     }
 
-    // ADMIN : Modifier
+    // ADMIN : Modifier. If-Match facultatif : avec (ETag de GET /{id}, ou version de la fiche), la fiche n'est
+    // remplacée que si elle n'a pas changé depuis (412 sinon) ; sans, la dernière écriture l'emporte (409 seulement
+    // si deux écritures se croisent). L'ETag de la fiche modifiée est renvoyé, comme pour PATCH et GET.
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/{id}")
     public ResponseEntity<Produit> modifierProduit(@PathVariable Long id, @RequestBody Produit produit,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                                    @AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getClaimAsString("preferred_username");
         logger.info("Admin {} modifie le produit ID: {}", username, id);
-        Produit updated = produitService.modifierProduit(id, produit);
-        if (updated != null)
-            return ResponseEntity.ok(updated);
-        return ResponseEntity.notFound().build();
+        Long version = ifMatch == null ? null : versionAttendue(id, ifMatch);
+        if (ifMatch != null && version == null) {
+            return refuserIfMatch(id);
+        }
+        Produit updated;
+        try {
+            updated = produitService.modifierProduit(id, produit, version);
+        } catch (OptimisticLockingFailureException e) {
+            // Modifié depuis la version attendue, ou par une autre écriture entre la lecture et l'enregistrement
+            logger.warn("Modification concurrente du produit {} par {}", id, username);
+            return ResponseEntity.status(version != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT).build();
+        }
+        if (updated == null) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok();
+        String etag = etagApres(id, updated.getVersion());
+        if (etag != null) {
+            reponse.eTag(etag);
+        }
+        return reponse.body(updated);
+    }
+
+    // ADMIN : Modification partielle, seuls les champs présents sont écrits, en une instruction conditionnée
+    // par If-Match : l'ETag de GET /{id}, ou la version de la fiche lue (champ version, ex. If-Match: "3").
+    // 204 avec l'ETag de la fiche modifiée, 412 si le produit a changé depuis, 428 sans If-Match.
+    @PreAuthorize("hasRole('ADMIN')")
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> modifierPartiellement(@PathVariable Long id, @RequestBody ModificationProduit modification,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                      @AuthenticationPrincipal Jwt jwt) {
+        String username = jwt.getClaimAsString("preferred_username");
+        logger.info("Admin {} modifie partiellement le produit ID: {}", username, id);
+        if (ifMatch == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+        }
+        Long version = versionAttendue(id, ifMatch);
+        if (version == null) {
+            return refuserIfMatch(id);
+        }
+        try {
+            Long nouvelleVersion = produitService.modifierProduit(id, version, modification);
+            if (nouvelleVersion == null) {
+                return ResponseEntity.notFound().build();
+            }
+            ResponseEntity.HeadersBuilder<?> reponse = ResponseEntity.noContent();
+            String etag = etagApres(id, nouvelleVersion);
+            if (etag != null) {
+                reponse.eTag(etag);
+            }
+            return reponse.build();
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Admin {}: {}", username, e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Admin {}: {}", username, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Admin {}: référence déjà utilisée par un autre produit", username);
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // ADMIN : Importer un catalogue fournisseur, NDJSON ou CSV : chaque produit est créé, ou mis à jour
+    // si un produit de même référence existe ; bilan par issue et détail des lignes rejetées
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/import", consumes = {NDJSON, "text/csv"})
+    public ResponseEntity<ImportProduitsResponse> importerProduits(HttpServletRequest request,
+                                                                   @AuthenticationPrincipal Jwt jwt) {
+        String username = jwt.getClaimAsString("preferred_username");
+        ImportProduits.Format format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.valueOf("text/csv"))
+                ? ImportProduits.Format.CSV
+                : ImportProduits.Format.NDJSON;
+        logger.info("Admin {} importe un catalogue ({})", username, format);
+        try {
+            ImportProduitsResponse rapport = importProduits.importer(request.getInputStream(), format);
+            if (rapport == null) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "60").build();
+            }
+            return ResponseEntity.ok(rapport);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Import refusé pour {}: {}", username, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            logger.error("Erreur de lecture de l'import de {}: {}", username, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // ADMIN : Supprimer
@@ -56,24 +193,285 @@ public class ProduitController {
         return ResponseEntity.noContent().build();
     }
 
-    // ADMIN & CLIENT : Lister
+    // ADMIN & CLIENT : Lister. Sans paramètre : tout le catalogue, corps JSON pré-sérialisé (gzip si le client
+    // l'accepte) avec ETag (304 sans corps ni accès à la base si If-None-Match est inchangé). Avec pagination, filtre ou tri : une page calculée par la base,
+    // la suivante désignée par l'en-tête X-Curseur-Suivant (à repasser dans apres).
     @PreAuthorize("hasAnyRole('ADMIN','CLIENT')")
     @GetMapping
-    public ResponseEntity<List<Produit>> listerProduits(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<?> listerProduits(@RequestParam(required = false) String apres,
+                                                        @RequestParam(required = false) Integer taille,
+                                                        @RequestParam(required = false) String tri,
+                                                        @RequestParam(required = false) String sens,
+                                                        @RequestParam(required = false) Double prixMin,
+                                                        @RequestParam(required = false) Double prixMax,
+                                                        @RequestParam(required = false) Boolean enStock,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                        @AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getClaimAsString("preferred_username");
         logger.info("Utilisateur {} consulte la liste des produits", username);
-        return ResponseEntity.ok(produitService.listerProduits());
+        if (apres != null || taille != null || tri != null || sens != null || prixMin != null || prixMax != null || enStock != null) {
+            try {
+                FiltreProduits filtre = new FiltreProduits(prixMin, prixMax, Boolean.TRUE.equals(enStock),
+                        TriProduits.depuis(tri), "desc".equalsIgnoreCase(sens));
+                PageProduits page = produitService.listerProduits(filtre, apres, taille);
+                ResponseEntity.BodyBuilder reponse = ResponseEntity.ok();
+                if (page.getCurseurSuivant() != null) {
+                    reponse.header(CURSEUR_SUIVANT, page.getCurseurSuivant());
+                }
+                return reponse.body(page.getProduits());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Utilisateur {}: {}", username, e.getMessage());
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        CatalogueProduits.Instantane catalogue = produitService.catalogue();
+        if (!prefereJson(accept)) {
+            // Smile (appels entre services) : sérialisé à chaque requête, sans ETag
+            return ResponseEntity.ok().header(SEQUENCE, Long.toString(catalogue.sequence())).body(catalogue.produits());
+        }
+        // Deux représentations, deux ETag : l'une ou l'autre revalide la liste
+        boolean gzip = catalogue.jsonGzip() != null && accepteGzip(acceptEncoding);
+        String etag = gzip ? catalogue.etagGzip() : catalogue.etag();
+        if (correspond(ifNoneMatch, catalogue.etag()) || correspond(ifNoneMatch, catalogue.etagGzip())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDER)
+                    .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING).header(SEQUENCE, Long.toString(catalogue.sequence())).build();
+        }
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok().eTag(etag).cacheControl(REVALIDER)
+                .header(SEQUENCE, Long.toString(catalogue.sequence()))
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING).contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            reponse.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return reponse.body(gzip ? catalogue.jsonGzip() : catalogue.json());
+    }
+
+    // ADMIN & CLIENT : Modifications du catalogue depuis la séquence since (en-tête X-Sequence de la liste complète,
+    // ou champ sequence de la réponse précédente), une par produit. reprise=true : trop en retard, recharger la liste.
+    @PreAuthorize("hasAnyRole('ADMIN','CLIENT')")
+    @GetMapping("/changes")
+    public ResponseEntity<ModificationsProduits> listerModifications(@RequestParam long since) {
+        return ResponseEntity.ok(journalModifications.depuis(since));
+    }
+
+    // ADMIN & CLIENT : Flux SSE des modifications : rattrapage depuis since (ou Last-Event-ID à la reconnexion),
+    // puis événements "modifications" au fil de l'eau, "reprise" si le client est trop en retard
+    @PreAuthorize("hasAnyRole('ADMIN','CLIENT')")
+    @GetMapping(value = "/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suivreModifications(@RequestParam(required = false) Long since,
+                                          @RequestHeader(value = "Last-Event-ID", required = false) String dernierEvenement,
+                                          @AuthenticationPrincipal Jwt jwt) {
+        String username = jwt.getClaimAsString("preferred_username");
+        logger.info("Utilisateur {} suit les modifications du catalogue", username);
+        Long depuis = since;
+        if (depuis == null && dernierEvenement != null) {
+            try {
+                depuis = Long.parseLong(dernierEvenement.trim());
+            } catch (NumberFormatException e) {
+                // Identifiant inconnu : rattrapage impossible, le flux commence par une reprise
+                depuis = -1L;
+            }
+        }
+        return journalModifications.abonner(depuis);
+    }
+
+    // ADMIN & CLIENT : Rechercher dans le nom et la description, du plus pertinent au moins pertinent.
+    // Le dernier mot est complété (saisie en cours) : q=ordi trouve « Ordinateur portable ».
+    @PreAuthorize("hasAnyRole('ADMIN','CLIENT')")
+    @GetMapping("/recherche")
+    public ResponseEntity<List<Produit>> rechercherProduits(@RequestParam("q") String requete,
+                                                            @RequestParam(required = false) Integer limite,
+                                                            @AuthenticationPrincipal Jwt jwt) {
+        String username = jwt.getClaimAsString("preferred_username");
+        logger.info("Utilisateur {} recherche des produits", username);
+        if (requete.isBlank() || requete.length() > longueurMaxRecherche) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(produitService.rechercherProduits(requete, limite));
     }
 
     // ADMIN & CLIENT : Consulter par ID
     @PreAuthorize("hasAnyRole('ADMIN','CLIENT')")
     @GetMapping("/{id}")
     public ResponseEntity<Produit> consulterProduit(@PathVariable Long id,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
                                                     @AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getClaimAsString("preferred_username");
         logger.info("Utilisateur {} consulte le produit ID: {}", username, id);
-        return produitService.consulterProduit(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        CatalogueProduits.Fiche fiche = produitService.ficheCatalogue(id);
+        if (fiche == null) {
+            return produitService.consulterProduit(id)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        }
+        if (correspond(ifNoneMatch, fiche.etag())) {
+            return nonModifie(fiche.etag());
+        }
+        return ResponseEntity.ok().eTag(fiche.etag()).cacheControl(REVALIDER).varyBy(HttpHeaders.ACCEPT).body(fiche.produit());
+    }
+
+    // ADMIN & CLIENT : Consulter plusieurs produits en un seul appel (utilisé par le service Commande)
+    @PreAuthorize("hasAnyRole('ADMIN','CLIENT')")
+    @GetMapping("/batch")
+    public ResponseEntity<ProduitsBatchResponse> consulterProduits(@RequestParam("ids") List<Long> ids,
+                                                                   @AuthenticationPrincipal Jwt jwt) {
+        String username = jwt.getClaimAsString("preferred_username");
+        logger.info("Utilisateur {} consulte {} produits en lot", username, ids.size());
+        if (ids.size() > tailleMaxBatch) {
+            logger.warn("Lot de {} ids refusé (maximum {})", ids.size(), tailleMaxBatch);
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(produitService.consulterProduits(ids));
+    }
+
+    // Appel inter-services (Commande) : réserver le stock d'une commande, sous l'id de réservation choisi par l'appelant.
+    // Réponse 200 dans tous les cas, le détail par ligne indique si la réservation a été appliquée ;
+    // 409 si le même id est réservé au même moment par un autre appel.
+    @PreAuthorize("hasAnyRole('ADMIN','CLIENT')")
+    @PostMapping("/reservations")
+    public ResponseEntity<ReservationResponse> reserverStock(@RequestBody ReservationRequest request,
+                                                             @AuthenticationPrincipal Jwt jwt) {
+        String username = jwt.getClaimAsString("preferred_username");
+        logger.info("Utilisateur {} réserve du stock", username);
+        try {
+            return ResponseEntity.ok(produitService.reserverStock(request));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Utilisateur {}: {}", username, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Réservation {} déjà en cours", request.getReservationId());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // Appel inter-services (Commande) : compenser une réservation, désignée par son id seulement.
+    // Seules les quantités enregistrées à la réservation sont rendues, une seule fois.
+    @PreAuthorize("hasAnyRole('ADMIN','CLIENT')")
+    @PostMapping("/reservations/liberation")
+    public ResponseEntity<ReservationResponse> libererStock(@RequestBody ReservationRequest request,
+                                                            @AuthenticationPrincipal Jwt jwt) {
+        String username = jwt.getClaimAsString("preferred_username");
+        logger.info("Utilisateur {} libère du stock", username);
+        try {
+            return ResponseEntity.ok(produitService.libererStock(request));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Utilisateur {}: {}", username, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Réservation {} réservée au même moment", request.getReservationId());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // If-None-Match : liste d'ETag ou *, comparaison faible (RFC 9110)
+    private static boolean correspond(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String valeur = candidate.trim();
+            if (valeur.startsWith("W/")) {
+                valeur = valeur.substring(2);
+            }
+            if (valeur.equals("*") || valeur.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Version attendue d'un If-Match : "3", W/"3" ou 3 ; null si ce n'est pas un nombre
+    // Version attendue par If-Match : ETag de la fiche actuelle (celui de GET /{id}) ou numéro de version ;
+    // null si aucune valeur ne désigne l'état actuel (produit modifié depuis, ou inconnu)
+    private Long versionAttendue(Long id, String ifMatch) {
+        CatalogueProduits.Fiche fiche = produitService.ficheCatalogue(id);
+        for (String candidat : ifMatch.split(",")) {
+            String valeur = candidat.trim();
+            if (fiche != null && (valeur.equals("*") || valeur.equals(fiche.etag()) || valeur.equals("W/" + fiche.etag()))) {
+                return fiche.produit().getVersion();
+            }
+            Long version = version(valeur);
+            if (version != null) {
+                return version;
+            }
+        }
+        return null;
+    }
+
+    // If-Match qui ne désigne pas l'état actuel : 412, ou 404 si le produit n'existe pas
+    private <T> ResponseEntity<T> refuserIfMatch(Long id) {
+        return ResponseEntity.status(produitService.consulterProduit(id).isPresent()
+                ? HttpStatus.PRECONDITION_FAILED : HttpStatus.NOT_FOUND).build();
+    }
+
+    // ETag de la fiche si le catalogue a déjà pris en compte la nouvelle version ; null sinon (un GET le donnera)
+    private String etagApres(Long id, Long version) {
+        CatalogueProduits.Fiche fiche = produitService.ficheCatalogue(id);
+        return fiche != null && version != null && version.equals(fiche.produit().getVersion()) ? fiche.etag() : null;
+    }
+
+    private static Long version(String ifMatch) {
+        String valeur = ifMatch.trim();
+        if (valeur.startsWith("W/")) {
+            valeur = valeur.substring(2);
+        }
+        if (valeur.length() >= 2 && valeur.startsWith("\"") && valeur.endsWith("\"")) {
+            valeur = valeur.substring(1, valeur.length() - 1);
+        }
+        try {
+            return Long.parseLong(valeur);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // false si Accept préfère Smile à JSON
+    private static boolean prefereJson(String accept) {
+        if (accept == null) {
+            return true;
+        }
+        List<MediaType> types;
+        try {
+            types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return true;
+        }
+        types.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : types) {
+            if (type.getQualityValue() > 0 && type.includes(MediaType.APPLICATION_JSON)) {
+                return true;
+            }
+            if (type.getQualityValue() > 0 && type.isCompatibleWith(SMILE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Accept-Encoding contient gzip (ou *) sans q=0
+    private static boolean accepteGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String candidat : acceptEncoding.split(",")) {
+            String[] parties = candidat.split(";");
+            String codage = parties[0].trim();
+            if (!codage.equalsIgnoreCase("gzip") && !codage.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parties.length; i++) {
+                String parametre = parties[i].trim().replace(" ", "");
+                if (parametre.startsWith("q=") && parametre.substring(2).matches("0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static <T> ResponseEntity<T> nonModifie(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDER).varyBy(HttpHeaders.ACCEPT).build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package amouhal.nouhayla.produit.dto;
+
+import amouhal.nouhayla.produit.entity.Produit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position dans une liste de produits triée par (colonne du tri, id), encodée de façon opaque
+public record CurseurProduit(String valeur, Long id) {
+
+    public static CurseurProduit apres(Produit produit, TriProduits tri) {
+        Object valeur = switch (tri) {
+            case ID -> produit.getId();
+            case PRIX -> produit.getPrix();
+            case NOM -> produit.getNom();
+            case STOCK -> produit.getQuantiteStock();
+        };
+        return new CurseurProduit(String.valueOf(valeur), produit.getId());
+    }
+
+    public String encoder() {
+        String brut = id + "|" + valeur;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // L'id d'abord : la valeur triée (un nom) peut contenir le séparateur
+    public static CurseurProduit decoder(String valeur) {
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(valeur), StandardCharsets.UTF_8);
+            int separateur = brut.indexOf('|');
+            return new CurseurProduit(brut.substring(separateur + 1), Long.parseLong(brut.substring(0, separateur)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide: " + valeur);
+        }
+    }
+}
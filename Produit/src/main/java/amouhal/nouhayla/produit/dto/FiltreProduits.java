@@ -0,0 +1,60 @@
+package amouhal.nouhayla.produit.dto;
+
+// Critères de la liste paginée des produits (GET /api/produits?prixMin=&prixMax=&enStock=&tri=&sens=)
+public class FiltreProduits {
+    private Double prixMin;
+    private Double prixMax;
+    private boolean enStock;
+    private TriProduits tri = TriProduits.ID;
+    private boolean decroissant;
+
+    public FiltreProduits() {}
+
+    public FiltreProduits(Double prixMin, Double prixMax, boolean enStock, TriProduits tri, boolean decroissant) {
+        this.prixMin = prixMin;
+        this.prixMax = prixMax;
+        this.enStock = enStock;
+        this.tri = tri;
+        this.decroissant = decroissant;
+    }
+
+    public Double getPrixMin() {
+        return prixMin;
+    }
+
+    public void setPrixMin(Double prixMin) {
+        this.prixMin = prixMin;
+    }
+
+    public Double getPrixMax() {
+        return prixMax;
+    }
+
+    public void setPrixMax(Double prixMax) {
+        this.prixMax = prixMax;
+    }
+
+    public boolean isEnStock() {
+        return enStock;
+    }
+
+    public void setEnStock(boolean enStock) {
+        this.enStock = enStock;
+    }
+
+    public TriProduits getTri() {
+        return tri;
+    }
+
+    public void setTri(TriProduits tri) {
+        this.tri = tri;
+    }
+
+    public boolean isDecroissant() {
+        return decroissant;
+    }
+
+    public void setDecroissant(boolean decroissant) {
+        this.decroissant = decroissant;
+    }
+}
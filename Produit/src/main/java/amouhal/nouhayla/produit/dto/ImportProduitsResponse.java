@@ -0,0 +1,96 @@
+package amouhal.nouhayla.produit.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Bilan d'un import de catalogue : totaux par issue, et détail des premières lignes rejetées
+public class ImportProduitsResponse {
+    private long inseres;
+    private long modifies;
+    // Produits déjà identiques au fichier : aucune écriture
+    private long inchanges;
+    private long rejetes;
+    // Au plus produit.import.rejets-max lignes, dans l'ordre du fichier
+    private List<Rejet> rejets = new ArrayList<>();
+
+    public ImportProduitsResponse() {}
+
+    public long getInseres() {
+        return inseres;
+    }
+
+    public void setInseres(long inseres) {
+        this.inseres = inseres;
+    }
+
+    public long getModifies() {
+        return modifies;
+    }
+
+    public void setModifies(long modifies) {
+        this.modifies = modifies;
+    }
+
+    public long getInchanges() {
+        return inchanges;
+    }
+
+    public void setInchanges(long inchanges) {
+        this.inchanges = inchanges;
+    }
+
+    public long getRejetes() {
+        return rejetes;
+    }
+
+    public void setRejetes(long rejetes) {
+        this.rejetes = rejetes;
+    }
+
+    public List<Rejet> getRejets() {
+        return rejets;
+    }
+
+    public void setRejets(List<Rejet> rejets) {
+        this.rejets = rejets;
+    }
+
+    public static class Rejet {
+        // Rang du produit dans le fichier (à partir de 1)
+        private int numero;
+        private String reference;
+        private String motif;
+
+        public Rejet() {}
+
+        public Rejet(int numero, String reference, String motif) {
+            this.numero = numero;
+            this.reference = reference;
+            this.motif = motif;
+        }
+
+        public int getNumero() {
+            return numero;
+        }
+
+        public void setNumero(int numero) {
+            this.numero = numero;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+
+        public void setReference(String reference) {
+            this.reference = reference;
+        }
+
+        public String getMotif() {
+            return motif;
+        }
+
+        public void setMotif(String motif) {
+            this.motif = motif;
+        }
+    }
+}
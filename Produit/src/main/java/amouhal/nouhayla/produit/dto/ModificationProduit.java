@@ -0,0 +1,56 @@
+package amouhal.nouhayla.produit.dto;
+
+// Corps de PATCH /api/produits/{id} : seuls les champs renseignés sont modifiés (absent ou null : inchangé)
+public class ModificationProduit {
+    private String reference;
+    private String nom;
+    private String description;
+    private Double prix;
+    private Integer quantiteStock;
+
+    public ModificationProduit() {}
+
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public void setNom(String nom) {
+        this.nom = nom;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Double getPrix() {
+        return prix;
+    }
+
+    public void setPrix(Double prix) {
+        this.prix = prix;
+    }
+
+    public Integer getQuantiteStock() {
+        return quantiteStock;
+    }
+
+    public void setQuantiteStock(Integer quantiteStock) {
+        this.quantiteStock = quantiteStock;
+    }
+
+    public boolean estVide() {
+        return reference == null && nom == null && description == null && prix == null && quantiteStock == null;
+    }
+}
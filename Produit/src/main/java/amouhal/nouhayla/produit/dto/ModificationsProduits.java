@@ -0,0 +1,112 @@
+package amouhal.nouhayla.produit.dto;
+
+import amouhal.nouhayla.produit.entity.Produit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Réponse de GET /api/produits/changes et données des événements du flux SSE : modifications du catalogue
+// postérieures à la séquence du client, une seule par produit (la dernière)
+public class ModificationsProduits {
+    // Séquence à repasser dans since à l'appel suivant
+    private long sequence;
+    // true : le client est trop en retard pour le journal ; recharger la liste complète (en-tête X-Sequence)
+    private boolean reprise;
+    // true : d'autres modifications suivent, à demander aussitôt avec since=sequence
+    private boolean suite;
+    private List<Modification> modifications = new ArrayList<>();
+
+    public ModificationsProduits() {}
+
+    public ModificationsProduits(long sequence, boolean reprise, boolean suite, List<Modification> modifications) {
+        this.sequence = sequence;
+        this.reprise = reprise;
+        this.suite = suite;
+        this.modifications = modifications;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public boolean isReprise() {
+        return reprise;
+    }
+
+    public void setReprise(boolean reprise) {
+        this.reprise = reprise;
+    }
+
+    public boolean isSuite() {
+        return suite;
+    }
+
+    public void setSuite(boolean suite) {
+        this.suite = suite;
+    }
+
+    public List<Modification> getModifications() {
+        return modifications;
+    }
+
+    public void setModifications(List<Modification> modifications) {
+        this.modifications = modifications;
+    }
+
+    public static class Modification {
+        public static final String AJOUT = "AJOUT";
+        public static final String MODIFICATION = "MODIFICATION";
+        public static final String SUPPRESSION = "SUPPRESSION";
+
+        private long sequence;
+        private String type;
+        private Long produitId;
+        // Fiche après modification (stock compris) ; null pour une suppression
+        private Produit produit;
+
+        public Modification() {}
+
+        public Modification(long sequence, String type, Long produitId, Produit produit) {
+            this.sequence = sequence;
+            this.type = type;
+            this.produitId = produitId;
+            this.produit = produit;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public void setSequence(long sequence) {
+            this.sequence = sequence;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public Long getProduitId() {
+            return produitId;
+        }
+
+        public void setProduitId(Long produitId) {
+            this.produitId = produitId;
+        }
+
+        public Produit getProduit() {
+            return produit;
+        }
+
+        public void setProduit(Produit produit) {
+            this.produit = produit;
+        }
+    }
+}
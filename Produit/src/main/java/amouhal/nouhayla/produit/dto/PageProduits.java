@@ -0,0 +1,24 @@
+package amouhal.nouhayla.produit.dto;
+
+import amouhal.nouhayla.produit.entity.Produit;
+
+import java.util.List;
+
+public class PageProduits {
+    private final List<Produit> produits;
+    // null sur la dernière page
+    private final String curseurSuivant;
+
+    public PageProduits(List<Produit> produits, String curseurSuivant) {
+        this.produits = produits;
+        this.curseurSuivant = curseurSuivant;
+    }
+
+    public List<Produit> getProduits() {
+        return produits;
+    }
+
+    public String getCurseurSuivant() {
+        return curseurSuivant;
+    }
+}
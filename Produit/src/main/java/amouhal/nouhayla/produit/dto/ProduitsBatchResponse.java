@@ -0,0 +1,34 @@
+package amouhal.nouhayla.produit.dto;
+
+import amouhal.nouhayla.produit.entity.Produit;
+
+import java.util.List;
+
+public class ProduitsBatchResponse {
+    private List<Produit> produits;
+    // Ids demandés sans produit correspondant
+    private List<Long> introuvables;
+
+    public ProduitsBatchResponse() {}
+
+    public ProduitsBatchResponse(List<Produit> produits, List<Long> introuvables) {
+        this.produits = produits;
+        this.introuvables = introuvables;
+    }
+
+    public List<Produit> getProduits() {
+        return produits;
+    }
+
+    public void setProduits(List<Produit> produits) {
+        this.produits = produits;
+    }
+
+    public List<Long> getIntrouvables() {
+        return introuvables;
+    }
+
+    public void setIntrouvables(List<Long> introuvables) {
+        this.introuvables = introuvables;
+    }
+}
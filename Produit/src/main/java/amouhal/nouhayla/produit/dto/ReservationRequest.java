@@ -0,0 +1,60 @@
+package amouhal.nouhayla.produit.dto;
+
+import java.util.List;
+
+public class ReservationRequest {
+    // Choisi par l'appelant (sinon attribué par le service) : rejouer la réservation avec le même id ne la réapplique pas,
+    // et la libération ne désigne que cet id (les lignes sont celles enregistrées à la réservation)
+    private String reservationId;
+    private List<LigneReservation> lignes;
+
+    public ReservationRequest() {}
+
+    public ReservationRequest(List<LigneReservation> lignes) {
+        this.lignes = lignes;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public List<LigneReservation> getLignes() {
+        return lignes;
+    }
+
+    public void setLignes(List<LigneReservation> lignes) {
+        this.lignes = lignes;
+    }
+
+    public static class LigneReservation {
+        private Long produitId;
+        private Integer quantite;
+
+        public LigneReservation() {}
+
+        public LigneReservation(Long produitId, Integer quantite) {
+            this.produitId = produitId;
+            this.quantite = quantite;
+        }
+
+        public Long getProduitId() {
+            return produitId;
+        }
+
+        public void setProduitId(Long produitId) {
+            this.produitId = produitId;
+        }
+
+        public Integer getQuantite() {
+            return quantite;
+        }
+
+        public void setQuantite(Integer quantite) {
+            this.quantite = quantite;
+        }
+    }
+}
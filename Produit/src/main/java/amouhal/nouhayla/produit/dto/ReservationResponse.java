@@ -0,0 +1,83 @@
+package amouhal.nouhayla.produit.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReservationResponse {
+    public static final String RESERVEE = "RESERVEE";
+    public static final String LIBEREE = "LIBEREE";
+    public static final String STOCK_INSUFFISANT = "STOCK_INSUFFISANT";
+    public static final String INTROUVABLE = "INTROUVABLE";
+    public static final String QUANTITE_INVALIDE = "QUANTITE_INVALIDE";
+    // Réservation déjà libérée, ou libérée avant d'arriver : refusée
+    public static final String ANNULEE = "ANNULEE";
+
+    private String reservationId;
+    // false si au moins une ligne a échoué : dans ce cas aucune ligne n'est appliquée
+    private boolean reussie;
+    private List<ResultatLigne> lignes = new ArrayList<>();
+
+    public ReservationResponse() {}
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public boolean isReussie() {
+        return reussie;
+    }
+
+    public void setReussie(boolean reussie) {
+        this.reussie = reussie;
+    }
+
+    public List<ResultatLigne> getLignes() {
+        return lignes;
+    }
+
+    public void setLignes(List<ResultatLigne> lignes) {
+        this.lignes = lignes;
+    }
+
+    public static class ResultatLigne {
+        private Long produitId;
+        private Integer quantite;
+        private String statut;
+
+        public ResultatLigne() {}
+
+        public ResultatLigne(Long produitId, Integer quantite, String statut) {
+            this.produitId = produitId;
+            this.quantite = quantite;
+            this.statut = statut;
+        }
+
+        public Long getProduitId() {
+            return produitId;
+        }
+
+        public void setProduitId(Long produitId) {
+            this.produitId = produitId;
+        }
+
+        public Integer getQuantite() {
+            return quantite;
+        }
+
+        public void setQuantite(Integer quantite) {
+            this.quantite = quantite;
+        }
+
+        public String getStatut() {
+            return statut;
+        }
+
+        public void setStatut(String statut) {
+            this.statut = statut;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package amouhal.nouhayla.produit.dto;
+
+// Tris proposés sur la liste des produits : attribut trié, départagé par l'id.
+// Chacun est servi par l'index (colonne, id) correspondant.
+public enum TriProduits {
+    ID("id"),
+    PRIX("prix"),
+    NOM("nom"),
+    STOCK("quantiteStock");
+
+    private final String attribut;
+
+    TriProduits(String attribut) {
+        this.attribut = attribut;
+    }
+
+    public String getAttribut() {
+        return attribut;
+    }
+
+    public static TriProduits depuis(String valeur) {
+        if (valeur == null || valeur.isBlank()) {
+            return ID;
+        }
+        try {
+            return valueOf(valeur.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Tri inconnu: " + valeur);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package amouhal.nouhayla.produit.entity;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+
+// Position du journal du registre de stock déjà reportée dans la table Produit.
+// Mise à jour dans la même transaction que les deltas : un redémarrage ne rejoue rien deux fois.
+@Entity
+public class PointControleStock {
+
+    public static final Long ID_UNIQUE = 1L;
+
+    @Id
+    private Long id;
+
+    private Long segment;
+    private Long position;
+
+    public PointControleStock() {}
+
+    public PointControleStock(Long segment, Long position) {
+        this.id = ID_UNIQUE;
+        this.segment = segment;
+        this.position = position;
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getSegment() { return segment; }
+    public void setSegment(Long segment) { this.segment = segment; }
+    public Long getPosition() { return position; }
+    public void setPosition(Long position) { this.position = position; }
+}
@@ -1,27 +1,55 @@
 package amouhal.nouhayla.produit.entity;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.DynamicUpdate;
 
 
 @Entity
+// UPDATE limité aux colonnes modifiées : l'enregistrement d'une fiche chargée plus tôt ne réécrit pas
+// quantite_stock, changé entre-temps par les réservations ou les reports du registre de stock
+@DynamicUpdate
+// Un index (colonne, id) par tri de la liste paginée : chaque page est un parcours d'index à partir du curseur
+@Table(indexes = {
+        @Index(name = "idx_produit_prix_id", columnList = "prix, id"),
+        @Index(name = "idx_produit_nom_id", columnList = "nom, id"),
+        @Index(name = "idx_produit_stock_id", columnList = "quantiteStock, id")
+})
 public class Produit {
 
+    // Séquence à allocation groupée : permet le regroupement des insertions (chargement initial, imports)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "produit_seq")
+    @SequenceGenerator(name = "produit_seq", sequenceName = "produit_seq", allocationSize = 50)
     private Long id;
 
+    // Référence du fournisseur : clé naturelle des imports de catalogue (facultative)
+    @Column(unique = true, length = 64)
+    private String reference;
+
     private String nom;
     private String description;
     private Double prix;
     private Integer quantiteStock;
 
+    // Version de la fiche (nom, description, prix, référence, stock saisi par un admin) : contrôle optimiste
+    // des modifications concurrentes. Les mouvements de stock des réservations ne la changent pas.
+    @Version
+    private Long version;
+
     public Produit() {}
 
     // Getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+    public String getReference() { return reference; }
+    public void setReference(String reference) { this.reference = reference; }
     public String getNom() { return nom; }
     public void setNom(String nom) { this.nom = nom; }
     public String getDescription() { return description; }
@@ -30,4 +58,6 @@ public class Produit {
     public void setPrix(Double prix) { this.prix = prix; }
     public Integer getQuantiteStock() { return quantiteStock; }
     public void setQuantiteStock(Integer quantiteStock) { this.quantiteStock = quantiteStock; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
\ No newline at end of file
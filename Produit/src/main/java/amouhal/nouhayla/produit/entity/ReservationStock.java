@@ -0,0 +1,80 @@
+package amouhal.nouhayla.produit.entity;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+
+// Réservation de stock validée, identifiée par l'id choisi par l'appelant (service Commande) :
+// une réservation rejouée avec le même id n'est pas appliquée deux fois, et la libération ne rend
+// que les quantités enregistrées ici, une seule fois (RESERVEE -> LIBEREE).
+// ANNULEE : libération arrivée avant la réservation (délai dépassé côté appelant) ; la réservation
+// arrivée ensuite avec cet id est refusée.
+@Entity
+@Table(indexes = @Index(name = "idx_reservation_stock_creee_le", columnList = "creeeLe"))
+public class ReservationStock {
+
+    public static final String RESERVEE = "RESERVEE";
+    public static final String LIBEREE = "LIBEREE";
+    public static final String ANNULEE = "ANNULEE";
+
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @Column(length = 16)
+    private String statut;
+
+    private LocalDateTime creeeLe;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "reservation_stock_ligne", joinColumns = @JoinColumn(name = "reservation_id"))
+    private List<Ligne> lignes = new ArrayList<>();
+
+    public ReservationStock() {}
+
+    public ReservationStock(String id, String statut, List<Ligne> lignes) {
+        this.id = id;
+        this.statut = statut;
+        this.lignes = lignes;
+        this.creeeLe = LocalDateTime.now();
+    }
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getStatut() { return statut; }
+    public void setStatut(String statut) { this.statut = statut; }
+    public LocalDateTime getCreeeLe() { return creeeLe; }
+    public void setCreeeLe(LocalDateTime creeeLe) { this.creeeLe = creeeLe; }
+    public List<Ligne> getLignes() { return lignes; }
+    public void setLignes(List<Ligne> lignes) { this.lignes = lignes; }
+
+    @Embeddable
+    public static class Ligne {
+        private Long produitId;
+        private Integer quantite;
+
+        public Ligne() {}
+
+        public Ligne(Long produitId, Integer quantite) {
+            this.produitId = produitId;
+            this.quantite = quantite;
+        }
+
+        public Long getProduitId() { return produitId; }
+        public void setProduitId(Long produitId) { this.produitId = produitId; }
+        public Integer getQuantite() { return quantite; }
+        public void setQuantite(Integer quantite) { this.quantite = quantite; }
+    }
+}
@@ -0,0 +1,73 @@
+package amouhal.nouhayla.produit.recherche;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Découpage d'un texte en termes pour l'index de recherche, identique à l'indexation et à la requête :
+// - accents retirés (é → e, ç → c) et ligatures dépliées (œ → oe), minuscules ;
+// - coupure sur tout ce qui n'est ni lettre ni chiffre (espaces, ponctuation, apostrophes : l'écran → l, ecran) ;
+// - pluriel simple replié (ecrans → ecran, bijoux → bijou) pour que singulier et pluriel se trouvent.
+// Les mots vides (le, de, pour…) ne sont pas indexés.
+final class AnalyseurTexte {
+
+    // Au-delà, le terme est tronqué : il reste trouvable par son début
+    static final int TERME_MAX = 32;
+
+    private static final Set<String> MOTS_VIDES = Set.of(
+            "a", "au", "aux", "avec", "ce", "ces", "cet", "cette", "d", "dans", "de", "des", "du", "en", "et",
+            "l", "la", "le", "les", "ou", "par", "pour", "qu", "que", "qui", "sa", "sans", "se", "ses", "son",
+            "sur", "un", "une");
+
+    private AnalyseurTexte() {}
+
+    // Termes du texte dans l'ordre, mots vides compris, au plus max
+    static List<String> termes(String texte, int max) {
+        List<String> termes = new ArrayList<>();
+        if (texte == null || texte.isEmpty()) {
+            return termes;
+        }
+        String decompose = Normalizer.normalize(texte, Normalizer.Form.NFD);
+        StringBuilder terme = new StringBuilder();
+        for (int i = 0; i < decompose.length() && termes.size() < max; i++) {
+            char c = decompose.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            switch (c) {
+                case 'œ', 'Œ' -> terme.append("oe");
+                case 'æ', 'Æ' -> terme.append("ae");
+                case 'ß' -> terme.append("ss");
+                default -> {
+                    if (Character.isLetterOrDigit(c)) {
+                        terme.append(Character.toLowerCase(c));
+                    } else {
+                        terminer(terme, termes);
+                    }
+                }
+            }
+        }
+        if (termes.size() < max) {
+            terminer(terme, termes);
+        }
+        return termes;
+    }
+
+    static boolean motVide(String terme) {
+        return MOTS_VIDES.contains(terme);
+    }
+
+    private static void terminer(StringBuilder terme, List<String> termes) {
+        if (terme.isEmpty()) {
+            return;
+        }
+        int longueur = terme.length();
+        char fin = terme.charAt(longueur - 1);
+        if (longueur > 3 && (fin == 's' || fin == 'x') && !Character.isDigit(terme.charAt(longueur - 2))) {
+            longueur--;
+        }
+        termes.add(terme.substring(0, Math.min(longueur, TERME_MAX)));
+        terme.setLength(0);
+    }
+}
@@ -0,0 +1,587 @@
+package amouhal.nouhayla.produit.recherche;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Index inversé du nom et de la description des produits : pour chaque terme, la liste triée des documents
+// qui le contiennent avec un poids (occurrences, celles du nom comptées POIDS_NOM fois).
+// Chaque produit reçoit un numéro de document (int) à sa première indexation : une occurrence coûte 6 octets.
+// Un produit modifié garde son numéro ; celui d'un produit supprimé reste inutilisé jusqu'à la reconstruction
+// de l'index (numerosInutilises()).
+// Requête : tous les mots doivent être trouvés ; le dernier est aussi cherché comme début de terme (saisie en cours).
+// Pertinence de type BM25 : rareté du terme × poids saturé, les termes complétés comptant moins que le terme exact.
+// Lectures concurrentes, écritures exclusives.
+class IndexInverse {
+
+    static final int POIDS_NOM = 3;
+
+    // Part du score d'un terme trouvé par son début seulement
+    private static final double FACTEUR_PREFIXE = 0.6;
+
+    // Saturation du poids : au-delà de quelques occurrences, un terme n'ajoute presque plus rien
+    private static final double SATURATION = 1.2;
+
+    private static final int MOTS_REQUETE_MAX = 16;
+
+    record Resultat(long produitId, double score) {}
+
+    private final int termesParChampMax;
+    private final int prefixeTermesMax;
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+    private final TreeMap<String, Liste> termes = new TreeMap<>();
+    private final TableNumeros numeros = new TableNumeros();
+    // Numéro de document → id produit (-1 : produit supprimé) et listes où il figure (pour l'en retirer)
+    private long[] produits = new long[1024];
+    private Liste[][] listesDocuments = new Liste[1024][];
+    private int prochainNumero;
+    private int documents;
+    private long occurrences;
+    private long capacites;
+    private long caracteres;
+
+    IndexInverse(int termesParChampMax, int prefixeTermesMax) {
+        this.termesParChampMax = termesParChampMax;
+        this.prefixeTermesMax = prefixeTermesMax;
+    }
+
+    // Ajoute ou remplace le texte indexé d'un produit
+    void indexer(long produitId, String nom, String description) {
+        Map<String, Integer> poids = new LinkedHashMap<>();
+        for (String terme : AnalyseurTexte.termes(nom, termesParChampMax)) {
+            if (!AnalyseurTexte.motVide(terme)) {
+                poids.merge(terme, POIDS_NOM, Integer::sum);
+            }
+        }
+        for (String terme : AnalyseurTexte.termes(description, termesParChampMax)) {
+            if (!AnalyseurTexte.motVide(terme)) {
+                poids.merge(terme, 1, Integer::sum);
+            }
+        }
+
+        verrou.writeLock().lock();
+        try {
+            int numero = numeros.lire(produitId);
+            if (numero < 0) {
+                numero = prochainNumero++;
+                if (numero == produits.length) {
+                    produits = Arrays.copyOf(produits, numero * 2);
+                    listesDocuments = Arrays.copyOf(listesDocuments, numero * 2);
+                }
+                produits[numero] = produitId;
+                numeros.ecrire(produitId, numero);
+                documents++;
+            } else {
+                retirerTermes(numero);
+            }
+            Liste[] listes = new Liste[poids.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entree : poids.entrySet()) {
+                Liste liste = termes.get(entree.getKey());
+                if (liste == null) {
+                    liste = new Liste(entree.getKey());
+                    termes.put(liste.terme, liste);
+                    caracteres += liste.terme.length();
+                    capacites += liste.docs.length;
+                }
+                capacites += liste.ajouter(numero, entree.getValue());
+                listes[i++] = liste;
+            }
+            occurrences += listes.length;
+            listesDocuments[numero] = listes;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    void retirer(long produitId) {
+        verrou.writeLock().lock();
+        try {
+            int numero = numeros.supprimer(produitId);
+            if (numero < 0) {
+                return;
+            }
+            retirerTermes(numero);
+            produits[numero] = -1;
+            documents--;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    // Après un chargement complet : listes ramenées à leur taille exacte
+    void compacter() {
+        verrou.writeLock().lock();
+        try {
+            for (Liste liste : termes.values()) {
+                capacites += liste.ajuster();
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    List<Resultat> rechercher(String requete, int limite) {
+        List<String> mots = AnalyseurTexte.termes(requete, MOTS_REQUETE_MAX);
+        if (mots.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        // Dernier mot encore en cours de saisie s'il n'est pas suivi d'un espace ou d'une ponctuation
+        boolean saisieEnCours = Character.isLetterOrDigit(requete.charAt(requete.length() - 1));
+
+        verrou.readLock().lock();
+        try {
+            List<Critere> criteres = new ArrayList<>();
+            for (int i = 0; i < mots.size(); i++) {
+                boolean prefixe = saisieEnCours && i == mots.size() - 1;
+                if (!prefixe && AnalyseurTexte.motVide(mots.get(i))) {
+                    continue;
+                }
+                Critere critere = critere(mots.get(i), prefixe);
+                if (critere.listes.isEmpty()) {
+                    return List.of();
+                }
+                criteres.add(critere);
+            }
+            if (criteres.isEmpty()) {
+                return List.of();
+            }
+            // Le critère le plus sélectif fournit les candidats, les autres ne font que les filtrer
+            criteres.sort(Comparator.comparingLong(Critere::cout));
+            return evaluer(criteres, limite);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    int documents() {
+        verrou.readLock().lock();
+        try {
+            return documents;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    int termes() {
+        verrou.readLock().lock();
+        try {
+            return termes.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    int numerosInutilises() {
+        verrou.readLock().lock();
+        try {
+            return prochainNumero - documents;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // Estimation de la mémoire occupée (octets, JVM 64 bits à références compressées)
+    long memoire() {
+        verrou.readLock().lock();
+        try {
+            return termes.size() * 136L          // entrée de l'arbre, String, Liste et en-têtes de ses tableaux
+                    + caracteres                 // texte des termes (chaînes compactes)
+                    + capacites * 6              // numéro de document et poids
+                    + produits.length * 12L      // id produit et référence vers ses listes
+                    + documents * 16L + occurrences * 4
+                    + numeros.capacite() * 12L;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private void retirerTermes(int numero) {
+        Liste[] listes = listesDocuments[numero];
+        if (listes == null) {
+            return;
+        }
+        for (Liste liste : listes) {
+            capacites += liste.retirer(numero);
+            if (liste.taille == 0) {
+                termes.remove(liste.terme);
+                caracteres -= liste.terme.length();
+                capacites -= liste.docs.length;
+            }
+        }
+        occurrences -= listes.length;
+        listesDocuments[numero] = null;
+    }
+
+    // Listes d'un mot de la requête : le terme exact, puis au plus prefixeTermesMax termes qui le prolongent
+    private Critere critere(String mot, boolean prefixe) {
+        Critere critere = new Critere();
+        Liste exacte = termes.get(mot);
+        if (exacte != null) {
+            critere.ajouter(exacte, 1.0);
+        }
+        if (prefixe) {
+            int pris = 0;
+            for (Map.Entry<String, Liste> entree : termes.tailMap(mot, false).entrySet()) {
+                if (!entree.getKey().startsWith(mot) || pris++ == prefixeTermesMax) {
+                    break;
+                }
+                critere.ajouter(entree.getValue(), FACTEUR_PREFIXE);
+            }
+        }
+        return critere;
+    }
+
+    private double idf(Liste liste) {
+        return Math.log(1 + (documents - liste.taille + 0.5) / (liste.taille + 0.5));
+    }
+
+    // Un document à la fois, dans l'ordre des numéros : les candidats du premier critère sont cherchés dans
+    // les listes des suivants en avançant des curseurs, puis proposés aux meilleurs sans liste intermédiaire
+    private List<Resultat> evaluer(List<Critere> criteres, int limite) {
+        Critere tete = criteres.get(0);
+        Liste seule = tete.listes.size() == 1 ? tete.listes.get(0) : null;
+        Candidats union = seule == null ? tete.union() : null;
+        int taille = seule != null ? seule.taille : union.taille;
+        Meilleurs meilleurs = new Meilleurs(limite);
+        candidats:
+        for (int i = 0; i < taille; i++) {
+            int doc = seule != null ? seule.docs[i] : union.docs[i];
+            double score = seule != null ? tete.score(seule, i, 0) : union.scores[i];
+            for (int c = 1; c < criteres.size(); c++) {
+                double trouve = criteres.get(c).chercher(doc);
+                if (trouve < 0) {
+                    continue candidats;
+                }
+                score += trouve;
+            }
+            meilleurs.proposer(produits[doc], score);
+        }
+        return meilleurs.resultats();
+    }
+
+    // Documents triés par numéro, avec leur score
+    private record Candidats(int[] docs, double[] scores, int taille) {}
+
+    // Listes d'un mot de la requête, chacune avec son facteur (rareté × exact ou complété) et son curseur
+    private final class Critere {
+        final List<Liste> listes = new ArrayList<>();
+        double[] facteurs = new double[4];
+        int[] curseurs = new int[4];
+
+        void ajouter(Liste liste, double facteur) {
+            if (listes.size() == facteurs.length) {
+                facteurs = Arrays.copyOf(facteurs, facteurs.length * 2);
+                curseurs = Arrays.copyOf(curseurs, curseurs.length * 2);
+            }
+            facteurs[listes.size()] = facteur * idf(liste);
+            listes.add(liste);
+        }
+
+        long cout() {
+            long cout = 0;
+            for (Liste liste : listes) {
+                cout += liste.taille;
+            }
+            return cout;
+        }
+
+        double score(Liste liste, int position, int rang) {
+            double poids = liste.poids[position];
+            return facteurs[rang] * poids / (poids + SATURATION);
+        }
+
+        // Meilleur score du document dans ces listes, -1 s'il n'y figure pas. Les documents sont demandés
+        // par numéros croissants : chaque curseur ne fait qu'avancer.
+        double chercher(int doc) {
+            double meilleur = -1;
+            for (int rang = 0; rang < listes.size(); rang++) {
+                Liste liste = listes.get(rang);
+                int position = liste.avancer(curseurs[rang], doc);
+                if (position < liste.taille && liste.docs[position] == doc) {
+                    meilleur = Math.max(meilleur, score(liste, position, rang));
+                    curseurs[rang] = position + 1;
+                } else {
+                    curseurs[rang] = position;
+                }
+            }
+            return meilleur;
+        }
+
+        // Union des listes, en fusionnant toujours les deux plus petites parties : une longue liste n'est recopiée
+        // qu'une ou deux fois. Un document trouvé par plusieurs termes garde son meilleur score.
+        Candidats union() {
+            PriorityQueue<Candidats> parties = new PriorityQueue<>(Comparator.comparingInt(Candidats::taille));
+            for (int rang = 0; rang < listes.size(); rang++) {
+                Liste liste = listes.get(rang);
+                double[] scores = new double[liste.taille];
+                for (int i = 0; i < liste.taille; i++) {
+                    scores[i] = score(liste, i, rang);
+                }
+                parties.add(new Candidats(liste.docs, scores, liste.taille));
+            }
+            while (parties.size() > 1) {
+                parties.add(fusionner(parties.poll(), parties.poll()));
+            }
+            return parties.poll();
+        }
+    }
+
+    private static Candidats fusionner(Candidats a, Candidats b) {
+        int[] docs = new int[a.taille + b.taille];
+        double[] scores = new double[a.taille + b.taille];
+        int i = 0, j = 0, taille = 0;
+        while (i < a.taille || j < b.taille) {
+            if (j == b.taille || (i < a.taille && a.docs[i] < b.docs[j])) {
+                docs[taille] = a.docs[i];
+                scores[taille++] = a.scores[i++];
+            } else if (i == a.taille || b.docs[j] < a.docs[i]) {
+                docs[taille] = b.docs[j];
+                scores[taille++] = b.scores[j++];
+            } else {
+                docs[taille] = a.docs[i];
+                scores[taille++] = Math.max(a.scores[i++], b.scores[j++]);
+            }
+        }
+        return new Candidats(docs, scores, taille);
+    }
+
+    // Les limite meilleurs résultats : tas dont la tête est le moins bon, sans objet par candidat.
+    // À score égal, le plus petit id produit l'emporte.
+    private static final class Meilleurs {
+        private final double[] scores;
+        private final long[] ids;
+        private int taille;
+
+        Meilleurs(int limite) {
+            scores = new double[limite];
+            ids = new long[limite];
+        }
+
+        void proposer(long id, double score) {
+            if (taille < scores.length) {
+                int i = taille++;
+                while (i > 0 && moinsBon(score, id, (i - 1) / 2)) {
+                    placer(i, (i - 1) / 2);
+                    i = (i - 1) / 2;
+                }
+                scores[i] = score;
+                ids[i] = id;
+            } else if (!moinsBon(score, id, 0)) {
+                descendre(score, id);
+            }
+        }
+
+        List<Resultat> resultats() {
+            Resultat[] resultats = new Resultat[taille];
+            while (taille > 0) {
+                resultats[taille - 1] = new Resultat(ids[0], scores[0]);
+                taille--;
+                if (taille > 0) {
+                    descendre(scores[taille], ids[taille]);
+                }
+            }
+            return Arrays.asList(resultats);
+        }
+
+        // Remplace la tête et rétablit l'ordre du tas
+        private void descendre(double score, long id) {
+            int i = 0;
+            while (2 * i + 1 < taille) {
+                int enfant = 2 * i + 1;
+                if (enfant + 1 < taille && moinsBon(scores[enfant + 1], ids[enfant + 1], enfant)) {
+                    enfant++;
+                }
+                if (!moinsBon(scores[enfant], ids[enfant], score, id)) {
+                    break;
+                }
+                placer(i, enfant);
+                i = enfant;
+            }
+            scores[i] = score;
+            ids[i] = id;
+        }
+
+        private boolean moinsBon(double score, long id, int position) {
+            return moinsBon(score, id, scores[position], ids[position]);
+        }
+
+        private static boolean moinsBon(double score, long id, double autreScore, long autreId) {
+            return score < autreScore || (score == autreScore && id > autreId);
+        }
+
+        private void placer(int destination, int source) {
+            scores[destination] = scores[source];
+            ids[destination] = ids[source];
+        }
+    }
+
+    // Documents d'un terme, triés par numéro. Les méthodes de mise à jour renvoient la variation de capacité.
+    private static final class Liste {
+        final String terme;
+        int[] docs = new int[1];
+        short[] poids = new short[1];
+        int taille;
+
+        Liste(String terme) {
+            this.terme = terme;
+        }
+
+        int ajouter(int doc, int p) {
+            // Cas courant (chargement, nouveau produit) : numéro plus grand que tous les autres, ajout en fin
+            int position = taille == 0 || docs[taille - 1] < doc
+                    ? taille
+                    : -Arrays.binarySearch(docs, 0, taille, doc) - 1;
+            int croissance = 0;
+            if (taille == docs.length) {
+                croissance = Math.max(1, taille / 2);
+                docs = Arrays.copyOf(docs, taille + croissance);
+                poids = Arrays.copyOf(poids, taille + croissance);
+            }
+            System.arraycopy(docs, position, docs, position + 1, taille - position);
+            System.arraycopy(poids, position, poids, position + 1, taille - position);
+            docs[position] = doc;
+            poids[position] = (short) Math.min(p, Short.MAX_VALUE);
+            taille++;
+            return croissance;
+        }
+
+        // Première position >= depuis dont le numéro est >= doc. Le document cherché étant le plus souvent proche
+        // du curseur : quelques pas un à un, puis pas doublés et dichotomie
+        int avancer(int depuis, int doc) {
+            int fin = Math.min(taille, depuis + 8);
+            while (depuis < fin && docs[depuis] < doc) {
+                depuis++;
+            }
+            if (depuis == taille || docs[depuis] >= doc) {
+                return depuis;
+            }
+            int bas = depuis;
+            int pas = 1;
+            while (bas + pas < taille && docs[bas + pas] < doc) {
+                bas += pas;
+                pas *= 2;
+            }
+            int position = Arrays.binarySearch(docs, bas + 1, Math.min(bas + pas + 1, taille), doc);
+            return position >= 0 ? position : -position - 1;
+        }
+
+        int retirer(int doc) {
+            int position = Arrays.binarySearch(docs, 0, taille, doc);
+            if (position < 0) {
+                return 0;
+            }
+            System.arraycopy(docs, position + 1, docs, position, taille - position - 1);
+            System.arraycopy(poids, position + 1, poids, position, taille - position - 1);
+            taille--;
+            return taille > 0 && taille < docs.length / 4 ? ajuster() : 0;
+        }
+
+        int ajuster() {
+            int avant = docs.length;
+            int apres = Math.max(1, taille);
+            if (apres == avant) {
+                return 0;
+            }
+            docs = Arrays.copyOf(docs, apres);
+            poids = Arrays.copyOf(poids, apres);
+            return apres - avant;
+        }
+    }
+
+    // Table id produit → numéro de document sans objet par entrée (adressage ouvert, sondage linéaire)
+    private static final class TableNumeros {
+        private static final long VIDE = Long.MIN_VALUE;
+
+        private long[] cles = nouvellesCles(1024);
+        private int[] valeurs = new int[1024];
+        private int taille;
+
+        int lire(long cle) {
+            int masque = cles.length - 1;
+            for (int i = indice(cle, masque); cles[i] != VIDE; i = (i + 1) & masque) {
+                if (cles[i] == cle) {
+                    return valeurs[i];
+                }
+            }
+            return -1;
+        }
+
+        void ecrire(long cle, int valeur) {
+            if ((taille + 1) * 4L > cles.length * 3L) {
+                agrandir();
+            }
+            int masque = cles.length - 1;
+            int i = indice(cle, masque);
+            while (cles[i] != VIDE && cles[i] != cle) {
+                i = (i + 1) & masque;
+            }
+            if (cles[i] == VIDE) {
+                taille++;
+            }
+            cles[i] = cle;
+            valeurs[i] = valeur;
+        }
+
+        int supprimer(long cle) {
+            int masque = cles.length - 1;
+            for (int i = indice(cle, masque); cles[i] != VIDE; i = (i + 1) & masque) {
+                if (cles[i] == cle) {
+                    int valeur = valeurs[i];
+                    combler(i, masque);
+                    taille--;
+                    return valeur;
+                }
+            }
+            return -1;
+        }
+
+        int capacite() {
+            return cles.length;
+        }
+
+        // Suppression sans marqueur : les entrées suivantes de la séquence remontent dans le trou si leur place
+        // idéale le permet, pour que la recherche s'arrête toujours à la première case vide
+        private void combler(int trou, int masque) {
+            for (int i = (trou + 1) & masque; cles[i] != VIDE; i = (i + 1) & masque) {
+                int ideal = indice(cles[i], masque);
+                if (((i - ideal) & masque) >= ((i - trou) & masque)) {
+                    cles[trou] = cles[i];
+                    valeurs[trou] = valeurs[i];
+                    trou = i;
+                }
+            }
+            cles[trou] = VIDE;
+        }
+
+        private void agrandir() {
+            long[] anciennesCles = cles;
+            int[] anciennesValeurs = valeurs;
+            cles = nouvellesCles(anciennesCles.length * 2);
+            valeurs = new int[anciennesCles.length * 2];
+            taille = 0;
+            for (int i = 0; i < anciennesCles.length; i++) {
+                if (anciennesCles[i] != VIDE) {
+                    ecrire(anciennesCles[i], anciennesValeurs[i]);
+                }
+            }
+        }
+
+        private static long[] nouvellesCles(int capacite) {
+            long[] cles = new long[capacite];
+            Arrays.fill(cles, VIDE);
+            return cles;
+        }
+
+        private static int indice(long cle, int masque) {
+            long h = cle * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & masque;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package amouhal.nouhayla.produit.recherche;
+
+import amouhal.nouhayla.produit.entity.Produit;
+import amouhal.nouhayla.produit.repository.ProduitRepository;
+import amouhal.nouhayla.produit.service.CatalogueModifie;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+// Recherche plein texte sur le nom et la description des produits, servie par un index inversé en mémoire.
+// L'index est construit au démarrage (parcours de la table par tranches), puis tenu à jour produit par produit
+// après chaque ajout, modification ou suppression validé (CatalogueModifie) : la base n'est jamais interrogée
+// pour une recherche. Il est reconstruit quand trop de numéros de documents sont inutilisés (suppressions).
+@Component
+public class RechercheProduits {
+
+    private static final Logger logger = LoggerFactory.getLogger(RechercheProduits.class);
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Termes indexés au plus par champ (nom, description) : borne la mémoire prise par un produit
+    @Value("${produit.recherche.termes-par-champ-max:64}")
+    private int termesParChampMax;
+
+    // Termes complétés au plus pour le dernier mot d'une requête (saisie en cours)
+    @Value("${produit.recherche.prefixe-termes-max:64}")
+    private int prefixeTermesMax;
+
+    @Value("${produit.recherche.lot-taille:5000}")
+    private int lotTaille;
+
+    // Part de numéros inutilisés au-delà de laquelle l'index est reconstruit
+    @Value("${produit.recherche.inutilises-max:0.25}")
+    private double inutilisesMax;
+
+    private volatile IndexInverse index;
+    // Produits modifiés pendant une reconstruction, réappliqués au nouvel index avant qu'il remplace l'ancien
+    private Set<Long> modifiesPendantReconstruction;
+    private Timer requetes;
+    private Counter reconstructions;
+
+    @PostConstruct
+    public void initialiser() {
+        requetes = Timer.builder("produit.recherche.requetes")
+                .description("Recherches plein texte dans le catalogue")
+                .register(meterRegistry);
+        reconstructions = Counter.builder("produit.recherche.reconstructions")
+                .description("Reconstructions complètes de l'index de recherche")
+                .register(meterRegistry);
+        jauge("produit.recherche.documents", "Produits indexés", IndexInverse::documents);
+        jauge("produit.recherche.termes", "Termes distincts de l'index", IndexInverse::termes);
+        jauge("produit.recherche.numeros.inutilises", "Numéros de documents libérés par des suppressions",
+                IndexInverse::numerosInutilises);
+        Gauge.builder("produit.recherche.memoire", this, r -> r.index == null ? 0 : r.index.memoire())
+                .description("Mémoire estimée de l'index de recherche")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        reconstruire();
+    }
+
+    // Ids des produits les plus pertinents, du meilleur au moins bon
+    public List<Long> rechercher(String requete, int limite) {
+        IndexInverse courant = index;
+        if (courant == null) {
+            return List.of();
+        }
+        return requetes.record(() -> courant.rechercher(requete, limite).stream()
+                .map(IndexInverse.Resultat::produitId)
+                .toList());
+    }
+
+    // Un mouvement de stock ne change pas le texte indexé ; un import (produitIds null) indexe lui-même ses produits
+    @TransactionalEventListener(fallbackExecution = true)
+    public void surModification(CatalogueModifie evenement) {
+        if (!evenement.stock() && evenement.produitIds() != null) {
+            evenement.produitIds().forEach(this::mettreAJour);
+        }
+    }
+
+    // Relecture et application sous verrou : deux mises à jour du même produit ne peuvent pas s'inverser
+    public synchronized void mettreAJour(Long produitId) {
+        if (modifiesPendantReconstruction != null) {
+            modifiesPendantReconstruction.add(produitId);
+        }
+        IndexInverse courant = index;
+        if (courant != null) {
+            appliquer(courant, produitId, produitRepository.findById(produitId));
+        }
+    }
+
+    // Produits venant d'être écrits (import en masse) : indexés tels quels, sans relecture en base
+    public synchronized void indexer(Collection<Produit> produits) {
+        if (modifiesPendantReconstruction != null) {
+            produits.forEach(produit -> modifiesPendantReconstruction.add(produit.getId()));
+        }
+        IndexInverse courant = index;
+        if (courant != null) {
+            produits.forEach(produit -> courant.indexer(produit.getId(), produit.getNom(), produit.getDescription()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${produit.recherche.controle-ms:60000}")
+    public void controler() {
+        IndexInverse courant = index;
+        if (courant != null && courant.numerosInutilises() > Math.max(1000, courant.documents() * inutilisesMax)) {
+            logger.info("Index de recherche fragmenté ({} numéros inutilisés), reconstruction", courant.numerosInutilises());
+            reconstruire();
+        }
+    }
+
+    public void reconstruire() {
+        synchronized (this) {
+            if (modifiesPendantReconstruction != null) {
+                return;
+            }
+            modifiesPendantReconstruction = new HashSet<>();
+        }
+        long debut = System.nanoTime();
+        IndexInverse nouveau = new IndexInverse(termesParChampMax, prefixeTermesMax);
+        try {
+            long dernierId = Long.MIN_VALUE;
+            List<Produit> lot;
+            do {
+                lot = produitRepository.findByIdGreaterThanOrderById(dernierId, PageRequest.of(0, lotTaille));
+                for (Produit produit : lot) {
+                    nouveau.indexer(produit.getId(), produit.getNom(), produit.getDescription());
+                    dernierId = produit.getId();
+                }
+            } while (lot.size() == lotTaille);
+            nouveau.compacter();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                modifiesPendantReconstruction = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            for (Long produitId : modifiesPendantReconstruction) {
+                appliquer(nouveau, produitId, produitRepository.findById(produitId));
+            }
+            modifiesPendantReconstruction = null;
+            index = nouveau;
+        }
+        reconstructions.increment();
+        logger.info("Index de recherche construit: {} produits, {} termes, ~{} Ko en {} ms", nouveau.documents(),
+                nouveau.termes(), nouveau.memoire() / 1024, (System.nanoTime() - debut) / 1_000_000);
+    }
+
+    private static void appliquer(IndexInverse index, Long produitId, Optional<Produit> produit) {
+        if (produit.isPresent()) {
+            index.indexer(produitId, produit.get().getNom(), produit.get().getDescription());
+        } else {
+            index.retirer(produitId);
+        }
+    }
+
+    private void jauge(String nom, String description, ToDoubleFunction<IndexInverse> valeur) {
+        Gauge.builder(nom, this, r -> r.index == null ? 0 : valeur.applyAsDouble(r.index))
+                .description(description)
+                .register(meterRegistry);
+    }
+}
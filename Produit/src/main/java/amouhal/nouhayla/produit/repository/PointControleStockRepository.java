@@ -0,0 +1,5 @@
+package amouhal.nouhayla.produit.repository;
+import amouhal.nouhayla.produit.entity.PointControleStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PointControleStockRepository extends JpaRepository<PointControleStock, Long> {}
@@ -1,5 +1,44 @@
 package amouhal.nouhayla.produit.repository;
 import amouhal.nouhayla.produit.entity.Produit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface ProduitRepository extends JpaRepository<Produit, Long> {}
\ No newline at end of file
+import java.util.Collection;
+import java.util.List;
+
+public interface ProduitRepository extends JpaRepository<Produit, Long>, JpaSpecificationExecutor<Produit> {
+
+    // Décrément conditionnel en une seule instruction : 0 ligne modifiée si le stock ne suffit pas
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Produit p set p.quantiteStock = p.quantiteStock - :quantite " +
+            "where p.id = :id and p.quantiteStock >= :quantite")
+    int decrementerStock(@Param("id") Long id, @Param("quantite") int quantite);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Produit p set p.quantiteStock = p.quantiteStock + :quantite where p.id = :id")
+    int incrementerStock(@Param("id") Long id, @Param("quantite") int quantite);
+
+    // Modification partielle en une seule instruction, si la fiche est toujours à la version attendue :
+    // un paramètre null laisse la colonne inchangée ; 0 ligne modifiée si le produit est absent ou a changé
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Produit p set p.reference = coalesce(:reference, p.reference), p.nom = coalesce(:nom, p.nom), " +
+            "p.description = coalesce(:description, p.description), p.prix = coalesce(:prix, p.prix), " +
+            "p.quantiteStock = coalesce(:quantiteStock, p.quantiteStock), p.version = p.version + 1 " +
+            "where p.id = :id and p.version = :version")
+    int modifierSiVersion(@Param("id") Long id, @Param("version") Long version, @Param("reference") String reference,
+                          @Param("nom") String nom, @Param("description") String description, @Param("prix") Double prix,
+                          @Param("quantiteStock") Integer quantiteStock);
+
+    List<Produit> findByQuantiteStockGreaterThanEqual(Integer quantiteStock);
+
+    List<Produit> findByReferenceIn(Collection<String> references);
+
+    // Parcours de toute la table par tranches, sans OFFSET (reconstruction de l'index de recherche)
+    List<Produit> findByIdGreaterThanOrderById(Long id, Pageable limite);
+}
@@ -0,0 +1,78 @@
+package amouhal.nouhayla.produit.repository;
+
+import amouhal.nouhayla.produit.dto.CurseurProduit;
+import amouhal.nouhayla.produit.dto.FiltreProduits;
+import amouhal.nouhayla.produit.dto.TriProduits;
+import amouhal.nouhayla.produit.entity.Produit;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Critères de la liste paginée des produits, traduits en clause WHERE
+public final class ProduitSpecifications {
+
+    private ProduitSpecifications() {}
+
+    // Filtres, plus la condition de reprise après le curseur (pagination par clé) :
+    // (colonne, id) > (valeur, id) écrit colonne >= valeur and (colonne > valeur or id > id du curseur),
+    // la première comparaison bornant le parcours de l'index (colonne, id).
+    // Les produits sans valeur pour la colonne triée ne figurent pas dans la liste triée.
+    public static Specification<Produit> page(FiltreProduits filtre, CurseurProduit curseur) {
+        // Lu ici pour qu'un curseur invalide soit signalé avant l'exécution de la requête
+        Object valeur = curseur == null ? null : valeur(filtre.getTri(), curseur);
+        return (root, query, cb) -> {
+            List<Predicate> conditions = new ArrayList<>();
+            if (filtre.getPrixMin() != null) {
+                conditions.add(cb.greaterThanOrEqualTo(root.get("prix"), filtre.getPrixMin()));
+            }
+            if (filtre.getPrixMax() != null) {
+                conditions.add(cb.lessThanOrEqualTo(root.get("prix"), filtre.getPrixMax()));
+            }
+            if (filtre.isEnStock()) {
+                conditions.add(cb.greaterThan(root.get("quantiteStock"), 0));
+            }
+            TriProduits tri = filtre.getTri();
+            if (tri != TriProduits.ID) {
+                conditions.add(cb.isNotNull(root.get(tri.getAttribut())));
+            }
+            if (curseur != null) {
+                Path<Long> id = root.get("id");
+                boolean decroissant = filtre.isDecroissant();
+                conditions.add(switch (tri) {
+                    case ID -> decroissant ? cb.lessThan(id, curseur.id()) : cb.greaterThan(id, curseur.id());
+                    case PRIX -> apres(cb, root.<Double>get("prix"), (Double) valeur, id, curseur.id(), decroissant);
+                    case NOM -> apres(cb, root.<String>get("nom"), (String) valeur, id, curseur.id(), decroissant);
+                    case STOCK -> apres(cb, root.<Integer>get("quantiteStock"), (Integer) valeur, id, curseur.id(), decroissant);
+                });
+            }
+            return cb.and(conditions.toArray(new Predicate[0]));
+        };
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate apres(CriteriaBuilder cb, Path<Y> colonne, Y valeur,
+                                                                     Path<Long> id, Long dernierId, boolean decroissant) {
+        if (decroissant) {
+            return cb.and(cb.lessThanOrEqualTo(colonne, valeur),
+                    cb.or(cb.lessThan(colonne, valeur), cb.lessThan(id, dernierId)));
+        }
+        return cb.and(cb.greaterThanOrEqualTo(colonne, valeur),
+                cb.or(cb.greaterThan(colonne, valeur), cb.greaterThan(id, dernierId)));
+    }
+
+    private static Object valeur(TriProduits tri, CurseurProduit curseur) {
+        try {
+            return switch (tri) {
+                case ID -> curseur.id();
+                case PRIX -> Double.valueOf(curseur.valeur());
+                case NOM -> curseur.valeur();
+                case STOCK -> Integer.valueOf(curseur.valeur());
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide pour le tri " + tri);
+        }
+    }
+}
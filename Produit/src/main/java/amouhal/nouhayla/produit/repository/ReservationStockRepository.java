@@ -0,0 +1,20 @@
+package amouhal.nouhayla.produit.repository;
+import amouhal.nouhayla.produit.entity.ReservationStock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ReservationStockRepository extends JpaRepository<ReservationStock, String> {
+
+    // Passage RESERVEE -> LIBEREE en une instruction : une seule libération concurrente obtient 1
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update ReservationStock r set r.statut = 'LIBEREE' where r.id = :id and r.statut = 'RESERVEE'")
+    int liberer(@Param("id") String id);
+
+    List<ReservationStock> findByCreeeLeBefore(LocalDateTime limite, Pageable page);
+}
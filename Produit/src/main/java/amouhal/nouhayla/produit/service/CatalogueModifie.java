@@ -0,0 +1,18 @@
+package amouhal.nouhayla.produit.service;
+
+import java.util.Collection;
+import java.util.List;
+
+// Publié à chaque modification visible de produits (fiche ou stock) ; traité après validation de la transaction
+// par CatalogueProduits et RechercheProduits. produitIds null : produits non désignés (import), catalogue rechargé ;
+// stock : seul le stock a changé (réservation, libération), sans effet sur l'index de recherche
+public record CatalogueModifie(Collection<Long> produitIds, boolean stock) {
+
+    public CatalogueModifie(Long produitId) {
+        this(produitId == null ? null : List.of(produitId), false);
+    }
+
+    public static CatalogueModifie mouvementStock(Collection<Long> produitIds) {
+        return new CatalogueModifie(List.copyOf(produitIds), true);
+    }
+}
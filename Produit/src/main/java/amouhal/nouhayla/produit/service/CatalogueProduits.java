@@ -0,0 +1,402 @@
+package amouhal.nouhayla.produit.service;
+
+import amouhal.nouhayla.produit.dto.ModificationsProduits;
+import amouhal.nouhayla.produit.entity.Produit;
+import amouhal.nouhayla.produit.repository.ProduitRepository;
+import amouhal.nouhayla.produit.stock.RegistreStock;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+// Catalogue en mémoire pour les lectures (liste, fiche, lot) : une fiche par produit, avec le stock du registre
+// déjà appliqué, son JSON et son ETag forte (empreinte SHA-256 du JSON : identique d'une instance ou d'un
+// redémarrage à l'autre pour les mêmes données) ; et la liste complète déjà sérialisée (JSON, et compressée gzip
+// si activé), écrite telle quelle par le contrôleur : ni requête, ni sérialisation à chaque lecture.
+// Une modification validée (CatalogueModifie) ne relit que les produits concernés, sur le fil "catalogue-reconstruction"
+// qui fait toutes les écritures du catalogue dans l'ordre : les mouvements de stock sont appliqués en arrière-plan,
+// une modification de fiche est attendue avant de répondre (lecture de ses propres écritures pour la fiche).
+// La liste complète est ensuite reconstruite depuis les fiches, sans relecture ni sérialisation des autres produits,
+// au plus une fois par liste-intervalle (une rafale d'écritures en regroupe les modifications) ; les lectures ne
+// l'attendent jamais, elles reçoivent la précédente jusqu'au remplacement.
+// Rechargement complet au démarrage, après un import, et toutes les duree-max (modifications faites hors
+// de ce service : autre instance, SQL direct).
+@Component
+public class CatalogueProduits {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogueProduits.class);
+
+    // json : représentation du produit, à ne pas modifier
+    public record Fiche(Produit produit, byte[] json, String etag) {}
+
+    // json et jsonGzip (null si désactivé) : corps de la liste complète, à ne pas modifier ; etagGzip pour la variante gzip ;
+    // sequence : dernière modification du journal comprise dans la liste
+    public record Instantane(List<Produit> produits, String etag, byte[] json, byte[] jsonGzip, String etagGzip,
+                             long sequence) {}
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private RegistreStock registreStock;
+
+    @Autowired
+    private JournalModifications journalModifications;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Filet de sécurité pour les modifications faites hors de ce service : rechargement complet, donc espacé
+    @Value("${produit.catalogue.duree-max:10m}")
+    private Duration dureeMax;
+
+    // Produits lus par requête lors d'un rechargement complet
+    @Value("${produit.catalogue.lot-taille:1000}")
+    private int lotTaille;
+
+    // Liste complète gardée aussi compressée, servie aux clients qui acceptent gzip
+    @Value("${produit.catalogue.gzip:true}")
+    private boolean gzip;
+
+    // Intervalle minimal entre deux reconstructions de la liste complète : une rafale d'écritures n'en provoque qu'une
+    @Value("${produit.catalogue.liste-intervalle:1s}")
+    private Duration intervalleListe;
+
+    // Attente maximale d'une modification de fiche par la requête qui l'a faite
+    @Value("${produit.catalogue.attente-max:5s}")
+    private Duration attenteMax;
+
+    // Fiches par id, modifiées uniquement par le fil de reconstruction
+    private final ConcurrentSkipListMap<Long, Fiche> fiches = new ConcurrentSkipListMap<>();
+    private final Set<Long> aRafraichir = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rafraichissementPlanifie = new AtomicBoolean();
+    private volatile boolean rechargementDemande;
+    private volatile Instantane courant;
+    // Lus et écrits sur le fil de reconstruction uniquement
+    private boolean listePlanifiee;
+    private long derniereListe;
+    private ScheduledExecutorService reconstruction;
+    private Counter chargements;
+    private Counter listes;
+
+    @PostConstruct
+    public void initialiser() {
+        reconstruction = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalogue-reconstruction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        chargements = Counter.builder("produit.catalogue.chargements")
+                .description("Rechargements complets du catalogue depuis la base")
+                .register(meterRegistry);
+        listes = Counter.builder("produit.catalogue.listes")
+                .description("Reconstructions de la liste complète pré-sérialisée")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        reconstruction.shutdownNow();
+    }
+
+    // Préchargement : les premières lectures ne paient pas le chargement
+    @EventListener(ApplicationReadyEvent.class)
+    public void prechauffer() {
+        lire();
+        reconstruction.scheduleWithFixedDelay(() -> {
+            rechargementDemande = true;
+            rafraichir();
+        }, dureeMax.toMillis(), dureeMax.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void invalider(CatalogueModifie evenement) {
+        if (evenement.produitIds() == null) {
+            rechargementDemande = true;
+            planifier();
+        } else if (evenement.stock()) {
+            aRafraichir.addAll(evenement.produitIds());
+            planifier();
+        } else {
+            aRafraichir.addAll(evenement.produitIds());
+            attendre(reconstruction.submit(this::rafraichir));
+        }
+    }
+
+    // Liste complète la plus récente ; seul le premier appel (avant le préchargement) attend le chargement
+    public Instantane lire() {
+        Instantane instantane = courant;
+        if (instantane == null) {
+            attendre(reconstruction.submit(() -> {
+                if (courant == null) {
+                    recharger();
+                }
+            }));
+            instantane = courant;
+            if (instantane == null) {
+                throw new IllegalStateException("Catalogue indisponible");
+            }
+        }
+        return instantane;
+    }
+
+    // null si le produit n'est pas dans le catalogue
+    public Fiche fiche(Long id) {
+        if (courant == null) {
+            lire();
+        }
+        return fiches.get(id);
+    }
+
+    // Une seule passe en attente : les modifications arrivées d'ici son début y sont comprises
+    private void planifier() {
+        if (rafraichissementPlanifie.compareAndSet(false, true)) {
+            reconstruction.execute(this::rafraichir);
+        }
+    }
+
+    private void rafraichir() {
+        rafraichissementPlanifie.set(false);
+        if (courant == null) {
+            // Pas encore chargé : le chargement initial lira tout
+            return;
+        }
+        if (rechargementDemande) {
+            rechargementDemande = false;
+            aRafraichir.clear();
+            try {
+                recharger();
+            } catch (RuntimeException e) {
+                rechargementDemande = true;
+                logger.warn("Rechargement du catalogue impossible: {}", e.getMessage());
+            }
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> iterateur = aRafraichir.iterator(); iterateur.hasNext(); ) {
+            ids.add(iterateur.next());
+            iterateur.remove();
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Long, Produit> lus = produitRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Produit::getId, Function.identity()));
+            ids.sort(null);
+            List<JournalModifications.Changement> changements = new ArrayList<>();
+            for (Long id : ids) {
+                appliquer(id, lus.get(id), changements);
+            }
+            publier(changements);
+        } catch (RuntimeException e) {
+            // Repris à la prochaine modification, ou au prochain rechargement complet
+            aRafraichir.addAll(ids);
+            logger.warn("Mise à jour du catalogue impossible pour {} produits: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    // Lecture par pages dans l'ordre des ids (aucune transaction : chaque page est détachée une fois lue) ;
+    // les fiches dont l'id manque entre deux produits lus ont été supprimées
+    private void recharger() {
+        long debut = System.nanoTime();
+        boolean initial = courant == null;
+        List<JournalModifications.Changement> changements = new ArrayList<>();
+        Long dernierId = Long.MIN_VALUE;
+        List<Produit> lot;
+        do {
+            lot = produitRepository.findByIdGreaterThanOrderById(dernierId, PageRequest.of(0, lotTaille));
+            for (Produit produit : lot) {
+                supprimerEntre(dernierId, produit.getId(), changements);
+                appliquer(produit.getId(), produit, changements);
+                dernierId = produit.getId();
+            }
+        } while (lot.size() == lotTaille);
+        supprimerEntre(dernierId, Long.MAX_VALUE, changements);
+        chargements.increment();
+        logger.debug("Catalogue chargé: {} produits en {} ms", fiches.size(), (System.nanoTime() - debut) / 1_000_000);
+        if (initial) {
+            construireListe();
+        } else {
+            changements.sort((a, b) -> a.produitId().compareTo(b.produitId()));
+            publier(changements);
+        }
+    }
+
+    // Fiches d'ids strictement compris entre deux produits lus
+    private void supprimerEntre(Long apres, Long avant, List<JournalModifications.Changement> changements) {
+        if (apres >= avant) {
+            return;
+        }
+        for (Long id : new ArrayList<>(fiches.subMap(apres, false, avant, false).keySet())) {
+            appliquer(id, null, changements);
+        }
+    }
+
+    // Fiche remplacée seulement si la représentation du produit a changé ; produit null : supprimé
+    private void appliquer(Long id, Produit produit, List<JournalModifications.Changement> changements) {
+        Fiche ancienne = fiches.get(id);
+        if (produit == null) {
+            if (ancienne != null) {
+                fiches.remove(id);
+                changements.add(new JournalModifications.Changement(ModificationsProduits.Modification.SUPPRESSION, id, null));
+            }
+            return;
+        }
+        Produit affiche = registreStock.appliquer(produit);
+        if (ancienne != null && memesChamps(ancienne.produit(), affiche)) {
+            // Cas courant du rechargement complet : ni sérialisation ni empreinte
+            return;
+        }
+        byte[] json = json(affiche);
+        if (ancienne != null && Arrays.equals(ancienne.json(), json)) {
+            return;
+        }
+        fiches.put(id, new Fiche(affiche, json, etag(sha256().digest(json))));
+        changements.add(new JournalModifications.Changement(ancienne == null
+                ? ModificationsProduits.Modification.AJOUT
+                : ModificationsProduits.Modification.MODIFICATION, id, affiche));
+    }
+
+    private void publier(List<JournalModifications.Changement> changements) {
+        if (changements.isEmpty()) {
+            return;
+        }
+        journalModifications.enregistrer(changements);
+        if (!listePlanifiee) {
+            // Tout de suite après une période calme, sinon à la fin de l'intervalle ; les modifications arrivées
+            // d'ici là sont comprises dans la même reconstruction
+            listePlanifiee = true;
+            long attente = Math.max(0, derniereListe + intervalleListe.toNanos() - System.nanoTime());
+            reconstruction.schedule(this::construireListe, attente, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Liste complète à partir des fiches : concaténation de leur JSON, sans sérialisation
+    private void construireListe() {
+        listePlanifiee = false;
+        long debut = System.nanoTime();
+        derniereListe = debut;
+        try {
+            long sequence = journalModifications.sequence();
+            List<Produit> produits = new ArrayList<>(fiches.size());
+            MessageDigest liste = sha256();
+            // Même octets que la sérialisation de la liste par Jackson : [produit,produit,…]
+            ByteArrayOutputStream corps = new ByteArrayOutputStream();
+            corps.write('[');
+            for (Fiche fiche : fiches.values()) {
+                produits.add(fiche.produit());
+                liste.update(fiche.json());
+                liste.update((byte) '\n');
+                if (corps.size() > 1) {
+                    corps.write(',');
+                }
+                corps.writeBytes(fiche.json());
+            }
+            corps.write(']');
+            byte[] corpsListe = corps.toByteArray();
+            String etag = etag(liste.digest());
+            courant = new Instantane(Collections.unmodifiableList(produits), etag, corpsListe,
+                    gzip ? compresser(corpsListe) : null, etag.substring(0, etag.length() - 1) + "-gzip\"", sequence);
+            listes.increment();
+            logger.debug("Liste du catalogue reconstruite: {} produits en {} ms", produits.size(),
+                    (System.nanoTime() - debut) / 1_000_000);
+        } catch (RuntimeException e) {
+            logger.warn("Reconstruction de la liste du catalogue impossible: {}", e.getMessage());
+        }
+    }
+
+    private void attendre(Future<?> tache) {
+        try {
+            tache.get(attenteMax.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Mise à jour du catalogue impossible: {}", e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            // La modification est validée : elle sera visible une fois la mise à jour terminée
+            logger.warn("Mise à jour du catalogue toujours en cours après {} ms", attenteMax.toMillis());
+        }
+    }
+
+    private byte[] json(Produit produit) {
+        try {
+            return objectMapper.writeValueAsBytes(produit);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Produit " + produit.getId() + " impossible à sérialiser", e);
+        }
+    }
+
+    private static byte[] compresser(byte[] json) {
+        ByteArrayOutputStream compresse = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream flux = new GZIPOutputStream(compresse, 65536)) {
+            flux.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compresse.toByteArray();
+    }
+
+    private static boolean memesChamps(Produit a, Produit b) {
+        return Objects.equals(a.getVersion(), b.getVersion())
+                && Objects.equals(a.getQuantiteStock(), b.getQuantiteStock())
+                && Objects.equals(a.getReference(), b.getReference())
+                && Objects.equals(a.getNom(), b.getNom())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getPrix(), b.getPrix());
+    }
+
+    private static String etag(byte[] empreinte) {
+        return "\"" + HexFormat.of().formatHex(empreinte, 0, 16) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
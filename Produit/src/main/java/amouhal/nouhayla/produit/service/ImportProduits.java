@@ -0,0 +1,273 @@
+package amouhal.nouhayla.produit.service;
+
+import amouhal.nouhayla.produit.dto.ImportProduitsResponse;
+import amouhal.nouhayla.produit.entity.Produit;
+import amouhal.nouhayla.produit.recherche.RechercheProduits;
+import amouhal.nouhayla.produit.repository.ProduitRepository;
+import amouhal.nouhayla.produit.stock.RegistreStock;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+
+// Import en masse du catalogue fournisseur (NDJSON ou CSV) : chaque produit est créé, ou mis à jour s'il existe
+// déjà un produit de même référence.
+// Le flux est lu au fil de l'eau et écrit par lots, un lot par transaction : produits existants du lot chargés
+// en une requête, insertions et mises à jour regroupées par JDBC (hibernate.jdbc.batch_size).
+// Un lot validé le reste même si la suite du fichier échoue. La mémoire utilisée ne dépend que de la taille
+// d'un lot ; le catalogue en mémoire n'est invalidé qu'une fois, à la fin de l'import.
+@Service
+public class ImportProduits {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportProduits.class);
+
+    public enum Format { NDJSON, CSV }
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private RegistreStock registreStock;
+
+    @Autowired
+    private RechercheProduits rechercheProduits;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Produits écrits par transaction
+    @Value("${produit.import.lot-taille:1000}")
+    private int lotTaille;
+
+    // Taille maximale d'une ligne du fichier (caractères)
+    @Value("${produit.import.ligne-max:65536}")
+    private int ligneMax;
+
+    // Lignes rejetées détaillées dans la réponse ; au-delà, seulement comptées
+    @Value("${produit.import.rejets-max:1000}")
+    private int rejetsMax;
+
+    // Imports traités en même temps ; au-delà, la requête est refusée (429)
+    @Value("${produit.import.simultanes-max:1}")
+    private int simultanesMax;
+
+    private Semaphore imports;
+    private Counter inseres;
+    private Counter modifies;
+    private Counter inchanges;
+    private Counter rejetes;
+
+    // Issue de l'écriture d'un lot, et ce qu'il reste à faire une fois la transaction validée
+    private record Bilan(int inseres, int modifies, int inchanges, List<Produit> ecrits, Map<Long, Integer> stocksRegistre) {}
+
+    @PostConstruct
+    public void initialiser() {
+        imports = new Semaphore(simultanesMax);
+        inseres = compteur("insere");
+        modifies = compteur("modifie");
+        inchanges = compteur("inchange");
+        rejetes = compteur("rejete");
+    }
+
+    // null si le nombre maximal d'imports simultanés est atteint
+    public ImportProduitsResponse importer(InputStream flux, Format format) throws IOException {
+        if (!imports.tryAcquire()) {
+            logger.warn("Import de catalogue refusé: {} imports déjà en cours", simultanesMax);
+            return null;
+        }
+        ImportProduitsResponse rapport = new ImportProduitsResponse();
+        long debut = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(flux, StandardCharsets.UTF_8))) {
+            LecteurProduits lecteur = format == Format.CSV
+                    ? LecteurProduits.csv(reader, ligneMax)
+                    : LecteurProduits.ndjson(reader, objectMapper, ligneMax);
+            logger.info("Import {} du catalogue", format);
+
+            List<LecteurProduits.Enregistrement> lot = new ArrayList<>(lotTaille);
+            LecteurProduits.Enregistrement enregistrement;
+            while ((enregistrement = lecteur.suivant()) != null) {
+                lot.add(enregistrement);
+                if (lot.size() == lotTaille) {
+                    traiterLot(lot, rapport);
+                    lot.clear();
+                }
+            }
+            if (!lot.isEmpty()) {
+                traiterLot(lot, rapport);
+            }
+        } finally {
+            imports.release();
+            if (rapport.getInseres() + rapport.getModifies() > 0) {
+                // Une seule invalidation pour tout l'import, lots déjà validés compris en cas d'échec
+                eventPublisher.publishEvent(new CatalogueModifie(null));
+            }
+        }
+        logger.info("Import du catalogue terminé en {} ms: {} insérés, {} modifiés, {} inchangés, {} rejetés",
+                (System.nanoTime() - debut) / 1_000_000, rapport.getInseres(), rapport.getModifies(),
+                rapport.getInchanges(), rapport.getRejetes());
+        return rapport;
+    }
+
+    private void traiterLot(List<LecteurProduits.Enregistrement> lot, ImportProduitsResponse rapport) {
+        List<LecteurProduits.Enregistrement> valides = new ArrayList<>();
+        for (LecteurProduits.Enregistrement enregistrement : lot) {
+            if (enregistrement.erreur() != null) {
+                rejeter(rapport, enregistrement, enregistrement.erreur());
+            } else {
+                valides.add(enregistrement);
+            }
+        }
+        if (valides.isEmpty()) {
+            return;
+        }
+
+        Bilan bilan = essayer(valides);
+        if (bilan == null) {
+            // Référence insérée entre-temps par une autre écriture : le lot est rejoué, elle devient une mise à jour
+            logger.warn("Échec de l'écriture d'un lot de {} produits importés, nouvel essai", valides.size());
+            bilan = essayer(valides);
+        }
+        if (bilan != null) {
+            appliquer(bilan, rapport);
+            return;
+        }
+        // Ligne refusée par la base : chaque produit du lot est écrit seul, seuls les produits en échec sont rejetés
+        logger.warn("Lot de {} produits importés refusé deux fois, écriture produit par produit", valides.size());
+        for (LecteurProduits.Enregistrement enregistrement : valides) {
+            Bilan seul = essayer(List.of(enregistrement));
+            if (seul != null) {
+                appliquer(seul, rapport);
+            } else {
+                rejeter(rapport, enregistrement, "Erreur lors de l'enregistrement du produit");
+            }
+        }
+    }
+
+    // null si l'écriture du lot échoue. Le flush se fait sur l'EntityManager, hors des dépôts : une contrainte
+    // ou une version refusée arrive en PersistenceException, sans traduction en DataIntegrityViolationException
+    private Bilan essayer(List<LecteurProduits.Enregistrement> valides) {
+        try {
+            return ecrire(valides);
+        } catch (RuntimeException e) {
+            logger.debug("Lot de {} produits refusé: {}", valides.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Une fois la transaction du lot validée
+    private void appliquer(Bilan bilan, ImportProduitsResponse rapport) {
+        // Stock tenu en mémoire : ajusté dans le registre une fois les fiches validées, comme pour une modification
+        bilan.stocksRegistre().forEach(registreStock::ajuster);
+        rechercheProduits.indexer(bilan.ecrits());
+        rapport.setInseres(rapport.getInseres() + bilan.inseres());
+        rapport.setModifies(rapport.getModifies() + bilan.modifies());
+        rapport.setInchanges(rapport.getInchanges() + bilan.inchanges());
+        inseres.increment(bilan.inseres());
+        modifies.increment(bilan.modifies());
+        inchanges.increment(bilan.inchanges());
+    }
+
+    // Un lot dans une transaction : une requête pour les produits existants, puis insertions et mises à jour
+    // regroupées au moment du flush. Une même référence répétée dans le lot : la dernière ligne l'emporte.
+    private Bilan ecrire(List<LecteurProduits.Enregistrement> valides) {
+        return transactionTemplate.execute(statut -> {
+            List<String> references = valides.stream().map(e -> e.produit().getReference()).distinct().toList();
+            Map<String, Produit> existants = new HashMap<>();
+            produitRepository.findByReferenceIn(references).forEach(p -> existants.put(p.getReference(), p));
+
+            int nouveaux = 0;
+            int modifies = 0;
+            int inchanges = 0;
+            Map<Long, Produit> ecrits = new LinkedHashMap<>();
+            Map<Long, Integer> stocksRegistre = new HashMap<>();
+            for (LecteurProduits.Enregistrement enregistrement : valides) {
+                Produit lu = enregistrement.produit();
+                Produit produit = existants.get(lu.getReference());
+                if (produit == null) {
+                    // Id éventuellement attribué par une tentative annulée de ce lot
+                    lu.setId(null);
+                    produit = produitRepository.save(lu);
+                    existants.put(produit.getReference(), produit);
+                    nouveaux++;
+                } else if (identique(registreStock.appliquer(produit), lu)) {
+                    inchanges++;
+                    continue;
+                } else {
+                    // Seules les colonnes changées sont écrites (@DynamicUpdate) : le stock d'un produit du registre,
+                    // chargé ici et reporté en base entre-temps, n'est pas réécrit
+                    produit.setNom(lu.getNom());
+                    produit.setDescription(lu.getDescription());
+                    produit.setPrix(lu.getPrix());
+                    if (registreStock.gere(produit.getId())) {
+                        stocksRegistre.put(produit.getId(), lu.getQuantiteStock());
+                    } else {
+                        produit.setQuantiteStock(lu.getQuantiteStock());
+                    }
+                    modifies++;
+                }
+                ecrits.put(produit.getId(), produit);
+            }
+            // Contexte de persistance vidé à chaque lot : il peut être celui de toute la requête HTTP (open-in-view)
+            entityManager.flush();
+            entityManager.clear();
+            return new Bilan(nouveaux, modifies, inchanges, new ArrayList<>(ecrits.values()), stocksRegistre);
+        });
+    }
+
+    private static boolean identique(Produit produit, Produit lu) {
+        return Objects.equals(produit.getNom(), lu.getNom())
+                && Objects.equals(produit.getDescription(), lu.getDescription())
+                && Objects.equals(produit.getPrix(), lu.getPrix())
+                && Objects.equals(produit.getQuantiteStock(), lu.getQuantiteStock());
+    }
+
+    private void rejeter(ImportProduitsResponse rapport, LecteurProduits.Enregistrement enregistrement, String motif) {
+        rapport.setRejetes(rapport.getRejetes() + 1);
+        rejetes.increment();
+        if (rapport.getRejets().size() < rejetsMax) {
+            String reference = enregistrement.produit() == null ? null : enregistrement.produit().getReference();
+            rapport.getRejets().add(new ImportProduitsResponse.Rejet(enregistrement.numero(), reference, motif));
+        }
+    }
+
+    private Counter compteur(String issue) {
+        return Counter.builder("produit.import.produits")
+                .tag("issue", issue)
+                .description("Produits traités par les imports de catalogue")
+                .register(meterRegistry);
+    }
+}
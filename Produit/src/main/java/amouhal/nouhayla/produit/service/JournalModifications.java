@@ -0,0 +1,292 @@
+package amouhal.nouhayla.produit.service;
+
+import amouhal.nouhayla.produit.dto.ModificationsProduits;
+import amouhal.nouhayla.produit.entity.Produit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Journal des modifications du catalogue pour la synchronisation incrémentale des clients
+// (GET /api/produits/changes?since=N et flux SSE) : un client ne télécharge que ce qui a changé.
+// Alimenté par CatalogueProduits avec les seuls produits dont la fiche a changé (JSON différent) : ajouts,
+// modifications (fiche ou stock) et suppressions, qu'elles viennent de ProduitService, d'un import ou d'une écriture
+// hors de ce service (vues au rechargement complet). Chaque produit changé reçoit une séquence croissante.
+// Seules les taille-max dernières modifications sont gardées : un client plus en retard reçoit reprise=true
+// et recharge la liste complète, dont l'en-tête X-Sequence donne la séquence de départ.
+// Séquence initiale tirée de l'heure de démarrage : après un redémarrage, toute séquence connue d'un client
+// est antérieure au journal (reprise).
+// Flux SSE : chaque abonné a sa propre file d'envois, bornée (sse-tampon), vidée par un pool de sse-threads
+// threads. Un client lent n'occupe qu'un thread et ne retarde pas les autres ; quand sa file est pleine, il est
+// déconnecté et reprend avec Last-Event-ID.
+@Component
+public class JournalModifications {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalModifications.class);
+
+    private record Entree(long sequence, String type, Long produitId, Produit produit) {}
+
+    // Modification d'un produit, avant attribution de sa séquence (produit null pour une suppression)
+    record Changement(String type, Long produitId, Produit produit) {}
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Modifications gardées en mémoire
+    @Value("${produit.modifications.taille-max:100000}")
+    private int tailleMax;
+
+    // Modifications par réponse (ou par événement SSE)
+    @Value("${produit.modifications.limite-max:1000}")
+    private int limiteMax;
+
+    // Durée d'un flux SSE ; le client se reconnecte ensuite avec Last-Event-ID
+    @Value("${produit.modifications.sse-duree-max:30m}")
+    private Duration dureeMaxSse;
+
+    // Événements en attente d'envoi par abonné, au-delà desquels il est déconnecté (hors rattrapage initial)
+    @Value("${produit.modifications.sse-tampon:256}")
+    private int tampon;
+
+    @Value("${produit.modifications.sse-threads:4}")
+    private int threads;
+
+    // Journal circulaire : la plus ancienne modification gardée est à l'indice debut, séquences consécutives
+    private Entree[] entrees;
+    private int debut;
+    private int nombre;
+    private long derniere;
+
+    private final List<Abonne> abonnes = new CopyOnWriteArrayList<>();
+    // Envois SSE hors des verrous ; au plus une tâche par abonné, qui vide sa file dans l'ordre
+    private ExecutorService diffusion;
+    private Counter reprises;
+    private Counter retires;
+
+    @PostConstruct
+    public void initialiser() {
+        entrees = new Entree[tailleMax];
+        derniere = System.currentTimeMillis() * 1000;
+        AtomicInteger numero = new AtomicInteger();
+        diffusion = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "modifications-diffusion-" + numero.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("produit.modifications.abonnes", abonnes, List::size)
+                .description("Flux SSE de modifications du catalogue ouverts")
+                .register(meterRegistry);
+        reprises = Counter.builder("produit.modifications.reprises")
+                .description("Clients trop en retard renvoyés vers la liste complète")
+                .register(meterRegistry);
+        retires = Counter.builder("produit.modifications.abonnes.retires")
+                .description("Flux SSE fermés, client trop lent à lire ses modifications")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        abonnes.forEach(abonne -> abonne.emetteur.complete());
+        diffusion.shutdownNow();
+    }
+
+    public synchronized long sequence() {
+        return derniere;
+    }
+
+    // Appelé par CatalogueProduits avec les produits dont la fiche vient de changer, triés par id ;
+    // renvoie la séquence de la dernière modification
+    long enregistrer(List<Changement> changes) {
+        synchronized (this) {
+            List<ModificationsProduits.Modification> diffusees = new ArrayList<>(changes.size());
+            for (Changement change : changes) {
+                Entree entree = new Entree(++derniere, change.type(), change.produitId(), change.produit());
+                entrees[(debut + nombre) % entrees.length] = entree;
+                if (nombre < entrees.length) {
+                    nombre++;
+                } else {
+                    debut = (debut + 1) % entrees.length;
+                }
+                diffusees.add(modification(entree));
+            }
+            if (!abonnes.isEmpty()) {
+                // Une page par limite-max modifications, chacune avec la séquence de sa dernière
+                List<ModificationsProduits> pages = new ArrayList<>();
+                for (int i = 0; i < diffusees.size(); i += limiteMax) {
+                    List<ModificationsProduits.Modification> page = diffusees.subList(i, Math.min(i + limiteMax, diffusees.size()));
+                    pages.add(new ModificationsProduits(page.get(page.size() - 1).getSequence(), false,
+                            i + limiteMax < diffusees.size(), new ArrayList<>(page)));
+                }
+                abonnes.forEach(abonne -> abonne.ajouter(evenements(pages), true));
+            }
+            logger.debug("{} modifications du catalogue journalisées (séquence {})", changes.size(), derniere);
+            return derniere;
+        }
+    }
+
+    // Modifications postérieures à since, au plus limite-max, une par produit (la dernière) ;
+    // reprise si since est antérieure au journal ou inconnue
+    public synchronized ModificationsProduits depuis(long since) {
+        long premiere = derniere - nombre + 1;
+        if (since < premiere - 1 || since > derniere) {
+            reprises.increment();
+            return new ModificationsProduits(derniere, true, false, new ArrayList<>());
+        }
+        int ignorees = (int) (since - (premiere - 1));
+        int disponibles = nombre - ignorees;
+        int lues = Math.min(disponibles, limiteMax);
+        Map<Long, ModificationsProduits.Modification> parProduit = new LinkedHashMap<>();
+        for (int i = 0; i < lues; i++) {
+            Entree entree = entrees[(debut + ignorees + i) % entrees.length];
+            parProduit.remove(entree.produitId());
+            parProduit.put(entree.produitId(), modification(entree));
+        }
+        return new ModificationsProduits(since + lues, false, lues < disponibles, new ArrayList<>(parProduit.values()));
+    }
+
+    // Flux SSE : d'abord les modifications postérieures à since (toutes les pages, ou reprise), ou seulement
+    // la séquence courante sans since ; puis chaque modification enregistrée, événement "modifications"
+    // d'id la séquence à reprendre (Last-Event-ID)
+    public SseEmitter abonner(Long since) {
+        SseEmitter emetteur = new SseEmitter(dureeMaxSse.toMillis());
+        Abonne abonne = new Abonne(emetteur);
+        emetteur.onCompletion(() -> abonnes.remove(abonne));
+        emetteur.onTimeout(() -> abonnes.remove(abonne));
+        emetteur.onError(e -> abonnes.remove(abonne));
+        synchronized (this) {
+            List<ModificationsProduits> pages = new ArrayList<>();
+            if (since == null) {
+                pages.add(new ModificationsProduits(derniere, false, false, new ArrayList<>()));
+            } else {
+                ModificationsProduits page = depuis(since);
+                pages.add(page);
+                while (page.isSuite()) {
+                    page = depuis(page.getSequence());
+                    pages.add(page);
+                }
+            }
+            // Rattrapage placé dans la file de l'abonné avant toute modification enregistrée après l'abonnement
+            abonnes.add(abonne);
+            abonne.ajouter(evenements(pages), false);
+        }
+        return emetteur;
+    }
+
+    // Commentaire SSE périodique : garde les connexions ouvertes à travers les proxys, détecte les clients partis
+    @Scheduled(fixedDelayString = "${produit.modifications.sse-battement-ms:30000}")
+    public void battement() {
+        if (abonnes.isEmpty()) {
+            return;
+        }
+        abonnes.forEach(abonne -> abonne.ajouter(List.of(() -> SseEmitter.event().comment("battement")), true));
+    }
+
+    int nombreAbonnes() {
+        return abonnes.size();
+    }
+
+    // Un événement est construit à l'envoi, pour chaque abonné : un SseEventBuilder ne s'envoie qu'une fois
+    private static List<Supplier<SseEmitter.SseEventBuilder>> evenements(List<ModificationsProduits> pages) {
+        List<Supplier<SseEmitter.SseEventBuilder>> evenements = new ArrayList<>(pages.size());
+        for (ModificationsProduits page : pages) {
+            evenements.add(() -> SseEmitter.event()
+                    .id(Long.toString(page.getSequence()))
+                    .name(page.isReprise() ? "reprise" : "modifications")
+                    .data(page, MediaType.APPLICATION_JSON));
+        }
+        return evenements;
+    }
+
+    private void retirer(Abonne abonne) {
+        if (abonnes.remove(abonne)) {
+            retires.increment();
+            logger.warn("Flux SSE de modifications fermé: plus de {} événements en attente d'envoi", tampon);
+            abonne.emetteur.complete();
+        }
+    }
+
+    // File d'envois d'un flux SSE ; une seule tâche de diffusion la vide à la fois
+    private final class Abonne {
+
+        private final SseEmitter emetteur;
+        private final ArrayDeque<Supplier<SseEmitter.SseEventBuilder>> file = new ArrayDeque<>();
+        private boolean planifie;
+
+        private Abonne(SseEmitter emetteur) {
+            this.emetteur = emetteur;
+        }
+
+        // borne : file limitée à tampon événements, l'abonné est retiré au-delà
+        void ajouter(List<Supplier<SseEmitter.SseEventBuilder>> evenements, boolean borne) {
+            boolean enRetard;
+            synchronized (this) {
+                enRetard = borne && file.size() + evenements.size() > tampon;
+                if (enRetard) {
+                    file.clear();
+                } else {
+                    file.addAll(evenements);
+                    if (planifie) {
+                        return;
+                    }
+                    planifie = true;
+                }
+            }
+            if (enRetard) {
+                retirer(this);
+            } else {
+                diffusion.execute(this::vider);
+            }
+        }
+
+        private void vider() {
+            while (true) {
+                Supplier<SseEmitter.SseEventBuilder> evenement;
+                synchronized (this) {
+                    evenement = file.poll();
+                    if (evenement == null) {
+                        planifie = false;
+                        return;
+                    }
+                }
+                try {
+                    emetteur.send(evenement.get());
+                } catch (IOException | IllegalStateException e) {
+                    // Client déconnecté ou flux terminé
+                    synchronized (this) {
+                        file.clear();
+                        planifie = false;
+                    }
+                    abonnes.remove(this);
+                    emetteur.completeWithError(e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static ModificationsProduits.Modification modification(Entree entree) {
+        return new ModificationsProduits.Modification(entree.sequence(), entree.type(), entree.produitId(), entree.produit());
+    }
+}
@@ -0,0 +1,219 @@
+package amouhal.nouhayla.produit.service;
+
+import amouhal.nouhayla.produit.entity.Produit;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lecture incrémentale d'un fichier de catalogue, un produit à la fois : seul le produit en cours est en mémoire.
+// - NDJSON : un produit par ligne, {"reference": "...", "nom": "...", "description": "...", "prix": 9.9, "quantiteStock": 3}
+// - CSV : en-tête reference,nom,description,prix,quantiteStock puis un produit par ligne ;
+//   un champ peut être entre guillemets (virgules, guillemets doublés), sur une seule ligne.
+abstract class LecteurProduits {
+
+    // Un produit lu ; erreur renseignée s'il est mal formé (il sera rejeté sans être écrit)
+    record Enregistrement(int numero, Produit produit, String erreur) {}
+
+    static final int REFERENCE_MAX = 64;
+    // Colonnes nom et description (VARCHAR(255))
+    static final int TEXTE_MAX = 255;
+
+    private final Reader reader;
+    private final int ligneMax;
+    private int numero;
+    private boolean ligneTropLongue;
+
+    protected LecteurProduits(Reader reader, int ligneMax) {
+        this.reader = reader;
+        this.ligneMax = ligneMax;
+    }
+
+    static LecteurProduits ndjson(Reader reader, ObjectMapper objectMapper, int ligneMax) {
+        return new Ndjson(reader, objectMapper, ligneMax);
+    }
+
+    static LecteurProduits csv(Reader reader, int ligneMax) {
+        return new Csv(reader, ligneMax);
+    }
+
+    // Produit suivant, null en fin de flux
+    abstract Enregistrement suivant() throws IOException;
+
+    protected Enregistrement enregistrement(Produit produit, String erreur) {
+        return new Enregistrement(++numero, produit, erreur);
+    }
+
+    // Ligne suivante non vide sans fin de ligne, null en fin de flux. Au-delà de ligneMax caractères
+    // le reste est lu sans être conservé et ligneTropLongue() renvoie true.
+    protected String lireLigne() throws IOException {
+        StringBuilder ligne = new StringBuilder();
+        int c;
+        do {
+            ligne.setLength(0);
+            ligneTropLongue = false;
+            c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            while (c != -1 && c != '\n') {
+                if (ligne.length() < ligneMax) {
+                    ligne.append((char) c);
+                } else {
+                    ligneTropLongue = true;
+                }
+                c = reader.read();
+            }
+        } while (ligne.toString().isBlank() && !ligneTropLongue);
+        int fin = ligne.length();
+        if (fin > 0 && ligne.charAt(fin - 1) == '\r') {
+            ligne.setLength(fin - 1);
+        }
+        return ligne.toString();
+    }
+
+    protected boolean ligneTropLongue() {
+        return ligneTropLongue;
+    }
+
+    protected static String controler(Produit produit) {
+        if (produit.getReference() == null || produit.getReference().isBlank()) {
+            return "Produit sans référence";
+        }
+        if (produit.getReference().length() > REFERENCE_MAX) {
+            return "Référence trop longue";
+        }
+        if (produit.getNom() == null || produit.getNom().isBlank()) {
+            return "Produit sans nom";
+        }
+        if (produit.getNom().length() > TEXTE_MAX) {
+            return "Nom trop long";
+        }
+        if (produit.getDescription() != null && produit.getDescription().length() > TEXTE_MAX) {
+            return "Description trop longue";
+        }
+        if (produit.getPrix() == null || produit.getPrix() < 0 || produit.getPrix().isNaN() || produit.getPrix().isInfinite()) {
+            return "Prix invalide";
+        }
+        if (produit.getQuantiteStock() == null || produit.getQuantiteStock() < 0) {
+            return "Quantité en stock invalide";
+        }
+        return null;
+    }
+
+    private static class Ndjson extends LecteurProduits {
+        private final ObjectMapper objectMapper;
+
+        Ndjson(Reader reader, ObjectMapper objectMapper, int ligneMax) {
+            super(reader, ligneMax);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Enregistrement suivant() throws IOException {
+            String texte = lireLigne();
+            if (texte == null) {
+                return null;
+            }
+            if (ligneTropLongue()) {
+                return enregistrement(null, "Ligne trop longue");
+            }
+            Produit produit;
+            try {
+                JsonNode noeud = objectMapper.readTree(texte);
+                produit = objectMapper.treeToValue(noeud, Produit.class);
+            } catch (IOException e) {
+                return enregistrement(null, "JSON invalide");
+            }
+            // L'id et la version sont attribués par le service, jamais repris du fichier
+            produit.setId(null);
+            produit.setVersion(null);
+            return enregistrement(produit, controler(produit));
+        }
+    }
+
+    private static class Csv extends LecteurProduits {
+        private static final String EN_TETE = "reference,nom,description,prix,quantitestock";
+
+        private boolean enTeteLu;
+
+        Csv(Reader reader, int ligneMax) {
+            super(reader, ligneMax);
+        }
+
+        @Override
+        Enregistrement suivant() throws IOException {
+            if (!enTeteLu) {
+                enTeteLu = true;
+                String enTete = lireLigne();
+                if (enTete == null) {
+                    return null;
+                }
+                if (!EN_TETE.equalsIgnoreCase(enTete.replace(" ", ""))) {
+                    throw new IllegalArgumentException("En-tête CSV attendu: reference,nom,description,prix,quantiteStock");
+                }
+            }
+            String texte = lireLigne();
+            if (texte == null) {
+                return null;
+            }
+            if (ligneTropLongue()) {
+                return enregistrement(null, "Ligne trop longue");
+            }
+            List<String> colonnes = colonnes(texte);
+            if (colonnes == null || colonnes.size() != 5) {
+                return enregistrement(null, "Ligne CSV invalide");
+            }
+            Produit produit = new Produit();
+            produit.setReference(colonnes.get(0));
+            produit.setNom(colonnes.get(1));
+            produit.setDescription(colonnes.get(2).isEmpty() ? null : colonnes.get(2));
+            try {
+                produit.setPrix(Double.parseDouble(colonnes.get(3)));
+                produit.setQuantiteStock(Integer.parseInt(colonnes.get(4)));
+            } catch (NumberFormatException e) {
+                return enregistrement(produit, "Ligne CSV invalide");
+            }
+            return enregistrement(produit, controler(produit));
+        }
+
+        // Champs de la ligne, sans les guillemets qui les entourent ; null si un guillemet n'est pas fermé
+        private static List<String> colonnes(String texte) {
+            List<String> colonnes = new ArrayList<>();
+            StringBuilder champ = new StringBuilder();
+            boolean entreGuillemets = false;
+            boolean cite = false;
+            for (int i = 0; i < texte.length(); i++) {
+                char c = texte.charAt(i);
+                if (entreGuillemets) {
+                    if (c != '"') {
+                        champ.append(c);
+                    } else if (i + 1 < texte.length() && texte.charAt(i + 1) == '"') {
+                        champ.append('"');
+                        i++;
+                    } else {
+                        entreGuillemets = false;
+                    }
+                } else if (c == '"' && champ.toString().isBlank()) {
+                    champ.setLength(0);
+                    entreGuillemets = true;
+                    cite = true;
+                } else if (c == ',') {
+                    colonnes.add(cite ? champ.toString() : champ.toString().trim());
+                    champ.setLength(0);
+                    cite = false;
+                } else {
+                    champ.append(c);
+                }
+            }
+            if (entreGuillemets) {
+                return null;
+            }
+            colonnes.add(cite ? champ.toString() : champ.toString().trim());
+            return colonnes;
+        }
+    }
+}
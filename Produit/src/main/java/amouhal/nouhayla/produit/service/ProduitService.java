@@ -1,13 +1,46 @@
 package amouhal.nouhayla.produit.service;
+import amouhal.nouhayla.produit.dto.CurseurProduit;
+import amouhal.nouhayla.produit.dto.FiltreProduits;
+import amouhal.nouhayla.produit.dto.ModificationProduit;
+import amouhal.nouhayla.produit.dto.PageProduits;
+import amouhal.nouhayla.produit.dto.ProduitsBatchResponse;
+import amouhal.nouhayla.produit.dto.ReservationRequest;
+import amouhal.nouhayla.produit.dto.ReservationResponse;
+import amouhal.nouhayla.produit.dto.TriProduits;
 import amouhal.nouhayla.produit.entity.Produit;
+import amouhal.nouhayla.produit.entity.ReservationStock;
+import amouhal.nouhayla.produit.recherche.RechercheProduits;
 import amouhal.nouhayla.produit.repository.ProduitRepository;
+import amouhal.nouhayla.produit.repository.ProduitSpecifications;
+import amouhal.nouhayla.produit.repository.ReservationStockRepository;
+import amouhal.nouhayla.produit.stock.RegistreStock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class ProduitService {
@@ -17,43 +50,427 @@ public class ProduitService {
     @Autowired
     private ProduitRepository produitRepository;
 
+    @Autowired
+    private ReservationStockRepository reservationStockRepository;
+
+    @Autowired
+    private RegistreStock registreStock;
+
+    @Autowired
+    private CatalogueProduits catalogueProduits;
+
+    @Autowired
+    private RechercheProduits rechercheProduits;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Taille des pages de produits quand le client n'en demande pas, et plafond de ce qu'il peut demander
+    @Value("${produit.pagination.taille-defaut:50}")
+    private int tailleParDefaut;
+
+    @Value("${produit.pagination.taille-max:200}")
+    private int tailleMax;
+
+    // Nombre de résultats d'une recherche quand le client n'en demande pas, et plafond
+    @Value("${produit.recherche.limite-defaut:20}")
+    private int limiteRechercheParDefaut;
+
+    @Value("${produit.recherche.limite-max:100}")
+    private int limiteRechercheMax;
+
+    // Durée pendant laquelle une réservation peut être rejouée ou libérée
+    @Value("${produit.reservations.conservation:7d}")
+    private Duration conservationReservations;
+
     public Produit ajouterProduit(Produit produit) {
         logger.info("Ajout d'un nouveau produit: {}", produit.getNom());
+        produit.setVersion(null);
         Produit saved = produitRepository.save(produit);
+        eventPublisher.publishEvent(new CatalogueModifie(saved.getId()));
         logger.info("Produit ajouté avec ID: {}", saved.getId());
         return saved;
     }
 
     public Produit modifierProduit(Long id, Produit produit) {
+        return modifierProduit(id, produit, null);
+    }
+
+    // Remplacement de la fiche ; avec version attendue (If-Match), OptimisticLockingFailureException si le
+    // produit a changé depuis cette version. Sans, la dernière écriture l'emporte.
+    public Produit modifierProduit(Long id, Produit produit, Long versionAttendue) {
         logger.info("Modification du produit ID: {}", id);
         Optional<Produit> existing = produitRepository.findById(id);
         if (existing.isPresent()) {
             Produit p = existing.get();
+            if (versionAttendue != null && !versionAttendue.equals(p.getVersion())) {
+                throw new OptimisticLockingFailureException("Produit " + id + " modifié depuis la version " + versionAttendue);
+            }
+            if (produit.getReference() != null) {
+                p.setReference(produit.getReference());
+            }
             p.setNom(produit.getNom());
             p.setDescription(produit.getDescription());
             p.setPrix(produit.getPrix());
-            p.setQuantiteStock(produit.getQuantiteStock());
+            // Stock tenu en mémoire : la colonne n'est mise à jour que par les reports du registre,
+            // le registre n'est ajusté qu'une fois la fiche enregistrée. Sans quantité, le stock est conservé.
+            Integer stockRegistre = produit.getQuantiteStock() != null && registreStock.gere(id)
+                    ? produit.getQuantiteStock() : null;
+            if (produit.getQuantiteStock() != null && stockRegistre == null) {
+                p.setQuantiteStock(produit.getQuantiteStock());
+            }
             Produit updated = produitRepository.save(p);
+            if (stockRegistre != null) {
+                ajusterStock(id, stockRegistre);
+            }
+            eventPublisher.publishEvent(new CatalogueModifie(id));
             logger.info("Produit {} modifié avec succès", id);
-            return updated;
+            return registreStock.appliquer(updated);
         }
         logger.warn("Produit {} non trouvé pour modification", id);
         return null;
     }
 
+    // Modification partielle d'un produit à la version attendue, en une instruction UPDATE conditionnelle.
+    // Nouvelle version renvoyée (version + 1) ; null si le produit n'existe pas ; OptimisticLockingFailureException
+    // s'il a été modifié depuis cette version.
+    public Long modifierProduit(Long id, long version, ModificationProduit modification) {
+        controler(modification);
+        // Stock tenu en mémoire : ajusté dans le registre une fois la fiche modifiée, comme pour PUT
+        Integer stockRegistre = modification.getQuantiteStock() != null && registreStock.gere(id)
+                ? modification.getQuantiteStock() : null;
+        int modifies = produitRepository.modifierSiVersion(id, version, modification.getReference(),
+                modification.getNom(), modification.getDescription(), modification.getPrix(),
+                stockRegistre == null ? modification.getQuantiteStock() : null);
+        if (modifies == 0) {
+            if (!produitRepository.existsById(id)) {
+                logger.warn("Produit {} non trouvé pour modification", id);
+                return null;
+            }
+            throw new OptimisticLockingFailureException("Produit " + id + " modifié depuis la version " + version);
+        }
+        if (stockRegistre != null) {
+            ajusterStock(id, stockRegistre);
+        }
+        eventPublisher.publishEvent(new CatalogueModifie(id));
+        logger.debug("Produit {} modifié (version {})", id, version + 1);
+        return version + 1;
+    }
+
+    // Ajustement du registre une fois la modification validée : immédiat hors transaction (l'enregistrement est déjà
+    // validé), après validation si l'appelant a ouvert une transaction (rien à défaire si elle est annulée)
+    private void ajusterStock(Long id, int quantite) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registreStock.ajuster(id, quantite);
+                }
+            });
+        } else {
+            registreStock.ajuster(id, quantite);
+        }
+    }
+
+    private static void controler(ModificationProduit modification) {
+        if (modification.estVide()) {
+            throw new IllegalArgumentException("Aucun champ à modifier");
+        }
+        if (modification.getReference() != null && (modification.getReference().isBlank() || modification.getReference().length() > 64)) {
+            throw new IllegalArgumentException("Référence invalide");
+        }
+        if (modification.getNom() != null && modification.getNom().isBlank()) {
+            throw new IllegalArgumentException("Nom invalide");
+        }
+        Double prix = modification.getPrix();
+        if (prix != null && (prix < 0 || prix.isNaN() || prix.isInfinite())) {
+            throw new IllegalArgumentException("Prix invalide");
+        }
+        if (modification.getQuantiteStock() != null && modification.getQuantiteStock() < 0) {
+            throw new IllegalArgumentException("Quantité en stock invalide");
+        }
+    }
+
     public void supprimerProduit(Long id) {
         logger.info("Suppression du produit ID: {}", id);
         produitRepository.deleteById(id);
+        registreStock.retirer(id);
+        eventPublisher.publishEvent(new CatalogueModifie(id));
         logger.info("Produit {} supprimé", id);
     }
 
+    // Lectures servies par le catalogue en mémoire (avec ses ETag)
+    public CatalogueProduits.Instantane catalogue() {
+        return catalogueProduits.lire();
+    }
+
+    public CatalogueProduits.Fiche ficheCatalogue(Long id) {
+        return catalogueProduits.fiche(id);
+    }
+
     public List<Produit> listerProduits() {
         logger.info("Récupération de la liste des produits");
-        return produitRepository.findAll();
+        return catalogueProduits.lire().produits();
+    }
+
+    // Page de produits filtrée et triée, calculée par la base : limite + 1 lignes lues pour savoir s'il y a une suite
+    public PageProduits listerProduits(FiltreProduits filtre, String apres, Integer taille) {
+        int limite = taille == null || taille <= 0 ? tailleParDefaut : Math.min(taille, tailleMax);
+        CurseurProduit curseur = apres == null || apres.isBlank() ? null : CurseurProduit.decoder(apres);
+        logger.info("Récupération d'une page de {} produits triés par {}", limite, filtre.getTri());
+        Sort.Direction direction = filtre.isDecroissant() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort tri = filtre.getTri() == TriProduits.ID
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, filtre.getTri().getAttribut(), "id");
+        List<Produit> produits = produitRepository.findBy(ProduitSpecifications.page(filtre, curseur),
+                requete -> requete.sortBy(tri).limit(limite + 1).all());
+        String curseurSuivant = null;
+        if (produits.size() > limite) {
+            produits = produits.subList(0, limite);
+            curseurSuivant = CurseurProduit.apres(produits.get(limite - 1), filtre.getTri()).encoder();
+        }
+        return new PageProduits(produits.stream().map(registreStock::appliquer).collect(Collectors.toList()), curseurSuivant);
     }
 
+    // Recherche plein texte : ids classés par l'index, fiches lues dans le catalogue (stock à jour)
+    public List<Produit> rechercherProduits(String requete, Integer limite) {
+        int n = limite == null || limite <= 0 ? limiteRechercheParDefaut : Math.min(limite, limiteRechercheMax);
+        logger.info("Recherche de produits: {}", requete);
+        List<Long> ids = rechercheProduits.rechercher(requete, n);
+        List<Long> absents = ids.stream().filter(id -> catalogueProduits.fiche(id) == null).collect(Collectors.toList());
+        Map<Long, Produit> complements = absents.isEmpty() ? Map.of() : produitRepository.findAllById(absents).stream()
+                .map(registreStock::appliquer)
+                .collect(Collectors.toMap(Produit::getId, produit -> produit));
+        List<Produit> produits = new ArrayList<>();
+        for (Long id : ids) {
+            CatalogueProduits.Fiche fiche = catalogueProduits.fiche(id);
+            Produit produit = fiche != null ? fiche.produit() : complements.get(id);
+            if (produit != null) {
+                produits.add(produit);
+            }
+        }
+        return produits;
+    }
+
+    // Produit absent du catalogue : créé depuis son chargement par une autre instance, ou inexistant
     public Optional<Produit> consulterProduit(Long id) {
         logger.info("Consultation du produit ID: {}", id);
-        return produitRepository.findById(id);
+        CatalogueProduits.Fiche fiche = catalogueProduits.fiche(id);
+        if (fiche != null) {
+            return Optional.of(fiche.produit());
+        }
+        return produitRepository.findById(id).map(registreStock::appliquer);
+    }
+
+    // Lecture groupée depuis le catalogue ; les ids qu'il ne connaît pas sont cherchés en une requête findAllById
+    public ProduitsBatchResponse consulterProduits(Collection<Long> ids) {
+        Set<Long> demandes = new LinkedHashSet<>(ids);
+        logger.info("Consultation groupée de {} produits", demandes.size());
+        List<Produit> produits = new ArrayList<>();
+        List<Long> absents = new ArrayList<>();
+        for (Long id : demandes) {
+            CatalogueProduits.Fiche fiche = catalogueProduits.fiche(id);
+            if (fiche != null) {
+                produits.add(fiche.produit());
+            } else {
+                absents.add(id);
+            }
+        }
+        if (!absents.isEmpty()) {
+            produitRepository.findAllById(absents).stream()
+                    .map(registreStock::appliquer)
+                    .forEach(produits::add);
+        }
+        Set<Long> trouves = produits.stream().map(Produit::getId).collect(Collectors.toSet());
+        List<Long> introuvables = new ArrayList<>();
+        for (Long id : demandes) {
+            if (!trouves.contains(id)) {
+                introuvables.add(id);
+            }
+        }
+        if (!introuvables.isEmpty()) {
+            logger.warn("Produits non trouvés: {}", introuvables);
+        }
+        return new ProduitsBatchResponse(produits, introuvables);
+    }
+
+    // Réserve le stock de toutes les lignes dans une même transaction (tout ou rien).
+    // Chaque ligne est un UPDATE conditionnel : pas de lecture préalable ni de verrou pessimiste.
+    // Une réservation réussie est enregistrée sous son id : rejouée, elle renvoie le même résultat sans rien décrémenter.
+    @Transactional
+    public ReservationResponse reserverStock(ReservationRequest request) {
+        String reservationId = identifiant(request, true);
+        List<ReservationRequest.LigneReservation> lignes = lignesTriees(request);
+        Optional<ReservationStock> existante = reservationStockRepository.findById(reservationId);
+        if (existante.isPresent()) {
+            return dejaTraitee(existante.get(), lignes);
+        }
+        logger.info("Réservation de stock {} pour {} lignes", reservationId, lignes.size());
+
+        ReservationResponse response = new ReservationResponse();
+        response.setReservationId(reservationId);
+        List<ReservationRequest.LigneReservation> reserveesEnMemoire = new ArrayList<>();
+        boolean reussie = true;
+        for (ReservationRequest.LigneReservation ligne : lignes) {
+            String statut;
+            if (ligne.getProduitId() == null || ligne.getQuantite() == null || ligne.getQuantite() <= 0) {
+                statut = ReservationResponse.QUANTITE_INVALIDE;
+            } else if (registreStock.gere(ligne.getProduitId())) {
+                if (registreStock.reserver(ligne.getProduitId(), ligne.getQuantite())) {
+                    reserveesEnMemoire.add(ligne);
+                    statut = ReservationResponse.RESERVEE;
+                } else {
+                    statut = ReservationResponse.STOCK_INSUFFISANT;
+                }
+            } else if (produitRepository.decrementerStock(ligne.getProduitId(), ligne.getQuantite()) == 1) {
+                statut = ReservationResponse.RESERVEE;
+            } else if (produitRepository.existsById(ligne.getProduitId())) {
+                statut = ReservationResponse.STOCK_INSUFFISANT;
+            } else {
+                statut = ReservationResponse.INTROUVABLE;
+            }
+            if (!ReservationResponse.RESERVEE.equals(statut)) {
+                logger.warn("Réservation refusée pour le produit {} (quantité {}): {}",
+                        ligne.getProduitId(), ligne.getQuantite(), statut);
+                reussie = false;
+            }
+            response.getLignes().add(new ReservationResponse.ResultatLigne(ligne.getProduitId(), ligne.getQuantite(), statut));
+        }
+
+        if (!reserveesEnMemoire.isEmpty()) {
+            // Les réservations du registre ne sont pas transactionnelles : les rendre si la transaction échoue
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        reserveesEnMemoire.forEach(l -> registreStock.liberer(l.getProduitId(), l.getQuantite()));
+                    }
+                }
+            });
+        }
+        if (!reussie) {
+            // Annuler les décréments déjà appliqués : la réservation est atomique
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        } else {
+            // Même id réservé en même temps par un autre appel : échec à l'insertion, tout est annulé
+            reservationStockRepository.saveAndFlush(new ReservationStock(reservationId, ReservationStock.RESERVEE,
+                    lignes.stream().map(l -> new ReservationStock.Ligne(l.getProduitId(), l.getQuantite())).collect(Collectors.toList())));
+            // Stock affiché modifié : fiches des produits réservés à relire une fois la transaction validée
+            eventPublisher.publishEvent(CatalogueModifie.mouvementStock(
+                    lignes.stream().map(ReservationRequest.LigneReservation::getProduitId).collect(Collectors.toSet())));
+        }
+        response.setReussie(reussie);
+        logger.info("Réservation de stock {} {}", reservationId, reussie ? "effectuée" : "refusée");
+        return response;
+    }
+
+    // Compensation d'une réservation (commande non enregistrée ou annulée) : rend les quantités enregistrées
+    // à la réservation, une seule fois. Une libération répétée ne rend rien ; une libération arrivée avant
+    // sa réservation l'annule d'avance (la réservation sera refusée).
+    @Transactional
+    public ReservationResponse libererStock(ReservationRequest request) {
+        String reservationId = identifiant(request, false);
+        ReservationResponse response = new ReservationResponse();
+        response.setReservationId(reservationId);
+        if (reservationStockRepository.liberer(reservationId) == 0) {
+            if (reservationStockRepository.existsById(reservationId)) {
+                logger.info("Réservation {} déjà libérée", reservationId);
+            } else {
+                logger.warn("Réservation {} inconnue, annulée d'avance", reservationId);
+                reservationStockRepository.saveAndFlush(new ReservationStock(reservationId, ReservationStock.ANNULEE, new ArrayList<>()));
+            }
+            response.setReussie(true);
+            return response;
+        }
+        List<ReservationStock.Ligne> lignes = new ArrayList<>(reservationStockRepository.findById(reservationId)
+                .map(ReservationStock::getLignes).orElse(List.of()));
+        lignes.sort(Comparator.comparing(ReservationStock.Ligne::getProduitId));
+        logger.info("Libération de la réservation {} ({} lignes)", reservationId, lignes.size());
+
+        boolean reussie = true;
+        Set<Long> liberes = new LinkedHashSet<>();
+        for (ReservationStock.Ligne ligne : lignes) {
+            String statut;
+            if (registreStock.gere(ligne.getProduitId())) {
+                registreStock.liberer(ligne.getProduitId(), ligne.getQuantite());
+                statut = ReservationResponse.LIBEREE;
+            } else if (produitRepository.incrementerStock(ligne.getProduitId(), ligne.getQuantite()) == 1) {
+                statut = ReservationResponse.LIBEREE;
+            } else {
+                // Produit supprimé depuis la réservation : rien à rendre
+                statut = ReservationResponse.INTROUVABLE;
+            }
+            if (ReservationResponse.LIBEREE.equals(statut)) {
+                liberes.add(ligne.getProduitId());
+            } else {
+                logger.warn("Libération impossible pour le produit {}: {}", ligne.getProduitId(), statut);
+                reussie = false;
+            }
+            response.getLignes().add(new ReservationResponse.ResultatLigne(ligne.getProduitId(), ligne.getQuantite(), statut));
+        }
+        if (!liberes.isEmpty()) {
+            eventPublisher.publishEvent(CatalogueModifie.mouvementStock(liberes));
+        }
+        response.setReussie(reussie);
+        return response;
+    }
+
+    // Réservations anciennes : plus aucune compensation ne peut les viser
+    @Scheduled(fixedDelayString = "${produit.reservations.purge-ms:3600000}")
+    public void purgerReservations() {
+        LocalDateTime limite = LocalDateTime.now().minus(conservationReservations);
+        int supprimees = 0;
+        List<ReservationStock> anciennes;
+        do {
+            anciennes = reservationStockRepository.findByCreeeLeBefore(limite, PageRequest.of(0, 1000));
+            reservationStockRepository.deleteAll(anciennes);
+            supprimees += anciennes.size();
+        } while (anciennes.size() == 1000);
+        if (supprimees > 0) {
+            logger.info("{} réservations de stock purgées", supprimees);
+        }
+    }
+
+    // Id fourni par l'appelant, ou attribué ici pour une réservation ; obligatoire pour une libération
+    private static String identifiant(ReservationRequest request, boolean attribuer) {
+        String id = request == null ? null : request.getReservationId();
+        if (id == null || id.isBlank()) {
+            if (!attribuer) {
+                throw new IllegalArgumentException("Identifiant de réservation manquant");
+            }
+            return UUID.randomUUID().toString();
+        }
+        if (id.length() > 64) {
+            throw new IllegalArgumentException("Identifiant de réservation trop long");
+        }
+        return id;
+    }
+
+    // Réservation rejouée : même résultat si elle est toujours active, refus si elle a été libérée ou annulée
+    private ReservationResponse dejaTraitee(ReservationStock reservation, List<ReservationRequest.LigneReservation> lignes) {
+        ReservationResponse response = new ReservationResponse();
+        response.setReservationId(reservation.getId());
+        boolean active = ReservationStock.RESERVEE.equals(reservation.getStatut());
+        if (active) {
+            reservation.getLignes().forEach(ligne -> response.getLignes().add(new ReservationResponse.ResultatLigne(
+                    ligne.getProduitId(), ligne.getQuantite(), ReservationResponse.RESERVEE)));
+        } else {
+            lignes.forEach(ligne -> response.getLignes().add(new ReservationResponse.ResultatLigne(
+                    ligne.getProduitId(), ligne.getQuantite(), ReservationResponse.ANNULEE)));
+        }
+        response.setReussie(active);
+        logger.info("Réservation {} déjà traitée ({})", reservation.getId(), reservation.getStatut());
+        return response;
+    }
+
+    // Ordre fixe par id produit : deux réservations concurrentes verrouillent les lignes dans le même ordre
+    private List<ReservationRequest.LigneReservation> lignesTriees(ReservationRequest request) {
+        List<ReservationRequest.LigneReservation> lignes = new ArrayList<>();
+        if (request != null && request.getLignes() != null) {
+            lignes.addAll(request.getLignes());
+        }
+        lignes.sort(Comparator.comparing(ReservationRequest.LigneReservation::getProduitId,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return lignes;
     }
 }
\ No newline at end of file
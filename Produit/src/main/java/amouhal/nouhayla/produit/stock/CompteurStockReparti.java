@@ -0,0 +1,95 @@
+package amouhal.nouhayla.produit.stock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Quantité disponible d'un produit répartie sur plusieurs parts indépendantes.
+// Chaque thread commence par « sa » part : les réservations concurrentes touchent des cases
+// mémoire différentes au lieu de se battre pour un seul compteur (ou une seule ligne en base).
+// Une réservation ne rend jamais une part négative : le stock ne peut pas être survendu.
+class CompteurStockReparti {
+
+    // Une part tous les 8 longs (64 octets) pour éviter le faux partage de ligne de cache
+    private static final int PAS = 8;
+
+    private final AtomicLongArray parts;
+    private final int nbParts;
+    private final LongAdder echecsCas;
+
+    CompteurStockReparti(long initial, int nbParts, LongAdder echecsCas) {
+        this.nbParts = nbParts;
+        this.parts = new AtomicLongArray(nbParts * PAS);
+        this.echecsCas = echecsCas;
+        long base = initial / nbParts;
+        long reste = initial % nbParts;
+        for (int i = 0; i < nbParts; i++) {
+            parts.set(i * PAS, base + (i < reste ? 1 : 0));
+        }
+    }
+
+    boolean reserver(long quantite) {
+        int depart = partCourante();
+
+        // 1. Une seule part suffit (cas nominal)
+        for (int i = 0; i < nbParts; i++) {
+            int k = ((depart + i) % nbParts) * PAS;
+            while (true) {
+                long valeur = parts.get(k);
+                if (valeur < quantite) {
+                    break;
+                }
+                if (parts.compareAndSet(k, valeur, valeur - quantite)) {
+                    return true;
+                }
+                echecsCas.increment();
+            }
+        }
+
+        // 2. Stock fragmenté : prélever sur plusieurs parts, tout rendre si le total ne suffit pas
+        long restant = quantite;
+        long[] preleve = new long[nbParts];
+        for (int i = 0; i < nbParts && restant > 0; i++) {
+            int p = (depart + i) % nbParts;
+            int k = p * PAS;
+            while (restant > 0) {
+                long valeur = parts.get(k);
+                if (valeur <= 0) {
+                    break;
+                }
+                long pris = Math.min(valeur, restant);
+                if (parts.compareAndSet(k, valeur, valeur - pris)) {
+                    preleve[p] += pris;
+                    restant -= pris;
+                } else {
+                    echecsCas.increment();
+                }
+            }
+        }
+        if (restant == 0) {
+            return true;
+        }
+        for (int p = 0; p < nbParts; p++) {
+            if (preleve[p] > 0) {
+                parts.addAndGet(p * PAS, preleve[p]);
+            }
+        }
+        return false;
+    }
+
+    // Libération ou ajustement administratif (delta éventuellement négatif)
+    void ajouter(long delta) {
+        parts.addAndGet(partCourante() * PAS, delta);
+    }
+
+    long disponible() {
+        long total = 0;
+        for (int i = 0; i < nbParts; i++) {
+            total += parts.get(i * PAS);
+        }
+        return total;
+    }
+
+    private int partCourante() {
+        return (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 33) % nbParts;
+    }
+}
@@ -0,0 +1,205 @@
+package amouhal.nouhayla.produit.stock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Journal d'écriture anticipée des mouvements de stock du registre.
+// Chaque mouvement (produitId, delta) est écrit avant d'être acquitté ; les segments
+// sont relus depuis le dernier point de contrôle au redémarrage.
+// Écriture groupée : les mouvements sont ajoutés à un tampon en mémoire, et le premier appelant qui trouve le canal
+// libre écrit (et force si demandé) tout le tampon en une fois pendant que les suivants remplissent l'autre tampon ;
+// chacun attend que son propre enregistrement soit écrit. Un échec d'écriture rend le journal inutilisable.
+class JournalStock implements AutoCloseable {
+
+    static final int TAILLE_ENREGISTREMENT = 16;
+
+    private final Path repertoire;
+    private final boolean forcer;
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final Condition ecrit = verrou.newCondition();
+
+    // Tampon en cours de remplissage et tampon libre (l'autre est en cours d'écriture)
+    private ByteBuffer enAttente = ByteBuffer.allocate(TAILLE_ENREGISTREMENT * 4096);
+    private ByteBuffer libre = ByteBuffer.allocate(TAILLE_ENREGISTREMENT * 4096);
+    private boolean ecritureEnCours;
+    // Octets ajoutés et octets écrits depuis l'ouverture, tous segments confondus
+    private long ajoutes;
+    private long ecrits;
+    private IOException echec;
+
+    private long segment;
+    private FileChannel canal;
+    private volatile long position;
+
+    JournalStock(Path repertoire, long segment, boolean forcer) throws IOException {
+        this.repertoire = repertoire;
+        this.forcer = forcer;
+        Files.createDirectories(repertoire);
+        ouvrir(segment);
+    }
+
+    void ajouter(long produitId, long delta) throws IOException {
+        verrou.lock();
+        try {
+            verifier();
+            if (enAttente.remaining() < TAILLE_ENREGISTREMENT) {
+                ByteBuffer agrandi = ByteBuffer.allocate(enAttente.capacity() * 2);
+                enAttente.flip();
+                agrandi.put(enAttente);
+                enAttente = agrandi;
+            }
+            enAttente.putLong(produitId).putLong(delta);
+            ajoutes += TAILLE_ENREGISTREMENT;
+            long fin = ajoutes;
+            while (ecrits < fin) {
+                if (ecritureEnCours) {
+                    ecrit.awaitUninterruptibly();
+                    verifier();
+                } else {
+                    ecrireTampon();
+                }
+            }
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    // Appelé sous verrou : écrit tout le tampon en attente, verrou relâché pendant l'écriture
+    private void ecrireTampon() throws IOException {
+        ecritureEnCours = true;
+        ByteBuffer lot = enAttente;
+        enAttente = libre;
+        long finLot = ajoutes;
+        verrou.unlock();
+        IOException erreur = null;
+        try {
+            lot.flip();
+            while (lot.hasRemaining()) {
+                canal.write(lot);
+            }
+            if (forcer) {
+                canal.force(false);
+            }
+        } catch (IOException e) {
+            erreur = e;
+        } finally {
+            verrou.lock();
+        }
+        lot.clear();
+        libre = lot;
+        ecritureEnCours = false;
+        if (erreur == null) {
+            position += finLot - ecrits;
+            ecrits = finLot;
+        } else {
+            echec = erreur;
+        }
+        ecrit.signalAll();
+        verifier();
+    }
+
+    private void verifier() throws IOException {
+        if (echec != null) {
+            throw new IOException("Journal du registre de stock en échec", echec);
+        }
+    }
+
+    // Fige la fin du segment courant ; bascule sur un nouveau segment s'il dépasse tailleMax
+    Marque marquer(long tailleMax) throws IOException {
+        verrou.lock();
+        try {
+            // Pas de bascule pendant une écriture groupée : elle vise le canal courant
+            while (ecritureEnCours) {
+                ecrit.awaitUninterruptibly();
+            }
+            Marque marque = new Marque(segment, position, position >= tailleMax);
+            if (marque.rotation()) {
+                canal.close();
+                ouvrir(segment + 1);
+            }
+            return marque;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    long segment() {
+        return segment;
+    }
+
+    long position() {
+        return position;
+    }
+
+    Path fichier(long numero) {
+        return fichier(repertoire, numero);
+    }
+
+    static Path fichier(Path repertoire, long numero) {
+        return repertoire.resolve(String.format("stock-%012d.wal", numero));
+    }
+
+    // Somme des deltas par produit entre deux positions d'un segment (enregistrements complets uniquement)
+    static Map<Long, Long> lire(Path fichier, long debut, long fin) throws IOException {
+        Map<Long, Long> deltas = new HashMap<>();
+        if (!Files.exists(fichier) || fin <= debut) {
+            return deltas;
+        }
+        long limite = debut + ((fin - debut) / TAILLE_ENREGISTREMENT) * TAILLE_ENREGISTREMENT;
+        try (FileChannel lecture = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            ByteBuffer bloc = ByteBuffer.allocate(TAILLE_ENREGISTREMENT * 4096);
+            long courant = debut;
+            while (courant < limite) {
+                bloc.clear();
+                bloc.limit((int) Math.min(bloc.capacity(), limite - courant));
+                int lus = lecture.read(bloc, courant);
+                if (lus <= 0) {
+                    break;
+                }
+                bloc.flip();
+                while (bloc.remaining() >= TAILLE_ENREGISTREMENT) {
+                    deltas.merge(bloc.getLong(), bloc.getLong(), Long::sum);
+                }
+                courant += lus - bloc.remaining();
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas;
+    }
+
+    void supprimer(long numero) throws IOException {
+        Files.deleteIfExists(fichier(numero));
+    }
+
+    @Override
+    public void close() throws IOException {
+        verrou.lock();
+        try {
+            while (ecritureEnCours) {
+                ecrit.awaitUninterruptibly();
+            }
+            canal.close();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private void ouvrir(long numero) throws IOException {
+        segment = numero;
+        canal = FileChannel.open(fichier(numero), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // Ignorer un éventuel enregistrement tronqué en fin de fichier
+        long taille = canal.size();
+        position = taille - (taille % TAILLE_ENREGISTREMENT);
+        canal.position(position);
+    }
+
+    record Marque(long segment, long position, boolean rotation) {}
+}
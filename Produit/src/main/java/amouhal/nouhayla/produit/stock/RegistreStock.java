@@ -0,0 +1,309 @@
+package amouhal.nouhayla.produit.stock;
+
+import amouhal.nouhayla.produit.entity.PointControleStock;
+import amouhal.nouhayla.produit.entity.Produit;
+import amouhal.nouhayla.produit.repository.PointControleStockRepository;
+import amouhal.nouhayla.produit.repository.ProduitRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Registre de stock en mémoire pour les produits très sollicités (ventes flash).
+// Les réservations sont décidées sur des compteurs répartis, journalisées, puis les deltas
+// nets sont reportés périodiquement dans la table Produit (un UPDATE par produit et par lot).
+@Component
+public class RegistreStock {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistreStock.class);
+    private static final Pattern SEGMENT = Pattern.compile("stock-(\\d{12})\\.wal");
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private PointControleStockRepository pointControleStockRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${produit.stock.registre.actif:false}")
+    private boolean actif;
+
+    // Produits gérés explicitement, en plus de ceux dont le stock atteint le seuil au démarrage
+    @Value("${produit.stock.registre.produits:}")
+    private Set<Long> produitsGeres;
+
+    // 0 = pas de sélection par seuil
+    @Value("${produit.stock.registre.seuil:0}")
+    private int seuil;
+
+    @Value("${produit.stock.registre.parts:16}")
+    private int nbParts;
+
+    @Value("${produit.stock.registre.repertoire:data/registre-stock}")
+    private String repertoire;
+
+    // true : fsync à chaque mouvement (survit à une coupure machine, pas seulement à un arrêt du processus)
+    @Value("${produit.stock.registre.fsync:false}")
+    private boolean fsync;
+
+    @Value("${produit.stock.registre.segment-taille-max:67108864}")
+    private long tailleMaxSegment;
+
+    private final Map<Long, CompteurStockReparti> compteurs = new ConcurrentHashMap<>();
+    private final LongAdder echecsCas = new LongAdder();
+    private final LongAdder reservationsAcceptees = new LongAdder();
+    private final LongAdder reservationsRefusees = new LongAdder();
+    private final LongAdder synchronisations = new LongAdder();
+    private final Object verrouSynchro = new Object();
+
+    private JournalStock journal;
+    private volatile PointControleStock pointControle;
+    private volatile long derniereSynchro = System.currentTimeMillis();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() throws IOException {
+        if (!actif) {
+            return;
+        }
+        Path dossier = Paths.get(repertoire);
+        long segment = rejouerJournal(dossier);
+        journal = new JournalStock(dossier, segment, fsync);
+
+        List<Produit> produits = new ArrayList<>(produitRepository.findAllById(produitsGeres));
+        if (seuil > 0) {
+            produits.addAll(produitRepository.findByQuantiteStockGreaterThanEqual(seuil));
+        }
+        for (Produit produit : produits) {
+            compteurs.computeIfAbsent(produit.getId(), id -> new CompteurStockReparti(
+                    produit.getQuantiteStock() == null ? 0 : produit.getQuantiteStock(), nbParts, echecsCas));
+        }
+        enregistrerMetriques();
+        logger.info("Registre de stock actif pour {} produits (journal {})", compteurs.size(), dossier.toAbsolutePath());
+    }
+
+    public boolean gere(Long produitId) {
+        return produitId != null && compteurs.containsKey(produitId);
+    }
+
+    public boolean reserver(Long produitId, int quantite) {
+        CompteurStockReparti compteur = compteur(produitId);
+        if (!compteur.reserver(quantite)) {
+            reservationsRefusees.increment();
+            return false;
+        }
+        try {
+            journal.ajouter(produitId, -quantite);
+        } catch (IOException e) {
+            compteur.ajouter(quantite);
+            throw new IllegalStateException("Journal du registre de stock indisponible", e);
+        }
+        reservationsAcceptees.increment();
+        return true;
+    }
+
+    public void liberer(Long produitId, int quantite) {
+        CompteurStockReparti compteur = compteur(produitId);
+        journaliser(produitId, quantite);
+        compteur.ajouter(quantite);
+    }
+
+    // Modification administrative du stock : convertie en delta pour ne pas écraser les mouvements en attente
+    public void ajuster(Long produitId, int nouvelleQuantite) {
+        CompteurStockReparti compteur = compteur(produitId);
+        long delta = nouvelleQuantite - compteur.disponible();
+        if (delta != 0) {
+            journaliser(produitId, delta);
+            compteur.ajouter(delta);
+        }
+    }
+
+    public void retirer(Long produitId) {
+        compteurs.remove(produitId);
+    }
+
+    // Copie du produit avec la quantité du registre (l'entité chargée n'est pas modifiée)
+    public Produit appliquer(Produit produit) {
+        CompteurStockReparti compteur = produit == null ? null : compteurs.get(produit.getId());
+        if (compteur == null) {
+            return produit;
+        }
+        Produit copie = new Produit();
+        copie.setId(produit.getId());
+        copie.setReference(produit.getReference());
+        copie.setNom(produit.getNom());
+        copie.setDescription(produit.getDescription());
+        copie.setPrix(produit.getPrix());
+        copie.setQuantiteStock((int) compteur.disponible());
+        copie.setVersion(produit.getVersion());
+        return copie;
+    }
+
+    // Report des deltas nets dans la table Produit, avec le point de contrôle dans la même transaction
+    @Scheduled(fixedDelayString = "${produit.stock.registre.flush-ms:500}")
+    public void synchroniser() {
+        if (journal == null) {
+            return;
+        }
+        synchronized (verrouSynchro) {
+            try {
+                PointControleStock depart = pointControle;
+                JournalStock.Marque marque = journal.marquer(tailleMaxSegment);
+                if (!marque.rotation() && marque.position() == depart.getPosition()) {
+                    derniereSynchro = System.currentTimeMillis();
+                    return;
+                }
+                Map<Long, Long> deltas = JournalStock.lire(journal.fichier(marque.segment()),
+                        depart.getPosition(), marque.position());
+                PointControleStock suivant = marque.rotation()
+                        ? new PointControleStock(marque.segment() + 1, 0L)
+                        : new PointControleStock(marque.segment(), marque.position());
+
+                appliquer(deltas, suivant);
+                pointControle = suivant;
+                if (marque.rotation()) {
+                    journal.supprimer(marque.segment());
+                }
+                derniereSynchro = System.currentTimeMillis();
+                synchronisations.increment();
+                logger.debug("Registre de stock : {} produits reportés en base", deltas.size());
+            } catch (Exception e) {
+                logger.error("Échec du report du registre de stock: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void arreter() throws IOException {
+        if (journal != null) {
+            synchroniser();
+            journal.close();
+        }
+    }
+
+    // Reporte en base ce qui n'a pas été synchronisé avant l'arrêt, puis ouvre un nouveau segment
+    private long rejouerJournal(Path dossier) throws IOException {
+        Files.createDirectories(dossier);
+        PointControleStock depart = pointControleStockRepository.findById(PointControleStock.ID_UNIQUE)
+                .orElse(new PointControleStock(0L, 0L));
+
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            fichiers.forEach(fichier -> {
+                Matcher matcher = SEGMENT.matcher(fichier.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        segments.sort(null);
+
+        Map<Long, Long> deltas = new HashMap<>();
+        long dernier = depart.getSegment();
+        for (Long numero : segments) {
+            if (numero < depart.getSegment()) {
+                continue;
+            }
+            Path fichier = JournalStock.fichier(dossier, numero);
+            long debut = numero.equals(depart.getSegment()) ? depart.getPosition() : 0L;
+            JournalStock.lire(fichier, debut, Files.size(fichier)).forEach((id, delta) -> deltas.merge(id, delta, Long::sum));
+            dernier = Math.max(dernier, numero);
+        }
+
+        PointControleStock suivant = new PointControleStock(dernier + 1, 0L);
+        appliquer(deltas, suivant);
+        pointControle = suivant;
+        for (Long numero : segments) {
+            Files.deleteIfExists(JournalStock.fichier(dossier, numero));
+        }
+        if (!deltas.isEmpty()) {
+            logger.info("Registre de stock : {} produits rattrapés depuis le journal", deltas.size());
+        }
+        return suivant.getSegment();
+    }
+
+    private void appliquer(Map<Long, Long> deltas, PointControleStock suivant) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            deltas.forEach((id, delta) -> produitRepository.incrementerStock(id, Math.toIntExact(delta)));
+            pointControleStockRepository.save(suivant);
+        });
+    }
+
+    private CompteurStockReparti compteur(Long produitId) {
+        CompteurStockReparti compteur = compteurs.get(produitId);
+        if (compteur == null) {
+            throw new IllegalStateException("Produit " + produitId + " non géré par le registre de stock");
+        }
+        return compteur;
+    }
+
+    private void journaliser(Long produitId, long delta) {
+        try {
+            journal.ajouter(produitId, delta);
+        } catch (IOException e) {
+            throw new IllegalStateException("Journal du registre de stock indisponible", e);
+        }
+    }
+
+    private void enregistrerMetriques() {
+        Gauge.builder("produit.stock.registre.produits", compteurs, Map::size)
+                .description("Produits gérés par le registre de stock")
+                .register(meterRegistry);
+        FunctionCounter.builder("produit.stock.registre.contention", echecsCas, LongAdder::sum)
+                .description("Échecs de compare-and-set sur les compteurs répartis")
+                .register(meterRegistry);
+        FunctionCounter.builder("produit.stock.registre.reservations", reservationsAcceptees, LongAdder::sum)
+                .tag("resultat", "acceptee")
+                .register(meterRegistry);
+        FunctionCounter.builder("produit.stock.registre.reservations", reservationsRefusees, LongAdder::sum)
+                .tag("resultat", "refusee")
+                .register(meterRegistry);
+        FunctionCounter.builder("produit.stock.registre.synchronisations", synchronisations, LongAdder::sum)
+                .register(meterRegistry);
+        Gauge.builder("produit.stock.registre.synchro.en.attente", this, RegistreStock::mouvementsEnAttente)
+                .description("Mouvements journalisés pas encore reportés en base")
+                .register(meterRegistry);
+        Gauge.builder("produit.stock.registre.synchro.retard", this,
+                        registre -> registre.mouvementsEnAttente() > 0 ? System.currentTimeMillis() - registre.derniereSynchro : 0)
+                .description("Retard du report en base (ms)")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    private double mouvementsEnAttente() {
+        PointControleStock courant = pointControle;
+        if (journal == null || courant == null || journal.segment() != courant.getSegment()) {
+            return 0;
+        }
+        return (journal.position() - courant.getPosition()) / (double) JournalStock.TAILLE_ENREGISTREMENT;
+    }
+}
@@ -0,0 +1,239 @@
+package amouhal.nouhayla.produit.controller;
+
+import amouhal.nouhayla.produit.entity.Produit;
+import amouhal.nouhayla.produit.repository.ProduitRepository;
+import amouhal.nouhayla.produit.service.ProduitService;
+import amouhal.nouhayla.produit.stock.RegistreStock;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ModificationProduitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProduitService produitService;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @SpyBean
+    private RegistreStock registreStock;
+
+    @Test
+    void patchRenvoieLEtagDeLaFicheModifiee() throws Exception {
+        Produit produit = produitService.ajouterProduit(produit("MOD-PATCH-1"));
+        long version = version(produit);
+
+        String etag = mockMvc.perform(patch("/api/produits/" + produit.getId()).with(admin())
+                        .header(HttpHeaders.IF_MATCH, "\"" + version + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nom\":\"Renommé\"}"))
+                .andExpect(status().isNoContent())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertEquals(version + 1, version(produit));
+        // Même validateur que GET : la fiche modifiée n'est pas renvoyée une seconde fois
+        mockMvc.perform(get("/api/produits/" + produit.getId()).with(admin()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertEquals("Renommé", produitRepository.findById(produit.getId()).orElseThrow().getNom());
+    }
+
+    @Test
+    void etagDuPatchSertDeIfMatchSuivant() throws Exception {
+        Produit produit = produitService.ajouterProduit(produit("MOD-PATCH-2"));
+
+        String etag = mockMvc.perform(patch("/api/produits/" + produit.getId()).with(admin())
+                        .header(HttpHeaders.IF_MATCH, "\"" + version(produit) + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"prix\":12.5}"))
+                .andExpect(status().isNoContent())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(patch("/api/produits/" + produit.getId()).with(admin())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"prix\":13.5}"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void patchProduitInconnu() throws Exception {
+        mockMvc.perform(patch("/api/produits/999999").with(admin())
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nom\":\"Inconnu\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void patchVersionPerimee() throws Exception {
+        Produit produit = produitService.ajouterProduit(produit("MOD-PATCH-3"));
+        long version = version(produit);
+
+        mockMvc.perform(patch("/api/produits/" + produit.getId()).with(admin())
+                        .header(HttpHeaders.IF_MATCH, "\"" + (version + 5) + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nom\":\"Trop tard\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        assertEquals(version, version(produit));
+    }
+
+    @Test
+    void patchSansIfMatch() throws Exception {
+        Produit produit = produitService.ajouterProduit(produit("MOD-PATCH-4"));
+
+        mockMvc.perform(patch("/api/produits/" + produit.getId()).with(admin())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nom\":\"Sans condition\"}"))
+                .andExpect(status().isPreconditionRequired());
+    }
+
+    @Test
+    void patchReferenceDejaUtilisee() throws Exception {
+        produitService.ajouterProduit(produit("MOD-PATCH-5"));
+        Produit produit = produitService.ajouterProduit(produit("MOD-PATCH-6"));
+
+        mockMvc.perform(patch("/api/produits/" + produit.getId()).with(admin())
+                        .header(HttpHeaders.IF_MATCH, "\"" + version(produit) + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"reference\":\"MOD-PATCH-5\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void putAvecIfMatchPerimeRefuse() throws Exception {
+        Produit produit = produitService.ajouterProduit(produit("MOD-PUT-1"));
+        long version = version(produit);
+
+        mockMvc.perform(put("/api/produits/" + produit.getId()).with(admin())
+                        .header(HttpHeaders.IF_MATCH, "\"" + (version + 1) + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(corps("Remplacé")))
+                .andExpect(status().isPreconditionFailed());
+
+        assertEquals("Produit MOD-PUT-1", produitRepository.findById(produit.getId()).orElseThrow().getNom());
+    }
+
+    @Test
+    void putAvecIfMatchAJourRenvoieLEtagDeLaFiche() throws Exception {
+        Produit produit = produitService.ajouterProduit(produit("MOD-PUT-2"));
+        long version = version(produit);
+
+        String etag = mockMvc.perform(put("/api/produits/" + produit.getId()).with(admin())
+                        .header(HttpHeaders.IF_MATCH, "\"" + version + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(corps("Remplacé")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertEquals(version + 1, version(produit));
+        mockMvc.perform(get("/api/produits/" + produit.getId()).with(admin()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void etagDeGetSertDeIfMatch() throws Exception {
+        Produit produit = produitService.ajouterProduit(produit("MOD-PUT-6"));
+        String lu = mockMvc.perform(get("/api/produits/" + produit.getId()).with(admin()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put("/api/produits/" + produit.getId()).with(admin())
+                        .header(HttpHeaders.IF_MATCH, lu)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(corps("Remplacé")))
+                .andExpect(status().isOk());
+
+        // Fiche modifiée depuis la lecture : l'ancien ETag est refusé
+        mockMvc.perform(patch("/api/produits/" + produit.getId()).with(admin())
+                        .header(HttpHeaders.IF_MATCH, lu)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nom\":\"Trop tard\"}"))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("Remplacé", produitRepository.findById(produit.getId()).orElseThrow().getNom());
+    }
+
+    @Test
+    void putSansQuantiteConserveLeStock() throws Exception {
+        Produit produit = produitService.ajouterProduit(produit("MOD-PUT-3"));
+
+        mockMvc.perform(put("/api/produits/" + produit.getId()).with(admin())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nom\":\"Sans stock\",\"description\":\"Description\",\"prix\":10.0}"))
+                .andExpect(status().isOk());
+
+        assertEquals(3, produitRepository.findById(produit.getId()).orElseThrow().getQuantiteStock());
+    }
+
+    @Test
+    void putEnEchecNAjustePasLeRegistre() {
+        produitService.ajouterProduit(produit("MOD-PUT-4"));
+        Produit produit = produitService.ajouterProduit(produit("MOD-PUT-5"));
+        doReturn(true).when(registreStock).gere(produit.getId());
+        doNothing().when(registreStock).ajuster(anyLong(), anyInt());
+
+        Produit modification = produit("MOD-PUT-4");
+        modification.setQuantiteStock(50);
+        assertThrows(DataIntegrityViolationException.class,
+                () -> produitService.modifierProduit(produit.getId(), modification, version(produit)));
+        verify(registreStock, never()).ajuster(anyLong(), anyInt());
+
+        modification.setReference("MOD-PUT-5");
+        produitService.modifierProduit(produit.getId(), modification, version(produit));
+        verify(registreStock).ajuster(eq(produit.getId()), eq(50));
+    }
+
+    private long version(Produit produit) {
+        return produitRepository.findById(produit.getId()).orElseThrow().getVersion();
+    }
+
+    private static String corps(String nom) {
+        return "{\"nom\":\"" + nom + "\",\"description\":\"Description\",\"prix\":10.0,\"quantiteStock\":3}";
+    }
+
+    private static RequestPostProcessor admin() {
+        return jwt().jwt(jwt -> jwt.claim("preferred_username", "admin"))
+                .authorities(new SimpleGrantedAuthority("ROLE_ADMIN"));
+    }
+
+    private static Produit produit(String reference) {
+        Produit produit = new Produit();
+        produit.setReference(reference);
+        produit.setNom("Produit " + reference);
+        produit.setDescription("Produit de test des modifications");
+        produit.setPrix(10.0);
+        produit.setQuantiteStock(3);
+        return produit;
+    }
+}
@@ -0,0 +1,92 @@
+package amouhal.nouhayla.produit.recherche;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexInverseTest {
+
+    private final IndexInverse index = new IndexInverse(64, 64);
+
+    @Test
+    void ignoreAccentsCasseEtPluriel() {
+        index.indexer(1, "Écran 27 pouces", "Moniteur pour le bureau");
+        index.indexer(2, "Chaise de bureau", "Réglable, accoudoirs");
+        index.indexer(3, "Cœur en céramique", null);
+
+        assertEquals(List.of(1L), ids("ecrans "));
+        assertEquals(List.of(2L), ids("REGLABLE "));
+        assertEquals(List.of(3L), ids("coeur "));
+        // Tous les mots doivent être trouvés, les mots vides sont ignorés
+        assertEquals(List.of(2L), ids("chaise de bureau "));
+        assertEquals(List.of(), ids("chaise moniteur "));
+    }
+
+    @Test
+    void completeLeDernierMotEtClasseParPertinence() {
+        index.indexer(1, "Ordinateur portable", "Écran 15 pouces");
+        index.indexer(2, "Sacoche", "Pour ordinateur portable");
+        index.indexer(3, "Ordi", "Petit ordinateur");
+
+        // Le nom compte plus que la description, le terme exact plus que le terme complété
+        assertEquals(List.of(1L, 2L), ids("portab"));
+        assertEquals(3L, ids("ordi").get(0));
+        // À score égal, le plus petit id d'abord
+        assertEquals(List.of(1L, 2L, 3L), ids("ordinateur "));
+    }
+
+    @Test
+    void miseAJourEtSuppressionIncrementales() {
+        index.indexer(1, "Clavier mécanique", "Switches rouges");
+        index.indexer(2, "Souris", "Sans fil");
+        index.indexer(1, "Clavier sans fil", "Compact");
+
+        assertEquals(List.of(), ids("mecanique "));
+        assertEquals(List.of(1L, 2L), ids("sans fil "));
+
+        index.retirer(2);
+        assertEquals(List.of(1L), ids("fil "));
+        assertEquals(1, index.documents());
+        assertEquals(1, index.numerosInutilises());
+    }
+
+    @Test
+    void resteCoherentApresDeNombreusesModifications() {
+        Random random = new Random(7);
+        String[] mots = {"table", "chaise", "lampe", "bureau", "verre", "bois", "metal", "rouge"};
+        String[] textes = new String[5000];
+        for (int i = 0; i < 20000; i++) {
+            int id = random.nextInt(textes.length);
+            if (random.nextInt(5) == 0) {
+                index.retirer(id);
+                textes[id] = null;
+            } else {
+                textes[id] = mots[random.nextInt(mots.length)] + " " + mots[random.nextInt(mots.length)];
+                index.indexer(id, textes[id], null);
+            }
+        }
+        for (String mot : mots) {
+            long attendus = 0;
+            for (String texte : textes) {
+                if (texte != null && List.of(texte.split(" ")).contains(mot)) {
+                    attendus++;
+                }
+            }
+            List<Long> trouves = ids(mot + " ", textes.length);
+            assertEquals(attendus, trouves.size(), mot);
+            trouves.forEach(id -> assertTrue(textes[id.intValue()].contains(mot)));
+        }
+    }
+
+    private List<Long> ids(String requete) {
+        return ids(requete, 10);
+    }
+
+    private List<Long> ids(String requete, int limite) {
+        return index.rechercher(requete, limite).stream().map(IndexInverse.Resultat::produitId).toList();
+    }
+}
@@ -0,0 +1,166 @@
+package amouhal.nouhayla.produit.service;
+
+import amouhal.nouhayla.produit.dto.ReservationRequest;
+import amouhal.nouhayla.produit.entity.Produit;
+import amouhal.nouhayla.produit.repository.ProduitRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CatalogueProduitsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProduitService produitService;
+
+    @Autowired
+    private CatalogueProduits catalogueProduits;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Test
+    void reservationNeRelitQueLesProduitsReserves() throws Exception {
+        Produit reserve = produitService.ajouterProduit(produit("CAT-RES-1", 10));
+        Produit autre = produitService.ajouterProduit(produit("CAT-RES-2", 10));
+        String etagReserve = etag("/api/produits/" + reserve.getId());
+        String etagAutre = etag("/api/produits/" + autre.getId());
+        double chargements = chargements();
+
+        assertTrue(produitService.reserverStock(new ReservationRequest(List.of(
+                new ReservationRequest.LigneReservation(reserve.getId(), 3)))).isReussie());
+        attendre(() -> catalogueProduits.fiche(reserve.getId()).produit().getQuantiteStock() == 7);
+
+        assertEquals(chargements, chargements(), "pas de rechargement complet pour une réservation");
+        assertEquals(etagAutre, catalogueProduits.fiche(autre.getId()).etag());
+        mockMvc.perform(get("/api/produits/" + autre.getId()).with(client())
+                        .header(HttpHeaders.IF_NONE_MATCH, etagAutre))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/produits/" + reserve.getId()).with(client())
+                        .header(HttpHeaders.IF_NONE_MATCH, etagReserve))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void ficheAJourAvantLaReponseALaModification() throws Exception {
+        Produit produit = produitService.ajouterProduit(produit("CAT-MOD-1", 4));
+        String etag = etag("/api/produits/" + produit.getId());
+
+        produit.setNom("Renommé");
+        produitService.modifierProduit(produit.getId(), produit);
+
+        assertEquals("Renommé", catalogueProduits.fiche(produit.getId()).produit().getNom());
+        mockMvc.perform(get("/api/produits/" + produit.getId()).with(client())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void listeRevalideeParEtagPuisRemplaceeApresModification() throws Exception {
+        String etag = etag("/api/produits");
+        mockMvc.perform(get("/api/produits").with(client()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        Produit ajoute = produitService.ajouterProduit(produit("CAT-LISTE-1", 1));
+        attendre(() -> catalogueProduits.lire().produits().stream().anyMatch(p -> p.getId().equals(ajoute.getId())));
+
+        assertNotEquals(etag, catalogueProduits.lire().etag());
+        mockMvc.perform(get("/api/produits").with(client()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void suppressionRetireLaFiche() {
+        Produit produit = produitService.ajouterProduit(produit("CAT-SUP-1", 1));
+        produitService.supprimerProduit(produit.getId());
+        assertNull(catalogueProduits.fiche(produit.getId()));
+    }
+
+    @Test
+    void rechargementCompletParPagesVoitLesModificationsExternes() throws Exception {
+        Produit modifie = produitService.ajouterProduit(produit("CAT-RECH-1", 5));
+        Produit supprime = produitService.ajouterProduit(produit("CAT-RECH-2", 5));
+        Produit inchange = produitService.ajouterProduit(produit("CAT-RECH-3", 5));
+        CatalogueProduits.Fiche ficheInchangee = catalogueProduits.fiche(inchange.getId());
+        // Écritures hors du service (autre instance, SQL direct) : aucun événement CatalogueModifie
+        Produit lu = produitRepository.findById(modifie.getId()).orElseThrow();
+        lu.setNom("Modifié ailleurs");
+        produitRepository.save(lu);
+        produitRepository.deleteById(supprime.getId());
+
+        Object lotTaille = ReflectionTestUtils.getField(catalogueProduits, "lotTaille");
+        ReflectionTestUtils.setField(catalogueProduits, "lotTaille", 2);
+        try {
+            double chargements = chargements();
+            catalogueProduits.invalider(new CatalogueModifie(null, false));
+            attendre(() -> chargements() > chargements);
+        } finally {
+            ReflectionTestUtils.setField(catalogueProduits, "lotTaille", lotTaille);
+        }
+
+        assertEquals("Modifié ailleurs", catalogueProduits.fiche(modifie.getId()).produit().getNom());
+        assertNull(catalogueProduits.fiche(supprime.getId()));
+        // Fiche inchangée conservée telle quelle
+        assertSame(ficheInchangee, catalogueProduits.fiche(inchange.getId()));
+    }
+
+    private String etag(String uri) throws Exception {
+        return mockMvc.perform(get(uri).with(client()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private double chargements() {
+        return meterRegistry.get("produit.catalogue.chargements").counter().count();
+    }
+
+    private static void attendre(BooleanSupplier condition) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limite, "catalogue non mis à jour");
+            Thread.sleep(10);
+        }
+    }
+
+    private static RequestPostProcessor client() {
+        return jwt().authorities(new SimpleGrantedAuthority("ROLE_CLIENT"));
+    }
+
+    private static Produit produit(String reference, int stock) {
+        Produit produit = new Produit();
+        produit.setReference(reference);
+        produit.setNom("Produit " + reference);
+        produit.setDescription("Produit de test du catalogue");
+        produit.setPrix(10.0);
+        produit.setQuantiteStock(stock);
+        return produit;
+    }
+}
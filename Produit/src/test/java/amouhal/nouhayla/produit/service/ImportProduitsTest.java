@@ -0,0 +1,90 @@
+package amouhal.nouhayla.produit.service;
+
+import amouhal.nouhayla.produit.dto.ImportProduitsResponse;
+import amouhal.nouhayla.produit.entity.Produit;
+import amouhal.nouhayla.produit.repository.ProduitRepository;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ImportProduitsTest {
+
+    @Autowired
+    private ImportProduits importProduits;
+
+    @SpyBean
+    private ProduitRepository produitRepository;
+
+    @Test
+    void texteTropLongRejeteSeulementSaLigne() throws Exception {
+        ImportProduitsResponse rapport = importer(
+                ligne("IMP-LONG-1", "Court", "Description", 3),
+                ligne("IMP-LONG-2", "N".repeat(256), "Description", 3),
+                ligne("IMP-LONG-3", "Court", "D".repeat(256), 3),
+                ligne("IMP-LONG-4", "Court", "Description", 3));
+
+        assertEquals(2, rapport.getInseres());
+        assertEquals(2, rapport.getRejetes());
+        assertEquals(List.of("Nom trop long", "Description trop longue"),
+                rapport.getRejets().stream().map(ImportProduitsResponse.Rejet::getMotif).toList());
+        assertEquals(2, produitRepository.findByReferenceIn(List.of("IMP-LONG-1", "IMP-LONG-4")).size());
+    }
+
+    @Test
+    void ligneRefuseeParLaBaseNeRejettePasLeLot() throws Exception {
+        doThrow(new PersistenceException("refusée"))
+                .when(produitRepository).save(argThat(produit -> "IMP-REFUS-2".equals(produit.getReference())));
+
+        ImportProduitsResponse rapport = importer(
+                ligne("IMP-REFUS-1", "Premier", "Description", 1),
+                ligne("IMP-REFUS-2", "Deuxième", "Description", 1),
+                ligne("IMP-REFUS-3", "Troisième", "Description", 1));
+
+        assertEquals(2, rapport.getInseres());
+        assertEquals(1, rapport.getRejetes());
+        assertEquals(2, rapport.getRejets().get(0).getNumero());
+        List<String> ecrits = produitRepository.findByReferenceIn(List.of("IMP-REFUS-1", "IMP-REFUS-2", "IMP-REFUS-3"))
+                .stream().map(Produit::getReference).sorted().toList();
+        assertEquals(List.of("IMP-REFUS-1", "IMP-REFUS-3"), ecrits);
+    }
+
+    @Test
+    void miseAJourParReferenceNeChangeQueLesColonnesModifiees() throws Exception {
+        importer(ligne("IMP-MAJ-1", "Avant", "Description", 5));
+        Produit avant = produitRepository.findByReferenceIn(List.of("IMP-MAJ-1")).get(0);
+
+        ImportProduitsResponse rapport = importer(ligne("IMP-MAJ-1", "Après", "Description", 5),
+                ligne("IMP-MAJ-2", "Nouveau", "Description", 2));
+
+        assertEquals(1, rapport.getModifies());
+        assertEquals(1, rapport.getInseres());
+        Produit apres = produitRepository.findById(avant.getId()).orElseThrow();
+        assertEquals("Après", apres.getNom());
+        assertEquals(5, apres.getQuantiteStock());
+        assertFalse(apres.getVersion().equals(avant.getVersion()));
+    }
+
+    private ImportProduitsResponse importer(String... lignes) throws Exception {
+        byte[] contenu = String.join("\n", lignes).getBytes(StandardCharsets.UTF_8);
+        return importProduits.importer(new ByteArrayInputStream(contenu), ImportProduits.Format.NDJSON);
+    }
+
+    private static String ligne(String reference, String nom, String description, int stock) {
+        return "{\"reference\":\"" + reference + "\",\"nom\":\"" + nom + "\",\"description\":\"" + description
+                + "\",\"prix\":9.5,\"quantiteStock\":" + stock + "}";
+    }
+}
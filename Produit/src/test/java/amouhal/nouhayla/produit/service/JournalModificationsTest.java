@@ -0,0 +1,135 @@
+package amouhal.nouhayla.produit.service;
+
+import amouhal.nouhayla.produit.dto.ModificationsProduits;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalModificationsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JournalModifications journal;
+
+    @BeforeEach
+    void setUp() {
+        journal = new JournalModifications();
+        ReflectionTestUtils.setField(journal, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(journal, "tailleMax", 5);
+        ReflectionTestUtils.setField(journal, "limiteMax", 2);
+        ReflectionTestUtils.setField(journal, "dureeMaxSse", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(journal, "tampon", 3);
+        ReflectionTestUtils.setField(journal, "threads", 1);
+        journal.initialiser();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.arreter();
+    }
+
+    @Test
+    void depuisParcourtLeJournalParPages() {
+        long depart = journal.sequence();
+        journal.enregistrer(changements(1L, 2L, 3L));
+
+        ModificationsProduits premiere = journal.depuis(depart);
+        assertEquals(List.of(1L, 2L), ids(premiere));
+        assertEquals(depart + 2, premiere.getSequence());
+        assertTrue(premiere.isSuite());
+
+        ModificationsProduits seconde = journal.depuis(premiere.getSequence());
+        assertEquals(List.of(3L), ids(seconde));
+        assertEquals(depart + 3, seconde.getSequence());
+        assertFalse(seconde.isSuite());
+
+        ModificationsProduits aJour = journal.depuis(journal.sequence());
+        assertTrue(aJour.getModifications().isEmpty());
+        assertFalse(aJour.isReprise());
+        assertEquals(journal.sequence(), aJour.getSequence());
+    }
+
+    @Test
+    void sequenceInconnueDemandeUneReprise() {
+        journal.enregistrer(changements(1L));
+        assertTrue(journal.depuis(journal.sequence() + 1).isReprise());
+        assertEquals(1.0, meterRegistry.get("produit.modifications.reprises").counter().count());
+    }
+
+    @Test
+    void journalCirculaireNeGardeQueLesDernieresModifications() {
+        long depart = journal.sequence();
+        journal.enregistrer(changements(1L, 2L, 3L, 4L, 5L, 6L, 7L));
+
+        // Séquences depart+3 à depart+7 gardées : depart+2 est la plus ancienne reprise possible
+        assertTrue(journal.depuis(depart + 1).isReprise());
+        ModificationsProduits page = journal.depuis(depart + 2);
+        assertFalse(page.isReprise());
+        assertEquals(List.of(3L, 4L), ids(page));
+        assertEquals(depart + 3, page.getModifications().get(0).getSequence());
+    }
+
+    @Test
+    void uneModificationParProduitDansUnePage() {
+        ReflectionTestUtils.setField(journal, "limiteMax", 10);
+        long depart = journal.sequence();
+        journal.enregistrer(changements(1L, 2L, 1L));
+
+        ModificationsProduits page = journal.depuis(depart);
+        assertEquals(List.of(2L, 1L), ids(page));
+        assertEquals(depart + 3, page.getModifications().get(1).getSequence());
+        assertEquals(depart + 3, page.getSequence());
+    }
+
+    @Test
+    void abonneTropLentEstRetireSansBloquerLeJournal() throws Exception {
+        // Seul thread d'envoi occupé : les événements s'accumulent dans la file de l'abonné
+        CountDownLatch debloquer = new CountDownLatch(1);
+        ExecutorService diffusion = (ExecutorService) ReflectionTestUtils.getField(journal, "diffusion");
+        diffusion.execute(() -> {
+            try {
+                debloquer.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            journal.abonner(null);
+            assertEquals(1, journal.nombreAbonnes());
+
+            // Séquence initiale puis deux pages : la file est pleine (tampon 3)
+            journal.enregistrer(changements(1L));
+            journal.enregistrer(changements(2L));
+            assertEquals(1, journal.nombreAbonnes());
+            journal.enregistrer(changements(3L));
+
+            assertEquals(0, journal.nombreAbonnes());
+            assertEquals(1.0, meterRegistry.get("produit.modifications.abonnes.retires").counter().count());
+        } finally {
+            debloquer.countDown();
+        }
+    }
+
+    private static List<JournalModifications.Changement> changements(Long... ids) {
+        List<JournalModifications.Changement> changements = new ArrayList<>();
+        for (Long id : ids) {
+            changements.add(new JournalModifications.Changement(ModificationsProduits.Modification.MODIFICATION, id, null));
+        }
+        return changements;
+    }
+
+    private static List<Long> ids(ModificationsProduits page) {
+        return page.getModifications().stream().map(ModificationsProduits.Modification::getProduitId).toList();
+    }
+}
@@ -0,0 +1,127 @@
+package amouhal.nouhayla.produit.service;
+
+import amouhal.nouhayla.produit.dto.ReservationRequest;
+import amouhal.nouhayla.produit.dto.ReservationResponse;
+import amouhal.nouhayla.produit.entity.Produit;
+import amouhal.nouhayla.produit.repository.ProduitRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReservationStockTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProduitService produitService;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Test
+    void reservationRejoueeNeDecrementeQuUneFois() {
+        Produit produit = produitService.ajouterProduit(produit("RES-REJEU-1", 10));
+
+        ReservationResponse premiere = produitService.reserverStock(reservation("rejeu-1", produit.getId(), 4));
+        ReservationResponse rejouee = produitService.reserverStock(reservation("rejeu-1", produit.getId(), 4));
+
+        assertTrue(premiere.isReussie());
+        assertTrue(rejouee.isReussie());
+        assertEquals("rejeu-1", rejouee.getReservationId());
+        assertEquals(ReservationResponse.RESERVEE, rejouee.getLignes().get(0).getStatut());
+        assertEquals(6, stock(produit));
+    }
+
+    @Test
+    void liberationRendLeStockUneSeuleFois() {
+        Produit produit = produitService.ajouterProduit(produit("RES-LIB-1", 10));
+        produitService.reserverStock(reservation("liberation-1", produit.getId(), 3));
+
+        ReservationResponse liberation = produitService.libererStock(liberation("liberation-1"));
+        ReservationResponse repetee = produitService.libererStock(liberation("liberation-1"));
+
+        assertTrue(liberation.isReussie());
+        assertEquals(ReservationResponse.LIBEREE, liberation.getLignes().get(0).getStatut());
+        assertTrue(repetee.isReussie());
+        assertTrue(repetee.getLignes().isEmpty());
+        assertEquals(10, stock(produit));
+    }
+
+    @Test
+    void liberationAvantReservationAnnuleLaReservation() {
+        Produit produit = produitService.ajouterProduit(produit("RES-ANN-1", 10));
+
+        assertTrue(produitService.libererStock(liberation("annulee-1")).isReussie());
+        ReservationResponse tardive = produitService.reserverStock(reservation("annulee-1", produit.getId(), 5));
+
+        assertFalse(tardive.isReussie());
+        assertEquals(ReservationResponse.ANNULEE, tardive.getLignes().get(0).getStatut());
+        assertEquals(10, stock(produit));
+    }
+
+    @Test
+    void reservationSansIdEnRecoitUn() {
+        Produit produit = produitService.ajouterProduit(produit("RES-ID-1", 2));
+
+        ReservationResponse response = produitService.reserverStock(new ReservationRequest(List.of(
+                new ReservationRequest.LigneReservation(produit.getId(), 1))));
+
+        assertNotNull(response.getReservationId());
+        produitService.libererStock(liberation(response.getReservationId()));
+        assertEquals(2, stock(produit));
+    }
+
+    @Test
+    void liberationSansIdRefusee() throws Exception {
+        mockMvc.perform(post("/api/produits/reservations/liberation")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_CLIENT")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lignes\":[{\"produitId\":1,\"quantite\":5}]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private int stock(Produit produit) {
+        return produitRepository.findById(produit.getId()).orElseThrow().getQuantiteStock();
+    }
+
+    private static ReservationRequest reservation(String id, Long produitId, int quantite) {
+        ReservationRequest request = new ReservationRequest(List.of(new ReservationRequest.LigneReservation(produitId, quantite)));
+        request.setReservationId(id);
+        return request;
+    }
+
+    private static ReservationRequest liberation(String id) {
+        ReservationRequest request = new ReservationRequest();
+        request.setReservationId(id);
+        return request;
+    }
+
+    private static Produit produit(String reference, int stock) {
+        Produit produit = new Produit();
+        produit.setReference(reference);
+        produit.setNom("Produit " + reference);
+        produit.setDescription("Produit de test des réservations");
+        produit.setPrix(10.0);
+        produit.setQuantiteStock(stock);
+        return produit;
+    }
+}
@@ -0,0 +1,68 @@
+package amouhal.nouhayla.produit.stock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompteurStockRepartiTest {
+
+    @Test
+    void neSurvendJamaisSousConcurrence() throws Exception {
+        CompteurStockReparti compteur = new CompteurStockReparti(1000, 8, new LongAdder());
+        AtomicInteger acceptees = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch depart = new CountDownLatch(1);
+        for (int t = 0; t < 16; t++) {
+            pool.submit(() -> {
+                depart.await();
+                for (int i = 0; i < 200; i++) {
+                    if (compteur.reserver(1)) {
+                        acceptees.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        depart.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, acceptees.get());
+        assertEquals(0, compteur.disponible());
+    }
+
+    @Test
+    void reservationRepartieSurPlusieursParts() {
+        CompteurStockReparti compteur = new CompteurStockReparti(10, 4, new LongAdder());
+
+        assertTrue(compteur.reserver(9));
+        assertFalse(compteur.reserver(2));
+        assertEquals(1, compteur.disponible());
+    }
+
+    @Test
+    void journalRelitLesDeltasNets(@TempDir Path dossier) throws Exception {
+        try (JournalStock journal = new JournalStock(dossier, 1, false)) {
+            journal.ajouter(1L, -3);
+            journal.ajouter(2L, -1);
+            journal.ajouter(1L, 2);
+            journal.ajouter(2L, 1);
+
+            Map<Long, Long> deltas = JournalStock.lire(journal.fichier(1), 0, journal.position());
+
+            assertEquals(Map.of(1L, -1L), deltas);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package amouhal.nouhayla.produit.stock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalStockTest {
+
+    @Test
+    void ecritureGroupeeConserveTousLesMouvements(@TempDir Path dossier) throws Exception {
+        JournalStock journal = new JournalStock(dossier, 1, false);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch depart = new CountDownLatch(1);
+        for (int t = 0; t < 16; t++) {
+            long produitId = t % 4;
+            pool.submit(() -> {
+                depart.await();
+                for (int i = 0; i < 1000; i++) {
+                    journal.ajouter(produitId, -1);
+                }
+                return null;
+            });
+        }
+        depart.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(16_000L * JournalStock.TAILLE_ENREGISTREMENT, journal.position());
+        Map<Long, Long> deltas = JournalStock.lire(journal.fichier(1), 0, journal.position());
+        assertEquals(Map.of(0L, -4000L, 1L, -4000L, 2L, -4000L, 3L, -4000L), deltas);
+        journal.close();
+    }
+
+    @Test
+    void basculeSurUnNouveauSegmentSansPerdreDeMouvement(@TempDir Path dossier) throws Exception {
+        JournalStock journal = new JournalStock(dossier, 1, false);
+        Map<Long, Long> attendus = new HashMap<>();
+        Map<Long, Long> lus = new HashMap<>();
+        long depuis = 0;
+        for (int i = 0; i < 500; i++) {
+            journal.ajouter(i % 7, i);
+            attendus.merge((long) (i % 7), (long) i, Long::sum);
+            if (i % 100 == 99) {
+                JournalStock.Marque marque = journal.marquer(800);
+                JournalStock.lire(journal.fichier(marque.segment()), depuis, marque.position())
+                        .forEach((id, delta) -> lus.merge(id, delta, Long::sum));
+                depuis = marque.rotation() ? 0 : marque.position();
+            }
+        }
+        attendus.values().removeIf(delta -> delta == 0);
+        lus.values().removeIf(delta -> delta == 0);
+        assertEquals(attendus, lus);
+        assertTrue(Files.exists(journal.fichier(journal.segment())));
+        journal.close();
+    }
+}